@@ -0,0 +1,40 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+ * Description
+ * -----------
+ * This class is a JDK Flight Recorder event for
+ * one click handled by Battleship's
+ * actionPerformed, labelled with what the click
+ * did ("place", "select", "fire", "auto-place"
+ * or "submit"). A slow event is a stall on the
+ * event dispatch thread. Record with, for
+ * example,
+ *
+ *   java -XX:StartFlightRecording=filename=game.jfr GameSetup
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+@Name("battleship.ActionPhase")
+@Label("Battleship Action")
+@Category("Battleship")
+@Description("One click handled on the event dispatch thread")
+public class ActionPhaseEvent extends Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Cell")
+	int cell = -1;
+}
@@ -1,5 +1,4 @@
 import java.awt.BorderLayout;
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.GridBagConstraints;
@@ -8,21 +7,22 @@ import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.EOFException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
-import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.UIManager;
-import javax.swing.border.Border;
+import javax.swing.SwingUtilities;
 
 /*
  * Description
@@ -30,8 +30,14 @@ import javax.swing.border.Border;
  * This class contains the functioning game.
  * One user will be the server and have
  * boolean isHost = true, for the client
- * isHost = false. Currently the host always
- * plays first.
+ * isHost = false. The host always plays first.
+ * A client can also join a GameServer, which
+ * pairs it with another client and decides
+ * who plays first. The board size and fleet
+ * are the host's (or the server's), sent in
+ * its HELLO. In a salvo game each turn is one
+ * shot for every ship still afloat, picked
+ * together on the grid and sent as one SALVO.
  * 
  * Gameplay
  * --------
@@ -40,9 +46,10 @@ import javax.swing.border.Border;
  * both users submit valid ships, the game begins.
  * Players take turns selecting a space to fire
  * at the opponent (hits are red, misses are
- * white). To receive the opponent's action,
- * a player must scan their radar until the
- * action comes through. The game ends once
+ * white). The radar picks up the opponent's
+ * action as soon as it comes through, on a
+ * background thread, so the window never
+ * freezes while waiting. The game ends once
  * one player destroys all the ships of their
  * opponent.
  * 
@@ -52,10 +59,10 @@ import javax.swing.border.Border;
  * 
  * Date
  * ----
- * Last updated: June 8, 2020. 6:10 PM
+ * Last updated: October 18, 2026
  */
 
-public class Battleship implements ActionListener {
+public class Battleship implements ActionListener, BoardView.Listener, PeerConnection.Listener {
 
 	// UI setup
 	JFrame frame = new JFrame();
@@ -72,11 +79,10 @@ public class Battleship implements ActionListener {
 	String opponentName;
 	JLabel selfName = new JLabel();
 	JLabel oppName = new JLabel();
-	JButton[] selfButtons = new JButton[100];
-	JButton[] oppButtons = new JButton[100];
-	JPanel selfPanel = new JPanel();
-	JPanel oppPanel = new JPanel();
+	// What is still wrong with the ships being placed
+	JLabel fleetLabel = new JLabel();
 	JButton submitB = new JButton("Ready");
+	JButton autoB = new JButton("Auto-place");
 	JButton fireB = new JButton("Fire!");
 	JButton radarB = new JButton("Scan Radar");
 
@@ -85,51 +91,98 @@ public class Battleship implements ActionListener {
 	final int BATTLING = 1;
 	int phase = 0;
 
-	// Used to tell the opponent when you won
-	final int GAME_OVER = 101;
-
 	// Variables that will be set with socket creation
 	String hostName;
 	int portNumber;
 	boolean isHost;
-	DataInputStream din;
-	DataOutputStream dout;
-
-	// Arrays to store where one's own and opponent's ships are
-	int[] selfShips = new int[100];
-	int[] oppShips = new int[100];
+	// The host fires first in a direct game, a server decides who does
+	boolean movesFirst;
+	// Set by an authoritative game server, which keeps the opponent's board and
+	// answers each of our shots with a RESULT
+	boolean authoritative;
+	PeerConnection connection;
+
+	// In a direct game where both players can, boards stay secret until the round
+	// is over: only a commitment goes out at READY (see BoardCommitment)
+	boolean committed;
+	BoardCommitment commitments = new BoardCommitment();
+	byte[] selfSalt = new byte[Protocol.SALT_BYTES];
+	byte[] selfCommitment = new byte[Protocol.HASH_BYTES];
+	byte[] oppSalt = new byte[Protocol.SALT_BYTES];
+	byte[] oppCommitment = new byte[Protocol.HASH_BYTES];
+	boolean oppRevealed = false;
+	// Our shots this round and the results the opponent gave, checked at REVEAL
+	int[] shotCells = new int[64];
+	int[] shotResults = new int[64];
+	int shotsTaken = 0;
+
+	// Reused buffers for encoding and decoding Protocol frames
+	ByteBuffer outFrame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+	ByteBuffer inFrame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+
+	// The board and fleet of this match: the host's in a direct game, the server's
+	// through a game server
+	Rules rules;
+	// Bitboards to store where one's own and opponent's ships are, made once the
+	// rules are known
+	Bitboard selfBoard;
+	Bitboard oppBoard;
+	// The opponent's board as they revealed it, in a commit-reveal game
+	Bitboard revealedBoard;
+	// The two grids, painted straight from the boards above (only our own ships
+	// are shown)
+	BoardView selfView;
+	BoardView oppView;
+	// Makes random fleets for the "Auto-place" button
+	FleetGenerator fleets = new FleetGenerator(System.nanoTime());
 	// Keeps track of what space is selected to fire at
 	int selectedSpace = -1;
-
-	// Colors (set here because they are repeated often and to easily change
-	// them/know what they mean)
-	final Color WATER = new Color(50, 200, 250);
-	final Color SHIP = new Color(150, 150, 150);
-	final Color HIT = new Color(250, 10, 30);
-	final Color MISS = Color.WHITE;
-	final Border SELECTED = BorderFactory.createLineBorder(Color.YELLOW, 3);
-
-	final int NOT_EDGE = 0;
-	final int RIGHT_EDGE = 1;
-	final int BOTTOM_EDGE = 2;
-	final int RIGHT_BOTTOM_CORNER = 3;
-
-	// finals to store squares with ships and w/o ships
-	final int EMPTY_SQUARE = 0;
-	final int SHIP_SQUARE = 1;
-	final int HIT_SQUARE = 2;
-	final int SUNKEN_SHIP = 3;
-	final int MISS_SQUARE = 4;
-	final int HORIZ = 0;
-	final int VERT = 1;
-
-	int[][] shipsCopy = new int[10][10];
-	int[] validShipLengths = { 5, 4, 3, 3, 2 };
+	// In a salvo game, the spaces selected to fire at this turn
+	int[] salvo;
+	int numSelected = 0;
+	// One received salvo and its results, for a committed opponent
+	int[] salvoCells;
+	int[] salvoResults;
+	long[] salvoShips;
+
+	// Tracks the READY handshake and the rematch answers, which can arrive in
+	// either order
+	boolean selfReady = false;
+	boolean oppBoardReceived = false;
+	final int NO_ANSWER = -1;
+	int selfRematch = NO_ANSWER;
+	int oppRematch = NO_ANSWER;
+	boolean roundOver = false;
+
+	// A game server gives each player a session token, to resume the match with
+	// after a dropped connection
+	long sessionToken = 0;
+	boolean resuming = false;
+	final long RESUME_MILLIS = 4000;
+
+	// When our last shot and our rematch answer were sent, for Metrics (0 = none)
+	long firedAt = 0;
+	long rematchAt = 0;
+
+	// Every board, shot and rematch answer of this match goes to the journal, with
+	// seat 0 being whoever fires first
+	MatchJournal journal = MatchJournal.shared();
+	long journalId;
+	int selfSeat;
+	// Every finished round counts towards both players' wins, losses and rating.
+	// A game server records its own matches, so we only record direct games.
+	PlayerStats stats = PlayerStats.shared();
+	boolean serverGame = false;
 
 	public Battleship(String hostName, String port, boolean isHost, String playerName) {
+		this(hostName, port, isHost, playerName, false);
+	}
+
+	// vsComputer asks the GameServer being joined for a computer opponent
+	public Battleship(String hostName, String port, boolean isHost, String playerName, boolean vsComputer) {
 
 		this.hostName = hostName;
-		int portNumber = Integer.parseInt(port);
+		portNumber = Integer.parseInt(port);
 		this.isHost = isHost;
 		this.playerName = playerName;
 		selfName.setText(playerName);
@@ -144,8 +197,7 @@ public class Battleship implements ActionListener {
 				@SuppressWarnings("resource")
 				ServerSocket ss = new ServerSocket(portNumber);
 				Socket s = ss.accept();
-				din = new DataInputStream(s.getInputStream());
-				dout = new DataOutputStream(s.getOutputStream());
+				connection = new PeerConnection(s);
 
 			} catch (IOException e) {
 				System.out.println("Exception caught when trying to listen on port " + portNumber
@@ -160,8 +212,7 @@ public class Battleship implements ActionListener {
 			try {
 				@SuppressWarnings("resource")
 				Socket s = new Socket(hostName, portNumber);
-				din = new DataInputStream(s.getInputStream());
-				dout = new DataOutputStream(s.getOutputStream());
+				connection = new PeerConnection(s);
 
 			} catch (UnknownHostException e) {
 				System.err.println("Don't know about host " + hostName);
@@ -173,36 +224,54 @@ public class Battleship implements ActionListener {
 			}
 		}
 
-		// Share names with opponent, set up opponent wins label
+		// Share names and rules with opponent, set up opponent wins label
+		long handshakeStart = System.nanoTime();
 		try {
-			dout.writeUTF(playerName);
-			opponentName = din.readUTF();
+			Rules own = Rules.configured();
+			Protocol.hello(outFrame,
+					(isHost ? Protocol.HELLO_FIRST : vsComputer ? Protocol.HELLO_BOT : 0) | Protocol.HELLO_COMMIT,
+					Protocol.UNRATED, own, playerName);
+			connection.send(outFrame);
+			// A joining player answers a host right away. A server may take a while to
+			// find an opponent, but sends heartbeats meanwhile.
+			connection.setReceiveTimeout(isHost ? Timeouts.HANDSHAKE_MILLIS : Timeouts.IDLE_MILLIS);
+			receive(Protocol.HELLO);
+			connection.setReceiveTimeout(0);
+			opponentName = Protocol.helloName(inFrame);
+			// The host plays its own rules, whoever joins plays the ones they are sent
+			rules = isHost ? own : Protocol.helloRules(inFrame);
+			movesFirst = (Protocol.helloFlags(inFrame) & Protocol.HELLO_FIRST) == 0;
+			authoritative = (Protocol.helloFlags(inFrame) & Protocol.HELLO_AUTHORITATIVE) != 0;
+			if (authoritative) {
+				journal = new MatchJournal(null); // the server journals the whole match
+			}
+			// A server never commits, so this is a direct game with a player who can
+			committed = !authoritative && (Protocol.helloFlags(inFrame) & Protocol.HELLO_COMMIT) != 0;
+			Metrics.HANDSHAKE.record(System.nanoTime() - handshakeStart);
 			oppName.setText(opponentName);
 			oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
+			journalId = journal.newMatch();
+			selfSeat = movesFirst ? 0 : 1;
+			journal.start(journalId, movesFirst ? playerName : opponentName, movesFirst ? opponentName : playerName,
+					rules);
 		} catch (IOException e) {
-			e.printStackTrace();
+			System.err.println("No answer from the opponent: " + e.getMessage());
+			System.exit(1);
 		}
+		selfBoard = new Bitboard(rules);
+		oppBoard = new Bitboard(rules);
+		revealedBoard = new Bitboard(rules);
+		salvo = new int[rules.fleet.length];
+		salvoCells = new int[rules.fleet.length];
+		salvoResults = new int[rules.fleet.length];
+		salvoShips = new long[rules.fleet.length];
+		selfView = new BoardView(selfBoard, true, this);
+		oppView = new BoardView(oppBoard, false, this);
+		frame.setTitle(frame.getTitle() + " - " + rules);
 
 		frame.setSize(1450, 700);
 		frame.setLayout(new BorderLayout());
 
-		// Initializing the 10x10 button grids
-		selfPanel.setLayout(new GridLayout(10, 10));
-		oppPanel.setLayout(new GridLayout(10, 10));
-		for (int i = 0; i < selfButtons.length; i++) {
-			selfButtons[i] = new JButton();
-			selfButtons[i].addActionListener(this);
-			selfButtons[i].setBackground(WATER);
-			selfButtons[i].setPreferredSize(new Dimension(50, 50));
-			selfPanel.add(selfButtons[i]);
-
-			oppButtons[i] = new JButton();
-			oppButtons[i].addActionListener(this);
-			oppButtons[i].setBackground(WATER);
-			oppButtons[i].setPreferredSize(new Dimension(50, 50));
-			oppPanel.add(oppButtons[i]);
-		}
-
 		// Score panel (each player's wins)
 		scorePanel.setLayout(new GridLayout(2, 1));
 		scorePanel.add(selfWinsLabel);
@@ -227,12 +296,12 @@ public class Battleship implements ActionListener {
 		panel.add(selfName, c);
 		selfName.setFont(textFont);
 
-		// Button grid for guessing on opponent
+		// Grid for guessing on opponent
 		c.gridx = 0;
 		c.gridy = 1;
 		c.insets = new Insets(0, 0, 50, 0);
-		panel.add(oppPanel, c);
-		oppPanel.setVisible(false);
+		panel.add(oppView, c);
+		oppView.setVisible(false);
 
 		// "Ready" button
 		submitB.addActionListener(this);
@@ -241,6 +310,13 @@ public class Battleship implements ActionListener {
 		panel.add(submitB, c);
 		submitB.setFont(textFont);
 
+		// "Auto-place" button, just below "Ready"
+		autoB.addActionListener(this);
+		autoB.setPreferredSize(new Dimension(200, 50));
+		c.insets = new Insets(250, 150, 50, 150);
+		panel.add(autoB, c);
+		autoB.setFont(textFont);
+
 		// Fire weapon button
 		c.gridx = 1;
 		c.gridy = 1;
@@ -251,528 +327,793 @@ public class Battleship implements ActionListener {
 		fireB.setVisible(false);
 		fireB.setFont(textFont);
 
-		// Radar button
+		// Radar, only shows what the opponent did
 		c.gridx = 1;
 		c.gridy = 1;
 		c.insets = new Insets(150, 50, 50, 0);
-		radarB.addActionListener(this);
+		radarB.setEnabled(false);
 		radarB.setPreferredSize(new Dimension(200, 100));
 		panel.add(radarB, c);
 		radarB.setVisible(false);
 		radarB.setFont(textFont);
 
-		// Button grid of own ships
+		// Grid of own ships
 		c.gridx = 2;
 		c.gridy = 1;
 		c.insets = new Insets(0, 50, 50, 0);
-		panel.add(selfPanel, c);
+		panel.add(selfView, c);
+
+		// Problems with the placed ships, just below their grid
+		c.gridx = 2;
+		c.gridy = 2;
+		c.insets = new Insets(0, 50, 10, 0);
+		panel.add(fleetLabel, c);
+		fleetLabel.setFont(textFont);
+		showFleetProblems();
 
 		frame.add(scorePanel, BorderLayout.NORTH);
 		frame.add(panel, BorderLayout.SOUTH);
 		// frame.setResizable(false);
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.setVisible(true);
+
+		// From now on the opponent's messages arrive through frameReceived
+		connection.start(this, SwingUtilities::invokeLater);
 	}
 
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		// If you clicked on the grid for your ships
-		for (int i = 0; i < selfButtons.length; i++) {
-			if (phase == PLACING_SHIPS) {
-				if (e.getSource().equals(selfButtons[i])) {
-					// If you clicked on water, change to ship, or vice versa
-					if (selfButtons[i].getBackground().equals(WATER)) {
-						selfButtons[i].setBackground(SHIP);
-					} else if (selfButtons[i].getBackground().equals(SHIP)) {
-						selfButtons[i].setBackground(WATER);
-					}
-				}
-			}
-		}
-		// If you clicked on the grid of your opponent's ships
-		for (int i = 0; i < oppButtons.length; i++) {
-			if (e.getSource().equals(oppButtons[i])) {
-				// If you clicked on the space you have selected, remove border and reset
-				// selectedSpace
-				if (selectedSpace == i) {
-					oppButtons[i].setBorder(UIManager.getBorder("Button.border"));
-					selectedSpace = -1;
-				}
-				// If you clicked on a new space, set its border to SELECTED and reset the old
-				// selected space if needed
-				else {
-					if (selectedSpace != -1) {
-						oppButtons[selectedSpace].setBorder(UIManager.getBorder("Button.border"));
-					}
-					oppButtons[i].setBorder(SELECTED);
-					selectedSpace = i;
-				}
-			}
-		}
+		// Times this click for Flight Recorder, labelled by what it turns out to do
+		ActionPhaseEvent event = new ActionPhaseEvent();
+		event.begin();
 		// Fire button
-		if (e.getSource().equals(fireB)) {
+		if (e.getSource().equals(fireB) && rules.salvo) {
+			event.phase = "fire";
+			event.cell = numSelected == 0 ? -1 : salvo[0];
+			fireSalvo();
+		} else if (e.getSource().equals(fireB)) {
+			event.phase = "fire";
+			event.cell = selectedSpace;
 			if (selectedSpace == -1) {
 				JOptionPane.showMessageDialog(frame, "No space selected!");
+			} else if (authoritative || committed) {
+				// The server (or the opponent) tells us what the shot did
+				Protocol.shot(outFrame, selectedSpace);
+				send();
+				firedAt = System.nanoTime();
+				selectedSpace = -1;
+				oppView.setSelected(-1);
+				fireB.setEnabled(false);
+				fireB.setText("Reloading...");
+				radarB.setText("Scanning radar...");
 			} else {
 				// See if it is hit or miss
-				if (oppShips[selectedSpace] == 0) {
-					oppButtons[selectedSpace].setBackground(MISS);
-				} else {
-					oppButtons[selectedSpace].setBackground(HIT);
-				}
-				// Remove border and disable button
-				oppButtons[selectedSpace].setBorder(UIManager.getBorder("Button.border"));
-				oppButtons[selectedSpace].setEnabled(false);
-				// oppShips[selectedSpace] = 0;
-
-				int numSunk = checkSunkenShips();
+				int result = oppBoard.fire(selectedSpace);
+				journal.shot(journalId, selfSeat,
+						Bitboard.fleetRemaining(result) == 0 ? MatchJournal.GAME_OVER : MatchJournal.SHOT, selectedSpace,
+						result);
+				showShot(selectedSpace, result);
 
 				// If you sunk the final ship:
-				if (gameOver(numSunk)) {
-					try {
-						// Tell the opponent it's game over and where you finally shot
-						dout.write(GAME_OVER);
-						dout.write(selectedSpace);
+				if (gameOver(Bitboard.fleetRemaining(result))) {
+					// Tell the opponent it's game over and where you finally shot
+					Protocol.gameOver(outFrame, selectedSpace);
+					if (send()) {
+						roundOver = true;
 						selfWins++;
 						selfWinsLabel.setText(playerName + "'s Wins: " + selfWins);
 						playAgain(true); // check if playing again, "true" because this player won
-					} catch (IOException e2) {
-						e2.printStackTrace();
 					}
 				} else {
 					// Tell opponent where you hit
-					try {
-						dout.write(selectedSpace);
-					} catch (IOException e1) {
-						e1.printStackTrace();
-					}
+					Protocol.shot(outFrame, selectedSpace);
+					send();
+					firedAt = System.nanoTime();
 					selectedSpace = -1;
-					// Start reloading weapon and ready the radar
+					// Start reloading weapon and wait for the radar
 					fireB.setEnabled(false);
 					fireB.setText("Reloading...");
-
-					radarB.setEnabled(true);
-					radarB.setText("Scan Radar");
+					radarB.setText("Scanning radar...");
 				}
 			}
 		}
-		// Radar button, scans for opponent's move
-		if (e.getSource().equals(radarB)) {
-			// Wait for opponent to say their move
+		// Auto-place button, replaces the placed ships with a random valid fleet
+		if (e.getSource().equals(autoB) && phase == PLACING_SHIPS) {
+			event.phase = "auto-place";
 			try {
-				int oppMove = din.read();
-				// If they tell you you lost, ouch
-				if (oppMove == GAME_OVER) {
-					selfButtons[din.read()].setBackground(HIT);
-					radarB.setText("Our ship was hit!");
-					oppWins++;
-					oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
-					playAgain(false); // check if playing again, "false" because this player did not win
-				}
-				// Otherwise check if it was a hit or a miss, adjust backgrounds accordingly
-				else {
-					if (selfShips[oppMove] == 0) {
-						selfButtons[oppMove].setBackground(MISS);
-						radarB.setText("Missed! Phew");
-					} else {
-						selfButtons[oppMove].setBackground(HIT);
-						radarB.setText("Our ship was hit!");
-					}
-				}
-			} catch (IOException e1) {
-				e1.printStackTrace();
+				fleets.place(selfBoard);
+			} catch (IllegalStateException ex) {
+				JOptionPane.showMessageDialog(frame, "This fleet does not fit on the board.");
 			}
-			// After radar use, disable it and ready the weapon
-			radarB.setEnabled(false);
-
-			fireB.setEnabled(true);
-			fireB.setText("Fire!");
+			showFleetProblems();
+			selfView.repaint();
 		}
 		// Submit button (for after ship placement
 		if (e.getSource().equals(submitB)) {
+			event.phase = "submit";
 			if (shipsValid()) {
 				phase = BATTLING;
-				// Fill out selfShips array with the player's ships
-				for (int i = 0; i < selfButtons.length; i++) {
-					if (selfButtons[i].getBackground().equals(SHIP)) {
-						selfShips[i] = 1;
-					}
+				// Tell opponent you are ready and where your ships are (or only commit to
+				// them), then wait for them to say the same
+				Protocol.ready(outFrame);
+				if (committed) {
+					commitments.commit(selfBoard, selfSalt, selfCommitment);
+					Protocol.commit(outFrame, selfCommitment);
+				} else {
+					Protocol.board(outFrame, selfBoard);
 				}
-
-				try {
-					// Tell opponent you are ready, wait for them to say the same
-					dout.writeUTF("READY");
-					if (din.readUTF().equals("READY")) {
-						// Tell opponent where your ships are, get theirs, and fill out oppShips array
-						String msgout = "";
-						for (int i = 0; i < selfShips.length; i++) {
-							msgout += Integer.toString(selfShips[i]);
-						}
-						dout.writeUTF(msgout);
-						String[] msgin = din.readUTF().split("");
-						for (int i = 0; i < msgin.length; i++) {
-							oppShips[i] = Integer.parseInt(msgin[i]);
-						}
-
-						// Set up the new UI
-						oppPanel.setVisible(true);
-						submitB.setVisible(false);
-						fireB.setVisible(true);
-						radarB.setVisible(true);
-						oppName.setVisible(true);
-						// If you are the host, you start first with your weapon loaded. Client goes
-						// second with radar ready
-						if (isHost) {
-							radarB.setEnabled(false);
-							radarB.setText("Booting up radar...");
-							fireB.setEnabled(true);
-							fireB.setText("Fire!");
-						} else {
-							fireB.setText("Loading up weapon...");
-							fireB.setEnabled(false);
-							radarB.setEnabled(true);
-							radarB.setText("Scan Radar");
-						}
+				if (send()) {
+					selfReady = true;
+					if (committed) {
+						journal.commit(journalId, selfSeat, selfCommitment);
+					} else {
+						journal.board(journalId, selfSeat, selfBoard);
+					}
+					submitB.setEnabled(false);
+					submitB.setText("Waiting...");
+					autoB.setEnabled(false);
+					if (oppBoardReceived) {
+						startBattle();
 					}
-				} catch (IOException e1) {
-					e1.printStackTrace();
 				}
 			}
 		}
+		if (event.phase != null) {
+			event.commit();
+		}
 	}
 
-	// Checks if the selected spaces for ships is valid, meaning:
-	// 1) Contains 5 ships of lengths 2, 3, 3, 4, and 5
-	// 2) No ships are touching--even diagonally
-	public boolean shipsValid() {
-		// set up 2D array, reset valid ships
+	// A click on one of the grids
+	@Override
+	public void cellClicked(BoardView view, int cell) {
+		ActionPhaseEvent event = new ActionPhaseEvent();
+		event.begin();
+		event.cell = cell;
+		// If you clicked on the grid for your ships, change water to ship, or vice
+		// versa
+		if (view == selfView && phase == PLACING_SHIPS) {
+			event.phase = "place";
+			selfBoard.setShip(cell, !selfBoard.isShip(cell));
+			showFleetProblems();
+			selfView.repaintAround(cell);
+		}
+		// If you clicked on a space of your opponent's grid that has not been shot
+		if (view == oppView && !oppBoard.isHit(cell) && !oppBoard.isMiss(cell) && rules.salvo) {
+			event.phase = "select";
+			// Clicking a selected space unselects it, and a salvo has one shot for each
+			// of our ships afloat
+			if (oppView.isSelected(cell)) {
+				unselect(cell);
+			} else if (numSelected < rules.shotsPerTurn(selfBoard.fleetRemaining)) {
+				salvo[numSelected++] = cell;
+				oppView.setSelected(cell, true);
+			}
+		} else if (view == oppView && !oppBoard.isHit(cell) && !oppBoard.isMiss(cell)) {
+			event.phase = "select";
+			// Clicking the selected space again unselects it
+			selectedSpace = selectedSpace == cell ? -1 : cell;
+			oppView.setSelected(selectedSpace);
+		}
+		if (event.phase != null) {
+			event.commit();
+		}
+	}
 
-		shipsCopy = new int[10][10];
-		for (int i = 0; i < shipsCopy.length; i++) {
-			for (int j = 0; j < shipsCopy[0].length; j++) {
-				if (selfButtons[10 * i + j].getBackground().equals(SHIP)) {
-					shipsCopy[i][j] = 1;
+	// Handles one message from the opponent, on the event dispatch thread
+	@Override
+	public void frameReceived(ByteBuffer frame) {
+		switch (Protocol.type(frame)) {
+		case Protocol.READY:
+			// From an authoritative server, the opponent's board is in (and stays there)
+			if (authoritative) {
+				oppBoardReceived = true;
+				if (selfReady) {
+					startBattle();
 				}
-				System.out.print(shipsCopy[i][j]);
-			}
-		}
-		validShipLengths[0] = 5;
-		validShipLengths[1] = 4;
-		validShipLengths[2] = 3;
-		validShipLengths[3] = 3;
-		validShipLengths[4] = 2;
-
-		int shipLength = 0;
-		// loop through entire board horizontally
-		for (int i = 0; i < shipsCopy.length; i++) {
-			for (int j = 0; j < shipsCopy[0].length; j++) {
-				if (shipsCopy[i][j] == 1) {
-					shipLength = horizontal(i, j, shipsCopy);
-					if (shipLength > 1) {
-						if (checkSurrounding(shipLength, i, j, "horizontal")) {
-							if (!saveShipLength(shipLength)) {
-								return false;
-							}
-						} else {
-							JOptionPane.showMessageDialog(frame, "Those ships are not 6 feet apart. Invalid.");
-							return false;
-						}
-					}
+			}
+			break;
+		case Protocol.COMMIT:
+			// The opponent is ready, but keeps their ships to themselves for now
+			Protocol.commitHash(frame, oppCommitment);
+			journal.commit(journalId, 1 - selfSeat, oppCommitment);
+			oppBoardReceived = true;
+			if (selfReady) {
+				startBattle();
+			}
+			break;
+		case Protocol.RESULT:
+			// What our last shot did, from an authoritative server or a committed opponent
+			int cell = Protocol.cell(frame);
+			int result = Protocol.resultCode(frame);
+			if (Bitboard.outcome(result) == Bitboard.ALREADY_SHOT) {
+				fireB.setEnabled(true);
+				fireB.setText("Fire!");
+				break;
+			}
+			if (recordResult(cell, result, Protocol.resultShip(frame))) {
+				won();
+			}
+			break;
+		case Protocol.RESULTS:
+			// What each shot of our last salvo did
+			boolean sankFleet = false;
+			for (int i = 0; i < Protocol.resultsCount(frame) && !sankFleet; i++) {
+				sankFleet = recordResult(Protocol.resultsCell(frame, i), Protocol.resultsCode(frame, i),
+						Protocol.resultsShip(frame, i));
+			}
+			if (sankFleet) {
+				won();
+			}
+			break;
+		case Protocol.REVEAL:
+			// The round is over, check the opponent's board against their commitment
+			// and every result they gave us
+			Protocol.revealSalt(frame, oppSalt);
+			revealedBoard.clear();
+			if (!Protocol.revealShips(frame, revealedBoard)) {
+				cheated(BoardCommitment.describe(BoardCommitment.INVALID_FLEET));
+			}
+			journal.reveal(journalId, 1 - selfSeat, oppSalt, revealedBoard);
+			oppRevealed = true;
+			int verdict = commitments.verify(oppCommitment, oppSalt, revealedBoard, shotCells, shotResults, shotsTaken);
+			if (verdict != BoardCommitment.VERIFIED) {
+				cheated(BoardCommitment.describe(verdict));
+			}
+			break;
+		case Protocol.BOARD:
+			// Get the opponent's ships and fill out oppBoard
+			oppBoard.clear();
+			if (!Protocol.boardShips(frame, oppBoard)) {
+				cheated("their ships do not fit on the board");
+			}
+			journal.board(journalId, 1 - selfSeat, oppBoard);
+			oppBoardReceived = true;
+			if (selfReady) {
+				startBattle();
+			}
+			break;
+		case Protocol.SHOT:
+			shotAnswered();
+			// Check if it was a hit or a miss, adjust backgrounds accordingly
+			int oppMove = Protocol.cell(frame);
+			if (!selfBoard.inBounds(oppMove)) {
+				cheated("they fired off the board");
+			}
+			int oppResult = selfBoard.fire(oppMove);
+			boolean lost = gameOver(Bitboard.fleetRemaining(oppResult));
+			journal.shot(journalId, 1 - selfSeat, lost ? MatchJournal.GAME_OVER : MatchJournal.SHOT, oppMove,
+					oppResult);
+			selfView.repaintCell(oppMove);
+			if (Bitboard.outcome(oppResult) == Bitboard.MISS) {
+				radarB.setText("Missed! Phew");
+			} else {
+				radarB.setText("Our ship was hit!");
+			}
+			// A committed opponent cannot see our board, so tell them what they hit
+			if (committed) {
+				boolean sunk = Bitboard.outcome(oppResult) == Bitboard.SUNK;
+				Protocol.result(outFrame, oppMove, oppResult, sunk ? selfBoard.sunk : 0);
+				send();
+				if (lost) {
+					roundOver = true;
+					oppWins++;
+					oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
+					reveal();
+					playAgain(false);
+					break;
 				}
 			}
-		}
-		// loop through entire board vertically
-		for (int j = 0; j < shipsCopy[0].length; j++) {
-			for (int i = 0; i < shipsCopy.length; i++) {
-				if (shipsCopy[i][j] == 1) {
-					shipLength = vertical(i, j, shipsCopy);
-					if (shipLength > 1) {
-						if (checkSurrounding(shipLength, i, j, "vertical")) {
-							if (!saveShipLength(shipLength)) {
-								return false;
-							}
-						} else {
-							JOptionPane.showMessageDialog(frame, "Those ships are not 6 feet apart. Invalid.");
-							return false;
-						}
-					}
-					// check for lone one square ships
-					else {
-						JOptionPane.showMessageDialog(frame, "Invalid ship length: 1");
-						return false;
-					}
+			// Now ready the weapon
+			fireB.setEnabled(true);
+			fireB.setText("Fire!");
+			break;
+		case Protocol.SALVO:
+			shotAnswered();
+			// The opponent's whole turn: one shot for each of their ships afloat, at most
+			int count = Protocol.salvoCount(frame);
+			if (!authoritative && count > rules.shotsPerTurn(rules.fleet.length - oppBoard.numSunk)) {
+				cheated("they fired more shots than they have ships");
+			}
+			for (int i = 0; i < count; i++) {
+				if (!selfBoard.inBounds(Protocol.salvoCell(frame, i))) {
+					cheated("they fired off the board");
 				}
 			}
-		}
-		// check if all the lengths are met
-		for (int j = 0; j < validShipLengths.length; j++) {
-			if (validShipLengths[j] != 20) {
-				JOptionPane.showMessageDialog(frame, "Missing length " + validShipLengths[j]);
-				return false;
+			int hits = 0;
+			int received = 0;
+			boolean sunkAll = false;
+			while (received < count && !sunkAll) {
+				int salvoCell = Protocol.salvoCell(frame, received);
+				int salvoResult = selfBoard.fire(salvoCell);
+				sunkAll = gameOver(Bitboard.fleetRemaining(salvoResult));
+				if (Bitboard.outcome(salvoResult) != Bitboard.ALREADY_SHOT) {
+					journal.shot(journalId, 1 - selfSeat, sunkAll ? MatchJournal.GAME_OVER : MatchJournal.SHOT,
+							salvoCell, salvoResult);
+				}
+				if (Bitboard.outcome(salvoResult) == Bitboard.HIT || Bitboard.outcome(salvoResult) == Bitboard.SUNK) {
+					hits++;
+				}
+				salvoCells[received] = salvoCell;
+				salvoResults[received] = salvoResult;
+				salvoShips[received++] = Bitboard.outcome(salvoResult) == Bitboard.SUNK ? selfBoard.sunk : 0;
+				selfView.repaintCell(salvoCell);
 			}
+			radarB.setText(hits == 0 ? "Missed! Phew" : hits == 1 ? "Our ship was hit!" : hits + " of our ships were hit!");
+			// A committed opponent cannot see our board, so tell them what they hit
+			if (committed) {
+				Protocol.results(outFrame, salvoCells, salvoResults, salvoShips, received);
+				send();
+			}
+			if (sunkAll) {
+				roundOver = true;
+				oppWins++;
+				oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
+				if (committed) {
+					reveal();
+				}
+				playAgain(false);
+				break;
+			}
+			// Now ready the weapon
+			fireB.setEnabled(true);
+			fireB.setText("Fire!");
+			break;
+		case Protocol.GAME_OVER:
+			shotAnswered();
+			roundOver = true;
+			// If they tell you you lost, ouch
+			int lastMove = Protocol.cell(frame);
+			if (!selfBoard.inBounds(lastMove)) {
+				cheated("they fired off the board");
+			}
+			journal.shot(journalId, 1 - selfSeat, MatchJournal.GAME_OVER, lastMove, selfBoard.fire(lastMove));
+			selfView.repaintCell(lastMove);
+			radarB.setText("Our ship was hit!");
+			oppWins++;
+			oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
+			playAgain(false); // check if playing again, "false" because this player did not win
+			break;
+		case Protocol.REMATCH:
+			// A committed opponent reveals before answering
+			if (committed && !oppRevealed) {
+				cheated("they did not reveal their board");
+			}
+			oppRematch = Protocol.rematchAnswer(frame) ? JOptionPane.YES_OPTION : JOptionPane.NO_OPTION;
+			journal.rematch(journalId, 1 - selfSeat, oppRematch == JOptionPane.YES_OPTION);
+			if (selfRematch != NO_ANSWER) {
+				finishRematch();
+			}
+			break;
+		case Protocol.SESSION:
+			// Only a game server hands out sessions, and it records the result itself
+			sessionToken = Protocol.token(frame);
+			serverGame = true;
+			break;
+		default:
+			System.out.println("Unexpected message " + Protocol.type(frame));
 		}
-		JOptionPane.showMessageDialog(frame, "Ships are valid.");
-
-		return true;
 	}
 
-	// Returns the length of a ship going horizontally
-	public int horizontal(int row, int col, int[][] TempBoard) {
-		int shipLength = 0;
-
-		while (TempBoard[row][col] == SHIP_SQUARE) {
-			shipLength++;
-			TempBoard[row][col] = EMPTY_SQUARE;
-			col++;
-			if (col == 10) { // if you hit the edge, break before out of bounds exception
-				break;
+	@Override
+	public void connectionClosed(IOException cause) {
+		System.out.println(cause.getMessage());
+		// An opponent who already answered the rematch question may leave
+		if (oppRematch != NO_ANSWER) {
+			return;
+		}
+		// Through a game server, try to get back into the match
+		if (sessionToken != 0) {
+			if (!resuming) {
+				resuming = true;
+				new Thread(this::resume, "Battleship resume").start();
 			}
+			return;
 		}
+		journal.end(journalId);
+		JOptionPane.showMessageDialog(frame, "Lost the connection to your opponent. Goodbye!");
+		System.exit(0);
+	}
 
-		if (shipLength == 1) { // if it is length 1, replace the ship because it might be vertical
-			TempBoard[row][col - 1] = SHIP_SQUARE;
+	// Sends everything encoded in outFrame, returns false if the connection broke
+	public boolean send() {
+		try {
+			connection.send(outFrame);
+			return true;
+		} catch (IOException e) {
+			outFrame.clear();
+			connectionClosed(e);
+			return false;
 		}
-
-		return shipLength;
 	}
 
-	// Returns the length of a ship going horizontally
-	public int vertical(int row, int col, int[][] TempBoard) {
-		int shipLength = 0;
-
-		while (TempBoard[row][col] == SHIP_SQUARE) {
-			shipLength++;
-			TempBoard[row][col] = EMPTY_SQUARE;
-			row++;
-			if (row == 10) { // if you hit the edge, break before out of bounds exception
-				break;
+	// Reconnects to the game server with the session token, for up to
+	// RESUME_MILLIS. Runs on its own thread, so the window stays responsive.
+	public void resume() {
+		long deadline = System.currentTimeMillis() + RESUME_MILLIS;
+		long backoff = 50;
+		ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FRAME);
+		ByteBuffer snapshot = ByteBuffer.allocate(Protocol.MAX_FRAME);
+		ByteBuffer shotsFrame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+		while (System.currentTimeMillis() < deadline) {
+			PeerConnection resumed = null;
+			try {
+				Socket s = new Socket();
+				s.connect(new InetSocketAddress(hostName, portNumber), (int) RESUME_MILLIS);
+				resumed = new PeerConnection(s);
+				Protocol.resume(out, sessionToken);
+				resumed.send(out);
+				// A server that took the connection but never answers counts as a failed try
+				resumed.setReceiveTimeout(Timeouts.HANDSHAKE_MILLIS);
+				if (resumed.receive(snapshot) != Protocol.SNAPSHOT) {
+					throw new ProtocolException("Expected SNAPSHOT, got " + Protocol.type(snapshot));
+				}
+				int[][] shots = receiveShots(resumed, snapshot, shotsFrame);
+				resumed.setReceiveTimeout(0);
+				PeerConnection connected = resumed;
+				SwingUtilities.invokeLater(() -> resumed(connected, snapshot, shots));
+				return;
+			} catch (EOFException e) {
+				break; // the server no longer knows this match
+			} catch (IOException e) {
+				out.clear();
+				if (resumed != null) {
+					resumed.close();
+				}
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException e1) {
+					break;
+				}
+				backoff = Math.min(2 * backoff, 1000);
 			}
 		}
-		return shipLength;
+		SwingUtilities.invokeLater(() -> {
+			resuming = false;
+			sessionToken = 0;
+			connectionClosed(new IOException("Could not resume the match"));
+		});
 	}
 
-	// Saves a length of ship by replacing it from the validShipLengths array
-	public boolean saveShipLength(int shipLength) {
-		for (int i = 0; i < validShipLengths.length; i++) {
-			if (validShipLengths[i] == shipLength) {
-				validShipLengths[i] = 20;
-				return true;
+	// Reads the SHOTS frames that follow a snapshot, into one array of cells for
+	// each list it counts
+	private int[][] receiveShots(PeerConnection resumed, ByteBuffer snapshot, ByteBuffer frame) throws IOException {
+		int[][] shots = new int[4][];
+		int[] filled = new int[4];
+		int missing = 0;
+		for (int list = 0; list < 4; list++) {
+			int count = Protocol.snapshotShots(snapshot, list);
+			if (count < 0 || count > rules.cells) {
+				throw new ProtocolException("Bad SNAPSHOT: " + count + " shots");
 			}
+			shots[list] = new int[count];
+			missing += count;
 		}
-		JOptionPane.showMessageDialog(frame, "Invalid ship length: " + shipLength);
-		return false;
-	}
-
-	// Checks all the spaces around a ship and returns true if nothing is around it
-	// (good)
-	public boolean checkSurrounding(int shipLength, int row, int col, String direction) {
-		if (direction.equals("vertical")) { // vertical
-			// above
-			if ((row > 0) && ((col > 0 && shipsCopy[row - 1][col - 1] == 1)
-					|| (col < 9 && shipsCopy[row - 1][col + 1] == 1))) {
-				return false;
-			}
-			// left and right
-			for (int i = 0; i < shipLength; i++) {
-				if ((col > 0 && shipsCopy[row + i][col - 1] == 1) || (col < 9 && shipsCopy[row + i][col + 1] == 1)) {
-					return false;
-				}
+		while (missing > 0) {
+			if (resumed.receive(frame) != Protocol.SHOTS) {
+				throw new ProtocolException("Expected SHOTS, got " + Protocol.type(frame));
 			}
-			// below
-			if ((row + shipLength < 10) && ((col > 0 && shipsCopy[row + shipLength][col - 1] == 1)
-					|| (col < 9 && shipsCopy[row + shipLength][col + 1] == 1))) {
-				return false;
-			}
-		} else { // horizontal
-					// left
-			if ((col > 0) && ((row > 0 && shipsCopy[row - 1][col - 1] == 1)
-					|| (row < 9 && shipsCopy[row + 1][col - 1] == 1))) {
-				return false;
-			}
-			// above and below
-			for (int i = 0; i < shipLength; i++) {
-				if ((row > 0 && shipsCopy[row - 1][col + i] == 1) || (row < 9 && shipsCopy[row + 1][col + i] == 1)) {
-					return false;
-				}
+			int list = Protocol.shotsList(frame);
+			int count = Protocol.shotsCount(frame);
+			if (list >= 4 || filled[list] + count > shots[list].length) {
+				throw new ProtocolException("Bad SHOTS: list " + list + ", " + count + " cells");
 			}
-			// right
-			if ((col + shipLength < 10) && ((row > 0 && shipsCopy[row - 1][col + shipLength] == 1)
-					|| (row < 9 && shipsCopy[row + 1][col + shipLength] == 1))) {
-				return false;
+			for (int i = 0; i < count; i++) {
+				int cell = Protocol.shotsCell(frame, i);
+				if (cell < 0 || cell >= rules.cells) {
+					throw new ProtocolException("Bad SHOTS: cell " + cell);
+				}
+				shots[list][filled[list]++] = cell;
 			}
+			missing -= count;
 		}
-		return true;
+		return shots;
 	}
 
-	// Checks to see if a ship was sunk, and if so, places misses all around it
-	public int checkSunkenShips() {
-		int vertLength = 0;
-		int horizLength = 0;
-		int tempShips[][] = new int[10][10];
-		int i = 0;
-		int j = 0;
-		int k = 0;
-		int numHits = 0;
-		int numSunk = 0;
-		// Create tempShips 2D array
-		for (i = 0; i < 10; i++) {
-			for (j = 0; j < 10; j++) {
-				tempShips[i][j] = oppShips[(10 * i) + j];
-			}
-
-		}
-
-		// check for a fully sunken ship
-		for (i = 0; i < 10; i++) { // Rows
-			for (j = 0; j < 10; j++) { // Columns
-
-				numHits = 0;
-
-				if (oppShips[(10 * i) + j] == SHIP_SQUARE) {
-					horizLength = horizontal(i, j, tempShips); // Call with 2D representation of oppShips
-					vertLength = vertical(i, j, tempShips);
-					if (horizLength > vertLength) { // found horiz ship!
-						for (k = j; k < horizLength + j; k++) {
-							if (oppButtons[(10 * i) + k].getBackground().equals(HIT)) {
-								numHits++;
-							}
-						}
-
-						if (numHits == horizLength && numHits > 0) { // found complete sunken ship
-							numSunk++;
-							addMisses(i, j, HORIZ, horizLength, tempShips);
-
-						}
-					} else if (vertLength > horizLength) { // found vert ship!
-						for (k = i; k < vertLength + i; k++) {
-							if (oppButtons[(10 * k) + j].getBackground().equals(HIT)) {
-								numHits++;
-							}
-						}
-						if (numHits == vertLength && numHits > 0) { // found complete sunken ship
-							numSunk++;
-							addMisses(i, j, VERT, vertLength, tempShips);
-
-						}
-					} else if (vertLength == 0 && horizLength == 0) {
-						// empty spot, not a ship
-					} else {
-						System.out.println("Unexpected ship found. i = " + i + " j= " + j + "horizLength = "
-								+ horizLength + " vertLength = " + vertLength); // error
-					}
+	// Back in the match: catch up from the snapshot and its shots, then carry on as
+	// before
+	public void resumed(PeerConnection resumedConnection, ByteBuffer snapshot, int[][] shots) {
+		connection = resumedConnection;
+		resuming = false;
+		System.out.println("Resumed the match");
+		int flags = Protocol.snapshotFlags(snapshot);
+
+		// Both said yes to a rematch, but the opponent's answer was lost
+		if (roundOver && (flags & Protocol.SNAP_ROUND_OVER) == 0 && selfRematch == JOptionPane.YES_OPTION) {
+			oppRematch = JOptionPane.YES_OPTION;
+			finishRematch();
+		}
 
-				}
+		// Our board, and the shots taken at it
+		if ((flags & Protocol.SNAP_SELF_BOARD) != 0) {
+			selfBoard.clear();
+			Protocol.snapshotShips(snapshot, true, selfBoard);
+			restore(selfBoard, shots[Protocol.SNAP_SELF_HITS], shots[Protocol.SNAP_SELF_MISSES]);
+			selfBoard.recount();
+			selfView.repaint();
+		} else if (selfReady) {
+			// The server never got our board, send it again
+			Protocol.ready(outFrame);
+			Protocol.board(outFrame, selfBoard);
+			send();
+		}
+		// The opponent's board (unless the server keeps it secret), and our shots at it
+		oppBoardReceived = (flags & Protocol.SNAP_OPP_BOARD) != 0;
+		if (oppBoardReceived) {
+			oppBoard.clear();
+			restore(oppBoard, shots[Protocol.SNAP_OPP_HITS], shots[Protocol.SNAP_OPP_MISSES]);
+			if (!authoritative) {
+				Protocol.snapshotShips(snapshot, false, oppBoard);
+				oppBoard.recount();
 			}
+			oppView.repaint();
+		}
+		// Whose turn it is
+		if (selfReady && oppBoardReceived && (flags & Protocol.SNAP_ROUND_OVER) == 0) {
+			startBattle();
+			boolean yourTurn = (flags & Protocol.SNAP_YOUR_TURN) != 0;
+			fireB.setEnabled(yourTurn);
+			fireB.setText(yourTurn ? "Fire!" : "Reloading...");
+			radarB.setText(yourTurn ? "Back online!" : "Scanning radar...");
 		}
-		return numSunk;
-	}
 
-	public void addMisses(int i, int j, int direction, int length, int[][] tempShips) {
-		if (direction == VERT) {
-			if (i > 0) {
-				if (j > 0) {
-					oppButtons[(10 * (i - 1) + (j - 1))].setBackground(MISS);
-					// set miss (i-1,j-1)
-				}
-				oppButtons[(10 * (i - 1) + j)].setBackground(MISS);
-				// set miss(i-1,j)
-				if (j < 9) {
-					oppButtons[(10 * (i - 1) + (j + 1))].setBackground(MISS);
-					// setMiss(i-1, j+1)
-				}
-			}
-			// left and right
-			for (int k = 0; k < length; k++) {
-				if (j > 0) {
-					oppButtons[(10 * (i + k) + (j - 1))].setBackground(MISS);
-					// setMiss(i+k, j-1)
-				}
-				if (j < 9) {
-					oppButtons[10 * (i + k) + (j + 1)].setBackground(MISS);
-					// setMiss(i+k,j+1)
-				}
-			}
-			// below
-			if (i + length < 10) {
-				if (j > 0) {
-					oppButtons[(10 * (i + length) + (j - 1))].setBackground(MISS);
-					// setMiss(i+vertLength, j-1)
+		// The round ended while we were away
+		if ((flags & Protocol.SNAP_OPP_REMATCH) != 0 && oppRematch == NO_ANSWER) {
+			oppRematch = (flags & Protocol.SNAP_OPP_PLAY_AGAIN) != 0 ? JOptionPane.YES_OPTION : JOptionPane.NO_OPTION;
+		}
+		connection.start(this, SwingUtilities::invokeLater);
+		if ((flags & Protocol.SNAP_ROUND_OVER) != 0) {
+			if (!roundOver && authoritative && selfBoard.fleetRemaining != 0) {
+				// The RESULT of our final shot was lost, so we won
+				roundOver = true;
+				selfWins++;
+				selfWinsLabel.setText(playerName + "'s Wins: " + selfWins);
+				playAgain(true);
+			} else if (!roundOver) {
+				// The final shot was lost, so we lost
+				roundOver = true;
+				oppWins++;
+				oppWinsLabel.setText(opponentName + "'s Wins: " + oppWins);
+				playAgain(false);
+			} else if (selfRematch != NO_ANSWER) {
+				if ((flags & Protocol.SNAP_SELF_REMATCH) == 0) {
+					Protocol.rematch(outFrame, selfRematch == JOptionPane.YES_OPTION);
+					send();
 				}
-				oppButtons[(10 * (i + length) + j)].setBackground(MISS);
-				// setMiss(i+length, j)
-				if (j < 9) {
-					oppButtons[(10 * (i + length) + (j + 1))].setBackground(MISS);
-					// setMiss(i+vertLength, j+1)
+				if (oppRematch != NO_ANSWER) {
+					finishRematch();
 				}
 			}
-		} else {// horizontal
-				// left
-			if (j > 0) {
-				if (i > 0) {
-					oppButtons[(10 * (i - 1) + (j - 1))].setBackground(MISS);
-					// setMiss(i-1,j-1)
-				}
-				oppButtons[(10 * i) + (j - 1)].setBackground(MISS);
-				// setMiss(i,j-1)
-				if (i < 9) {
-					oppButtons[(10 * (i + 1) + (j - 1))].setBackground(MISS);
-					// setMiss(i+1,j-1)
-				}
+		}
+	}
+
+	// Marks the hits and misses a snapshot listed for a board
+	private void restore(Bitboard board, int[] hits, int[] misses) {
+		for (int cell : hits) {
+			board.restoreShot(cell, true);
+		}
+		for (int cell : misses) {
+			board.restoreShot(cell, false);
+		}
+	}
+
+	// Both boards are in, set up the UI for battle
+	public void startBattle() {
+		oppView.setVisible(true);
+		submitB.setVisible(false);
+		autoB.setVisible(false);
+		fireB.setVisible(true);
+		radarB.setVisible(true);
+		oppName.setVisible(true);
+		fleetLabel.setVisible(false);
+		// If you move first (the host does), you start with your weapon loaded. The
+		// other player goes second and waits for the radar
+		if (movesFirst) {
+			radarB.setText("Booting up radar...");
+			fireB.setEnabled(true);
+			fireB.setText("Fire!");
+		} else {
+			fireB.setText("Loading up weapon...");
+			fireB.setEnabled(false);
+			radarB.setText("Scanning radar...");
+		}
+	}
+
+	// Checks if the selected spaces for ships is valid, meaning:
+	// 1) Contains exactly the ships of the rules' fleet
+	// 2) No ships are touching--even diagonally
+	public boolean shipsValid() {
+		// The placed ships are already in selfBoard, let it check the rules (and
+		// label the ships for battle)
+		long start = System.nanoTime();
+		int validity = selfBoard.validate();
+		Metrics.VALIDATION.record(System.nanoTime() - start);
+		fleetLabel.setText(fleetProblems());
+		if (validity == Bitboard.TOUCHING) {
+			JOptionPane.showMessageDialog(frame, "Those ships are not 6 feet apart. Invalid.\n" + fleetProblems());
+			return false;
+		}
+		if (validity != Bitboard.VALID) {
+			JOptionPane.showMessageDialog(frame, "Invalid ships. " + fleetProblems());
+			return false;
+		}
+		JOptionPane.showMessageDialog(frame, "Ships are valid.");
+		return true;
+	}
+
+	// Checks the ships again after every change while they are being placed, and
+	// lists everything still wrong below the grid
+	public void showFleetProblems() {
+		long start = System.nanoTime();
+		selfBoard.validate();
+		Metrics.VALIDATION.record(System.nanoTime() - start);
+		fleetLabel.setText(fleetProblems());
+	}
+
+	// Every problem the last validate() found, like "Missing 4, 3x2. Too many 1.
+	// 6 cells touching.", or "" for none
+	private String fleetProblems() {
+		StringBuilder text = new StringBuilder();
+		String separator = "Missing ";
+		for (int length : rules.lengths) {
+			int missing = selfBoard.missing(length);
+			if (missing > 0) {
+				text.append(separator).append(length).append(missing > 1 ? "x" + missing : "");
+				separator = ", ";
 			}
-			// above and below
-			for (int k = 0; k < length; k++) {
-				if (i > 0) {
-					oppButtons[(10 * (i - 1) + (j + k))].setBackground(MISS);
-					// setMiss(i - 1, j + k);
-				}
-				if (i < 9) {
-					oppButtons[(10 * (i + 1) + (j + k))].setBackground(MISS);
-					// setMiss(i + 1, j + k);
-				}
+		}
+		text.append(separator.equals(", ") ? ". " : "");
+		separator = "Too many ";
+		for (int length = 1; length < selfBoard.shipCounts.length; length++) {
+			int extra = selfBoard.extra(length);
+			if (extra > 0) {
+				text.append(separator).append(length).append(extra > 1 ? "x" + extra : "");
+				separator = ", ";
 			}
-			// right
-			if (j + length < 10) {
-				if (i > 0) {
+		}
+		text.append(separator.equals(", ") ? ". " : "");
+		if (selfBoard.numTouching > 0) {
+			text.append(selfBoard.numTouching).append(" cells touching.");
+		}
+		return text.toString().trim();
+	}
 
-					oppButtons[(10 * (i - 1) + (j + length))].setBackground(MISS);
-					// setMiss(i-1, j+horizLength);
-				}
-				oppButtons[(10 * i) + (j + length)].setBackground(MISS);
-				// setMiss(i, j+horizLength);
-				if (i < 9) {
-					oppButtons[(10 * (i + 1) + (j + length))].setBackground(MISS);
-					// setMiss(i+1, j+horizLength);
-				}
-			}
+	// The opponent's move reached the radar, so our last shot has been answered
+	public void shotAnswered() {
+		if (firedAt != 0) {
+			Metrics.SHOT_ROUND_TRIP.record(System.nanoTime() - firedAt);
+			firedAt = 0;
 		}
 	}
 
-	public int findStart(int i, int j, int direction, int length, int[][] tempShips) {
-		int startLocation = 0;
-		if (direction == HORIZ) {
-			while (tempShips[i][j] == SHIP_SQUARE) {
-				j--;
-				if (j < 0) { // don't go out of bounds
-					break;
+	// Shows what our shot at cell did on the opponent's grid, surrounding the ship
+	// with misses if it sunk
+	public void showShot(int cell, int result) {
+		oppView.repaintCell(cell);
+		if (Bitboard.outcome(result) == Bitboard.SUNK) {
+			addMisses();
+		}
+		// Remove the selection, the cell cannot be shot again
+		if (rules.salvo) {
+			unselect(cell);
+			return;
+		}
+		if (selectedSpace == cell) {
+			selectedSpace = -1;
+		}
+		oppView.setSelected(selectedSpace);
+	}
+
+	// Fires the selected salvo, at most one shot for each of our ships afloat
+	public void fireSalvo() {
+		int count = Math.min(numSelected, rules.shotsPerTurn(selfBoard.fleetRemaining));
+		if (count == 0) {
+			JOptionPane.showMessageDialog(frame, "No space selected!");
+			return;
+		}
+		int fired = count;
+		boolean sankFleet = false;
+		if (!authoritative && !committed) {
+			// We know their board, so see what each shot does
+			fired = 0;
+			while (fired < count && !sankFleet) {
+				int result = oppBoard.fire(salvo[fired]);
+				sankFleet = gameOver(Bitboard.fleetRemaining(result));
+				journal.shot(journalId, selfSeat, sankFleet ? MatchJournal.GAME_OVER : MatchJournal.SHOT, salvo[fired],
+						result);
+				oppView.repaintCell(salvo[fired++]);
+				if (Bitboard.outcome(result) == Bitboard.SUNK) {
+					addMisses();
 				}
 			}
-			startLocation = j; // Returns left-most 2D column
-		} else if (direction == VERT) {
-			while (tempShips[i][j] == SHIP_SQUARE) {
-				i--;
-				if (i < 0) { // don't go out of bounds
-					break;
-				}
+		}
+		// The opponent (or the server) sees the whole turn at once
+		Protocol.salvo(outFrame, salvo, fired);
+		if (!send()) {
+			return;
+		}
+		numSelected = 0;
+		oppView.clearSelection();
+		if (sankFleet) {
+			roundOver = true;
+			selfWins++;
+			selfWinsLabel.setText(playerName + "'s Wins: " + selfWins);
+			playAgain(true);
+			return;
+		}
+		firedAt = System.nanoTime();
+		fireB.setEnabled(false);
+		fireB.setText("Reloading...");
+		radarB.setText("Scanning radar...");
+	}
+
+	// Removes a space from the salvo being picked
+	public void unselect(int cell) {
+		for (int i = 0; i < numSelected; i++) {
+			if (salvo[i] == cell) {
+				salvo[i] = salvo[--numSelected];
+				break;
 			}
-			startLocation = i; // Returns top-most 2D row
 		}
-		return startLocation;
+		oppView.setSelected(cell, false);
+	}
+
+	// Records what our shot at cell did, as the server or a committed opponent told
+	// us, and returns true if it sank their last ship
+	public boolean recordResult(int cell, int result, long ship) {
+		if (Bitboard.outcome(result) == Bitboard.ALREADY_SHOT) {
+			return false;
+		}
+		if (!oppBoard.inBounds(cell)) {
+			cheated("they reported a shot off the board");
+		}
+		oppBoard.recordShot(cell, result, ship);
+		journal.shot(journalId, selfSeat,
+				Bitboard.fleetRemaining(result) == 0 ? MatchJournal.GAME_OVER : MatchJournal.SHOT, cell, result);
+		if (shotsTaken == shotCells.length) {
+			shotCells = Arrays.copyOf(shotCells, 2 * shotsTaken);
+			shotResults = Arrays.copyOf(shotResults, 2 * shotsTaken);
+		}
+		shotCells[shotsTaken] = cell;
+		shotResults[shotsTaken++] = result;
+		showShot(cell, result);
+		return gameOver(Bitboard.fleetRemaining(result));
+	}
+
+	// The server or a committed opponent says we sank their last ship
+	public void won() {
+		shotAnswered();
+		roundOver = true;
+		selfWins++;
+		selfWinsLabel.setText(playerName + "'s Wins: " + selfWins);
+		if (committed) {
+			reveal();
+		}
+		playAgain(true);
+	}
+
+	// The round is over, so show the opponent the board we committed to
+	public void reveal() {
+		Protocol.reveal(outFrame, selfSalt, selfBoard);
+		journal.reveal(journalId, selfSeat, selfSalt, selfBoard);
+		send();
+	}
+
+	// The opponent's reveal does not add up, so the match cannot go on
+	public void cheated(String reason) {
+		journal.end(journalId);
+		JOptionPane.showMessageDialog(frame, "Your opponent cheated: " + reason + ". Goodbye!");
+		System.exit(0);
+	}
 
+	// Shows the misses all around the ship that oppBoard most recently reported
+	// sunk
+	public void addMisses() {
+		oppView.repaintCells(oppBoard.halo, oppBoard.haloCount);
 	}
 
 	// Checks if someone has won
-	public boolean gameOver(int numSunk) {
-		if (numSunk == 5) {
+	public boolean gameOver(int fleetRemaining) {
+		if (fleetRemaining == 0) {
 			System.out.println("Game is over!");
 			return true;
 		}
@@ -781,61 +1122,95 @@ public class Battleship implements ActionListener {
 
 	// Reset the game for another round
 	public void resetGame() {
-		// Reset the boards visually (enable all buttons and change color to water)
-		for (int i = 0; i < oppButtons.length; i++) {
-			oppButtons[i].setEnabled(true);
-			oppButtons[i].setBackground(WATER);
-			selfButtons[i].setEnabled(true);
-			selfButtons[i].setBackground(WATER);
-		}
 		// Return to placing ships phase
 		phase = PLACING_SHIPS;
-		oppPanel.setVisible(false);
+		oppView.setVisible(false);
 		submitB.setVisible(true);
+		submitB.setEnabled(true);
+		submitB.setText("Ready");
+		autoB.setVisible(true);
+		autoB.setEnabled(true);
 		fireB.setVisible(false);
 		radarB.setVisible(false);
 		oppName.setVisible(false);
 
-		// Reset the arrays that stored self and opponent's ships
-		selfShips = new int[100];
-		oppShips = new int[100];
+		// Reset the boards that stored self and opponent's ships
+		selfBoard.clear();
+		oppBoard.clear();
+		fleetLabel.setVisible(true);
+		showFleetProblems();
 		selectedSpace = -1;
+		numSelected = 0;
+		// Show the emptied boards (all water)
+		oppView.clearSelection();
+		selfView.repaint();
+		oppView.repaint();
+		selfReady = false;
+		oppBoardReceived = false;
+		selfRematch = NO_ANSWER;
+		oppRematch = NO_ANSWER;
+		roundOver = false;
+		oppRevealed = false;
+		shotsTaken = 0;
 	}
 
 	// Checks to see if the players want to play again
 	public void playAgain(boolean isWinner) {
-		try {
-			int playAgain;
-			// Tell if they won or lost, ask to play again
-			if (isWinner) {
-				playAgain = JOptionPane.showOptionDialog(frame, "You win! Play again?", "", JOptionPane.YES_NO_OPTION,
-						JOptionPane.QUESTION_MESSAGE, null, null, null);
+		Metrics.CLIENT_GAMES.gameCompleted();
+		if (!serverGame) {
+			stats.gameOver(isWinner ? playerName : opponentName, isWinner ? opponentName : playerName);
+		}
+		String record = "Your rating is now " + stats.rating(playerName, Protocol.UNRATED) + " ("
+				+ stats.wins(playerName) + "-" + stats.losses(playerName) + ").";
+		// Tell if they won or lost, ask to play again
+		if (isWinner) {
+			selfRematch = JOptionPane.showOptionDialog(frame, "You win! " + record + "\nPlay again?", "",
+					JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, null, null);
+		} else {
+			selfRematch = JOptionPane.showOptionDialog(frame, "You lose! " + record + "\nPlay again?", "",
+					JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, null, null);
+		}
+		Protocol.rematch(outFrame, selfRematch == JOptionPane.YES_OPTION);
+		journal.rematch(journalId, selfSeat, selfRematch == JOptionPane.YES_OPTION);
+		rematchAt = System.nanoTime();
+		// Wait for the opponent's answer unless it already came in
+		if (send() && oppRematch != NO_ANSWER) {
+			finishRematch();
+		}
+	}
+
+	// Both answers are in, so reset or quit
+	public void finishRematch() {
+		Metrics.REMATCH.record(System.nanoTime() - rematchAt);
+		if (selfRematch != JOptionPane.YES_OPTION || oppRematch != JOptionPane.YES_OPTION) {
+			journal.end(journalId);
+		}
+		// If playing again, check what opponent said
+		if (selfRematch == JOptionPane.YES_OPTION) {
+			if (oppRematch == JOptionPane.YES_OPTION) {
+				resetGame();
 			} else {
-				playAgain = JOptionPane.showOptionDialog(frame, "You lose! Play again?", "", JOptionPane.YES_NO_OPTION,
-						JOptionPane.QUESTION_MESSAGE, null, null, null);
-			}
-			dout.write(playAgain);
-			// If playing again, check what opponent said
-			if (playAgain == JOptionPane.YES_OPTION) {
-				if (din.read() == JOptionPane.YES_OPTION) {
-					resetGame();
-				} else {
-					JOptionPane.showMessageDialog(frame,
-							"Unfortunately, your opponent is lame and\ndoes not want to play again. Goodbye!");
-					System.exit(0);
-				}
-			}
-			// If not playing again, check what opponent said and always exit
-			else {
-				if (din.read() == JOptionPane.NO_OPTION) {
-					JOptionPane.showMessageDialog(frame, "Looks like you both don't want to play. Goodbye!");
-				} else {
-					JOptionPane.showMessageDialog(frame, "I'll let your opponent know that you are lame. Goodbye!");
-				}
+				JOptionPane.showMessageDialog(frame,
+						"Unfortunately, your opponent is lame and\ndoes not want to play again. Goodbye!");
 				System.exit(0);
 			}
-		} catch (IOException e1) {
-			e1.printStackTrace();
+		}
+		// If not playing again, check what opponent said and always exit
+		else {
+			if (oppRematch == JOptionPane.NO_OPTION) {
+				JOptionPane.showMessageDialog(frame, "Looks like you both don't want to play. Goodbye!");
+			} else {
+				JOptionPane.showMessageDialog(frame, "I'll let your opponent know that you are lame. Goodbye!");
+			}
+			System.exit(0);
+		}
+	}
+
+	// Reads the next message from the opponent into inFrame, which must be of the
+	// given type. Only used for the name exchange, before the reader starts.
+	public void receive(int type) throws IOException {
+		if (connection.receive(inFrame) != type) {
+			throw new ProtocolException("Expected message " + type + ", got " + Protocol.type(inFrame));
 		}
 	}
 
@@ -0,0 +1,551 @@
+import java.util.Arrays;
+
+/*
+ * Description
+ * -----------
+ * This class holds one player's board with no
+ * Swing dependency, for any Rules. Ships, hits
+ * and misses are bitsets packed 64 cells to a
+ * long (cell c is bit c % 64 of word c / 64),
+ * so even a 1000x1000 board is three arrays of
+ * 15625 words. Ships are labelled once when
+ * the board is set: each ship's first cell,
+ * length and direction are recorded, and its
+ * cells go into a small hash table, so finding
+ * the ship a shot hit never touches the rest of
+ * the board. Each shot only decrements its
+ * ship's remaining-hit counter, and the misses
+ * around a sunken ship come from its first cell
+ * and length. Labelling and validating are one
+ * pass over the ship bitset, a word at a time,
+ * so they take time in the ship cells (plus one
+ * read per 64 cells), not the whole grid, and
+ * find every problem at once: the cells that
+ * touch another ship, and how many ships of
+ * each length are missing or extra. Nothing is
+ * allocated, so it can run on every click
+ * while ships are being placed.
+ *
+ * A ship is also passed around packed into one
+ * long (see pack()): its first cell, its length
+ * and whether it runs down instead of right.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Bitboard {
+
+	// Results of validate()
+	static final int VALID = 0;
+	static final int TOUCHING = 1;
+	static final int BAD_LENGTH = 2;
+	static final int MISSING_LENGTH = 3;
+
+	// Outcomes of fire(). The returned int also packs the ship that was hit and
+	// how many ships are left afloat, see outcome(), shipOf() and fleetRemaining()
+	static final int MISS = 0;
+	static final int HIT = 1;
+	static final int SUNK = 2;
+	static final int ALREADY_SHOT = 3;
+	static final int NO_SHIP = -1;
+
+	// Packed ships: length in the low 15 bits, then the direction, then the first cell
+	static final long VERTICAL = 1 << 15;
+	static final int LENGTH_MASK = 0x7FFF;
+
+	final Rules rules;
+	final int width;
+	final int height;
+	final int cells;
+
+	final long[] ships;
+	final long[] hits;
+	final long[] misses;
+
+	// The most recently sunk ship (packed), and the misses that were added around it
+	long sunk;
+	final int[] halo;
+	int haloCount = 0;
+	int numSunk = 0;
+
+	// Ship identities, assigned once by labelShips()
+	int[] starts = new int[16];
+	int[] lengths = new int[16];
+	int[] steps = new int[16]; // 1 for a ship running right, width for one running down
+	int[] remaining = new int[16];
+	int numShips = 0;
+	int fleetRemaining = 0;
+	// Which ship is at each ship cell, by open addressing: slotCells holds the cell
+	// (-1 for an empty slot) and slotShips its ship
+	private int[] slotCells = new int[16];
+	private int[] slotShips = new int[16];
+
+	// What the last labelShips() or validate() found: the ship cells with another
+	// ship cell diagonally next to them, and how many ships there are of each length
+	final long[] touching;
+	int numTouching = 0;
+	final int[] shipCounts;
+	// How many ships of each length the rules want
+	private final int[] fleetCounts;
+
+	// Extra detail for BAD_LENGTH and MISSING_LENGTH: the first length that is
+	// extra or missing
+	int badLength = 0;
+
+	public Bitboard() {
+		this(Rules.CLASSIC);
+	}
+
+	public Bitboard(Rules rules) {
+		this.rules = rules;
+		width = rules.width;
+		height = rules.height;
+		cells = rules.cells;
+		int words = (cells + 63) >>> 6;
+		ships = new long[words];
+		hits = new long[words];
+		misses = new long[words];
+		touching = new long[words];
+		halo = new int[2 * Math.max(width, height) + 6];
+		shipCounts = new int[Math.max(width, height) + 1];
+		fleetCounts = new int[shipCounts.length];
+		for (int length : rules.fleet) {
+			fleetCounts[length]++;
+		}
+		Arrays.fill(slotCells, -1);
+	}
+
+	// Packs a ship into one long
+	static long pack(int start, int length, boolean vertical) {
+		return (long) start << 16 | (vertical ? VERTICAL : 0) | length;
+	}
+
+	static int shipStart(long ship) {
+		return (int) (ship >>> 16);
+	}
+
+	static int shipLength(long ship) {
+		return (int) (ship & LENGTH_MASK);
+	}
+
+	static boolean shipVertical(long ship) {
+		return (ship & VERTICAL) != 0;
+	}
+
+	// Returns true if cell is set in the bitset
+	static boolean test(long[] bits, int cell) {
+		return (bits[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	static void set(long[] bits, int cell) {
+		bits[cell >>> 6] |= 1L << cell;
+	}
+
+	// Returns true if any cell from first to last (inclusive) is set, a word at a time
+	static boolean any(long[] bits, int first, int last) {
+		int word = first >>> 6;
+		int lastWord = last >>> 6;
+		long mask = -1L << first;
+		while (word < lastWord) {
+			if ((bits[word] & mask) != 0) {
+				return true;
+			}
+			mask = -1L;
+			word++;
+		}
+		return (bits[word] & mask & (-1L >>> (63 - (last & 63)))) != 0;
+	}
+
+	public boolean inBounds(int cell) {
+		return cell >= 0 && cell < cells;
+	}
+
+	public boolean isShip(int cell) {
+		return test(ships, cell);
+	}
+
+	public boolean isHit(int cell) {
+		return test(hits, cell);
+	}
+
+	public boolean isMiss(int cell) {
+		return test(misses, cell);
+	}
+
+	public void setShip(int cell, boolean ship) {
+		if (ship) {
+			ships[cell >>> 6] |= 1L << cell;
+		} else {
+			ships[cell >>> 6] &= ~(1L << cell);
+		}
+	}
+
+	// Sets the cells of one ship. Returns false (and sets nothing) if it does not
+	// fit on the board.
+	public boolean placeShip(int start, int length, boolean vertical) {
+		if (start < 0 || start >= cells || length < 1) {
+			return false;
+		}
+		int row = start / width;
+		int col = start % width;
+		if ((vertical ? row : col) + length > (vertical ? height : width)) {
+			return false;
+		}
+		int step = vertical ? width : 1;
+		for (int i = 0, cell = start; i < length; i++, cell += step) {
+			set(ships, cell);
+		}
+		return true;
+	}
+
+	public boolean placeShip(long ship) {
+		return placeShip(shipStart(ship), shipLength(ship), shipVertical(ship));
+	}
+
+	// Puts the first count packed ships on a clear board and labels them. Returns
+	// false if one does not fit on the board.
+	public boolean placeShips(long[] ships, int count) {
+		for (int i = 0; i < count; i++) {
+			if (!placeShip(ships[i])) {
+				return false;
+			}
+		}
+		labelShips();
+		return true;
+	}
+
+	// The ship labelShips() gave this id, packed
+	public long ship(int id) {
+		// On a board one cell wide, ships can only run down, with a step of 1
+		return pack(starts[id], lengths[id], steps[id] == width);
+	}
+
+	// Gives every ship an id, and records its first cell, length and direction.
+	// The same pass finds the touching cells and counts the ship lengths for
+	// validate(). Must be called after the last setShip() and before the first
+	// fire().
+	public void labelShips() {
+		int shipCells = 0;
+		for (long word : ships) {
+			shipCells += Long.bitCount(word);
+		}
+		int capacity = Integer.highestOneBit(Math.max(8, shipCells) * 2 - 1) << 1;
+		if (capacity > slotCells.length) {
+			slotCells = new int[capacity];
+			slotShips = new int[capacity];
+		}
+		Arrays.fill(slotCells, -1);
+		Arrays.fill(touching, 0);
+		Arrays.fill(shipCounts, 0);
+		numTouching = 0;
+		numShips = 0;
+		for (int word = 0; word < ships.length; word++) {
+			for (long bits = ships[word]; bits != 0; bits &= bits - 1) {
+				int cell = word << 6 | Long.numberOfTrailingZeros(bits);
+				if (touchesDiagonally(cell)) {
+					set(touching, cell);
+					numTouching++;
+				}
+				if (shipAt(cell) == NO_SHIP) {
+					// Cells are visited in order, so this is the ship's first cell
+					label(cell);
+				}
+			}
+		}
+		fleetRemaining = numShips;
+	}
+
+	// Labels a fleet already set on the board that is known to be valid, as
+	// FleetGenerator makes them, without looking for touching ships: the same ids
+	// labelShips() gives. Sorts the first count packed ships in place.
+	void labelFleet(long[] fleet, int count) {
+		// Packed ships sort by their first cell, the order labelShips() finds them in
+		Arrays.sort(fleet, 0, count);
+		int shipCells = 0;
+		for (int i = 0; i < count; i++) {
+			shipCells += shipLength(fleet[i]);
+		}
+		int capacity = Integer.highestOneBit(Math.max(8, shipCells) * 2 - 1) << 1;
+		if (capacity > slotCells.length) {
+			slotCells = new int[capacity];
+			slotShips = new int[capacity];
+		}
+		Arrays.fill(slotCells, -1);
+		Arrays.fill(touching, 0);
+		Arrays.fill(shipCounts, 0);
+		numTouching = 0;
+		numShips = 0;
+		for (int i = 0; i < count; i++) {
+			int id = numShips++;
+			if (id == starts.length) {
+				starts = Arrays.copyOf(starts, 2 * id);
+				lengths = Arrays.copyOf(lengths, 2 * id);
+				steps = Arrays.copyOf(steps, 2 * id);
+				remaining = Arrays.copyOf(remaining, 2 * id);
+			}
+			int length = shipLength(fleet[i]);
+			// labelShips() sees a ship of one cell as running down
+			int step = length > 1 && !shipVertical(fleet[i]) ? 1 : width;
+			starts[id] = shipStart(fleet[i]);
+			lengths[id] = length;
+			steps[id] = step;
+			remaining[id] = length;
+			shipCounts[length]++;
+			for (int k = 0, cell = starts[id]; k < length; k++, cell += step) {
+				addSlot(cell, id);
+			}
+		}
+		fleetRemaining = numShips;
+	}
+
+	// Labels the ship starting at cell: the run of unlabelled ship cells to its
+	// right, or else below it. Runs never share a cell, even on a bad board.
+	private void label(int cell) {
+		int col = cell % width;
+		boolean across = col < width - 1 && isShip(cell + 1) && shipAt(cell + 1) == NO_SHIP;
+		int step = across ? 1 : width;
+		int id = numShips++;
+		if (id == starts.length) {
+			starts = Arrays.copyOf(starts, 2 * id);
+			lengths = Arrays.copyOf(lengths, 2 * id);
+			steps = Arrays.copyOf(steps, 2 * id);
+			remaining = Arrays.copyOf(remaining, 2 * id);
+		}
+		int length = 0;
+		for (int c = cell; c < cells && isShip(c) && (c == cell || shipAt(c) == NO_SHIP); c += step) {
+			addSlot(c, id);
+			length++;
+			if (across && c % width == width - 1) { // edge of the board
+				break;
+			}
+		}
+		starts[id] = cell;
+		lengths[id] = length;
+		steps[id] = step;
+		remaining[id] = length;
+		shipCounts[length]++;
+	}
+
+	// True if a ship cell is diagonally next to cell. Straight ships never have a
+	// diagonal neighbour of their own, so that means two ships touch or a ship bends.
+	private boolean touchesDiagonally(int cell) {
+		int row = cell / width;
+		int col = cell % width;
+		boolean up = row > 0;
+		boolean down = row < height - 1;
+		boolean left = col > 0;
+		boolean right = col < width - 1;
+		return (up && left && isShip(cell - width - 1)) || (up && right && isShip(cell - width + 1))
+				|| (down && left && isShip(cell + width - 1)) || (down && right && isShip(cell + width + 1));
+	}
+
+	// The id of the ship at cell, or NO_SHIP
+	int shipAt(int cell) {
+		int mask = slotCells.length - 1;
+		for (int slot = hash(cell) & mask; slotCells[slot] != -1; slot = (slot + 1) & mask) {
+			if (slotCells[slot] == cell) {
+				return slotShips[slot];
+			}
+		}
+		return NO_SHIP;
+	}
+
+	private void addSlot(int cell, int id) {
+		int mask = slotCells.length - 1;
+		int slot = hash(cell) & mask;
+		while (slotCells[slot] != -1) {
+			slot = (slot + 1) & mask;
+		}
+		slotCells[slot] = cell;
+		slotShips[slot] = id;
+	}
+
+	private static int hash(int cell) {
+		int h = cell * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	// Clears ships, hits and misses for another round
+	public void clear() {
+		Arrays.fill(ships, 0);
+		Arrays.fill(hits, 0);
+		Arrays.fill(misses, 0);
+		Arrays.fill(touching, 0);
+		Arrays.fill(shipCounts, 0);
+		numTouching = 0;
+		sunk = 0;
+		haloCount = 0;
+		numSunk = 0;
+		numShips = 0;
+		fleetRemaining = 0;
+	}
+
+	// Checks if the ships are valid, meaning:
+	// 1) Contains exactly the ships of the rules' fleet
+	// 2) No ships are touching--even diagonally
+	// Labels the ships too, and returns the first problem only, but leaves all of
+	// them in touching, missing() and extra().
+	public int validate() {
+		labelShips();
+		badLength = 0;
+		if (numTouching > 0) {
+			return TOUCHING;
+		}
+		for (int length = 1; length < shipCounts.length; length++) {
+			if (shipCounts[length] > fleetCounts[length]) {
+				badLength = length;
+				return BAD_LENGTH;
+			}
+		}
+		for (int length : rules.lengths) {
+			if (missing(length) > 0) {
+				badLength = length;
+				return MISSING_LENGTH;
+			}
+		}
+		return VALID;
+	}
+
+	// How many more ships of a length the fleet needs, as of the last validate()
+	public int missing(int length) {
+		return length < fleetCounts.length ? Math.max(0, fleetCounts[length] - shipCounts[length]) : 0;
+	}
+
+	// How many ships of a length there are beyond what the fleet has, as of the last
+	// validate()
+	public int extra(int length) {
+		return length < shipCounts.length ? Math.max(0, shipCounts[length] - fleetCounts[length]) : 0;
+	}
+
+	// True if the ship at cell touched another one at the last validate()
+	public boolean isTouching(int cell) {
+		return test(touching, cell);
+	}
+
+	// Fires at a cell and returns the packed result. On SUNK, sunk holds the ship
+	// and halo the misses that were added around it.
+	public int fire(int cell) {
+		if (isHit(cell) || isMiss(cell)) {
+			return result(ALREADY_SHOT, NO_SHIP);
+		}
+		if (!isShip(cell)) {
+			set(misses, cell);
+			return result(MISS, NO_SHIP);
+		}
+		set(hits, cell);
+		int id = shipAt(cell);
+		if (--remaining[id] > 0) {
+			return result(HIT, id);
+		}
+
+		// Ship sunk, place misses all around it
+		numSunk++;
+		fleetRemaining--;
+		sunk = ship(id);
+		surround(sunk);
+		return result(SUNK, id);
+	}
+
+	// Adds a miss on every cell around a ship that is not one already, and lists
+	// them in halo
+	private void surround(long ship) {
+		int start = shipStart(ship);
+		int length = shipLength(ship);
+		boolean vertical = shipVertical(ship);
+		int row = start / width;
+		int col = start % width;
+		int lastRow = vertical ? row + length - 1 : row;
+		int lastCol = vertical ? col : col + length - 1;
+		haloCount = 0;
+		for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, lastRow + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, lastCol + 1); c++) {
+				if (r >= row && r <= lastRow && c >= col && c <= lastCol) {
+					continue; // the ship itself
+				}
+				int cell = r * width + c;
+				if (!isMiss(cell)) {
+					set(misses, cell);
+					halo[haloCount++] = cell;
+				}
+			}
+		}
+	}
+
+	// Records a shot that was resolved somewhere else (by a server), on a board
+	// whose ships are not known here. ship is the packed ship if it was SUNK, and
+	// the misses around it are added just like fire() would.
+	public void recordShot(int cell, int result, long ship) {
+		fleetRemaining = fleetRemaining(result);
+		switch (outcome(result)) {
+		case MISS:
+			set(misses, cell);
+			break;
+		case HIT:
+			set(hits, cell);
+			break;
+		case SUNK:
+			set(hits, cell);
+			numSunk++;
+			sunk = ship;
+			if (shipLength(ship) > 0 && shipStart(ship) < cells) {
+				surround(ship);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	// Marks a shot taken earlier, when rebuilding a board from a snapshot. Call
+	// recount() after the last one.
+	public void restoreShot(int cell, boolean hit) {
+		set(hit ? hits : misses, cell);
+	}
+
+	// Works out how many hits each labelled ship has left, and how many ships are
+	// still afloat, from the hits
+	public void recount() {
+		numSunk = 0;
+		for (int id = 0; id < numShips; id++) {
+			remaining[id] = 0;
+			for (int i = 0, cell = starts[id]; i < lengths[id]; i++, cell += steps[id]) {
+				if (!isHit(cell)) {
+					remaining[id]++;
+				}
+			}
+			if (remaining[id] == 0) {
+				numSunk++;
+			}
+		}
+		fleetRemaining = numShips - numSunk;
+	}
+
+	private int result(int outcome, int ship) {
+		return outcome | (ship & 0xFFF) << 4 | fleetRemaining << 16;
+	}
+
+	// Unpacks the result of fire()
+	static int outcome(int result) {
+		return result & 0xF;
+	}
+
+	static int shipOf(int result) {
+		int ship = (result >>> 4) & 0xFFF;
+		return ship == 0xFFF ? NO_SHIP : ship;
+	}
+
+	static int fleetRemaining(int result) {
+		return result >>> 16;
+	}
+
+	// True once every ship has been sunk
+	public boolean allSunk() {
+		return fleetRemaining == 0;
+	}
+}
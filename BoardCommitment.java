@@ -0,0 +1,115 @@
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/*
+ * Description
+ * -----------
+ * This class lets two players in a direct game
+ * keep their boards secret until the round is
+ * over, and still prove afterwards that they
+ * answered every shot honestly.
+ *
+ * At READY a player sends only a commitment:
+ * the SHA-256 hash of a random salt followed by
+ * their ships, as the list Protocol sends (in
+ * the order labelShips() numbers them, so one
+ * board always hashes the same). Each shot is
+ * then answered with a
+ * RESULT by the player shot at. Once the round
+ * is over both players REVEAL the salt and the
+ * ships, and each checks the other's against the
+ * commitment, the fleet rules, and every RESULT
+ * they were given. The salt keeps the hash from
+ * being matched against a list of likely boards.
+ *
+ * One instance reuses its digest and input, so
+ * checking a board does not allocate; it is not
+ * thread-safe.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class BoardCommitment {
+
+	// What verify() found
+	static final int VERIFIED = 0;
+	static final int WRONG_HASH = 1;
+	static final int INVALID_FLEET = 2;
+	static final int WRONG_RESULT = 3;
+
+	private static final SecureRandom SALTS = new SecureRandom();
+
+	private final MessageDigest digest;
+	private final ByteBuffer input = ByteBuffer.allocate(Protocol.SALT_BYTES + Protocol.MAX_SHIP_LIST);
+	private final byte[] check = new byte[Protocol.HASH_BYTES];
+
+	public BoardCommitment() {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every Java has SHA-256", e);
+		}
+	}
+
+	// Fills salt with fresh random bytes and hash with the commitment to the ships
+	// of a labelled board
+	public void commit(Bitboard board, byte[] salt, byte[] hash) {
+		SALTS.nextBytes(salt);
+		hash(salt, board, hash);
+	}
+
+	// The commitment to a labelled board's ships under salt, written into hash
+	public void hash(byte[] salt, Bitboard board, byte[] hash) {
+		input.clear();
+		input.put(salt, 0, Protocol.SALT_BYTES);
+		Protocol.putShips(input, board);
+		digest.update(input.array(), 0, input.position());
+		try {
+			digest.digest(hash, 0, Protocol.HASH_BYTES);
+		} catch (DigestException e) {
+			throw new IllegalArgumentException("hash must hold " + Protocol.HASH_BYTES + " bytes", e);
+		}
+	}
+
+	// Checks the revealed board (labelled, with no shots on it yet) against the
+	// commitment made at READY, and replays the shots taken at it: cells[i] must
+	// have had results[i], for i < shots. The shots are left on revealed.
+	public int verify(byte[] commitment, byte[] salt, Bitboard revealed, int[] cells, int[] results, int shots) {
+		hash(salt, revealed, check);
+		if (!MessageDigest.isEqual(check, commitment)) {
+			return WRONG_HASH;
+		}
+		if (revealed.validate() != Bitboard.VALID) {
+			return INVALID_FLEET;
+		}
+		for (int i = 0; i < shots; i++) {
+			if (!revealed.inBounds(cells[i]) || revealed.fire(cells[i]) != results[i]) {
+				return WRONG_RESULT;
+			}
+		}
+		return VERIFIED;
+	}
+
+	// What went wrong, for telling the player
+	static String describe(int verdict) {
+		switch (verdict) {
+		case WRONG_HASH:
+			return "their board is not the one they committed to";
+		case INVALID_FLEET:
+			return "their fleet breaks the rules";
+		case WRONG_RESULT:
+			return "they misreported a shot";
+		default:
+			return "their board checks out";
+		}
+	}
+}
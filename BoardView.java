@@ -0,0 +1,202 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.BitSet;
+
+import javax.swing.JComponent;
+
+/*
+ * Description
+ * -----------
+ * This class draws one grid straight from a
+ * Bitboard, of any size (hits are red, misses are
+ * white, and ships grey on our own grid only,
+ * or orange where they touch another ship),
+ * in place of a button per cell. A click is
+ * turned into a cell index with a division,
+ * and whoever changes a cell of the board asks
+ * for only that cell's rectangle to be painted
+ * again, so a shot repaints one cell instead of
+ * the whole window. Any number of cells can be
+ * outlined as selected, for a salvo.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+@SuppressWarnings("serial")
+public class BoardView extends JComponent {
+
+	// Told about every click on a cell
+	public interface Listener {
+		void cellClicked(BoardView view, int cell);
+	}
+
+	// Colors (set here because they are repeated often and to easily change
+	// them/know what they mean)
+	static final Color WATER = new Color(50, 200, 250);
+	static final Color SHIP = new Color(150, 150, 150);
+	static final Color TOUCHING = new Color(250, 150, 30);
+	static final Color HIT = new Color(250, 10, 30);
+	static final Color MISS = Color.WHITE;
+	static final Color GRID = new Color(30, 120, 160);
+	static final Color SELECTED = Color.YELLOW;
+	// Cells are 50 pixels on the classic board, and smaller on bigger ones so the
+	// grid starts out about 500 pixels across
+	static final int CELL_PIXELS = 50;
+	static final int GRID_PIXELS = 500;
+
+	final Bitboard board;
+	// Our own ships are drawn, the opponent's never are
+	final boolean showShips;
+	// Outlined cells
+	private final BitSet selected = new BitSet();
+
+	public BoardView(Bitboard board, boolean showShips, Listener listener) {
+		this.board = board;
+		this.showShips = showShips;
+		int size = Math.max(1, Math.min(CELL_PIXELS, GRID_PIXELS / Math.max(board.width, board.height)));
+		setPreferredSize(new Dimension(board.width * size, board.height * size));
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				int cell = cellAt(e.getX(), e.getY());
+				if (cell != -1 && isEnabled()) {
+					listener.cellClicked(BoardView.this, cell);
+				}
+			}
+		});
+	}
+
+	// The cell under a point, or -1 outside the grid
+	public int cellAt(int x, int y) {
+		int size = cellPixels();
+		int col = x / size;
+		int row = y / size;
+		if (x < 0 || y < 0 || col >= board.width || row >= board.height) {
+			return -1;
+		}
+		return row * board.width + col;
+	}
+
+	// Cells stay square and fill as much of the component as they can
+	private int cellPixels() {
+		return Math.max(1, Math.min(getWidth() / board.width, getHeight() / board.height));
+	}
+
+	// The only outlined cell, -1 for none
+	public void setSelected(int cell) {
+		if (cell == getSelected() && selected.cardinality() <= 1) {
+			return;
+		}
+		clearSelection();
+		setSelected(cell, true);
+	}
+
+	// Outlines one more cell, or removes its outline
+	public void setSelected(int cell, boolean on) {
+		if (cell < 0 || cell >= board.cells || selected.get(cell) == on) {
+			return;
+		}
+		selected.set(cell, on);
+		repaintCell(cell);
+	}
+
+	public boolean isSelected(int cell) {
+		return cell >= 0 && selected.get(cell);
+	}
+
+	// The first outlined cell, -1 for none
+	public int getSelected() {
+		return selected.nextSetBit(0);
+	}
+
+	public void clearSelection() {
+		for (int cell = selected.nextSetBit(0); cell >= 0; cell = selected.nextSetBit(cell + 1)) {
+			repaintCell(cell);
+		}
+		selected.clear();
+	}
+
+	// Paints one cell again, after its state in the board changed
+	public void repaintCell(int cell) {
+		if (cell < 0 || cell >= board.cells) {
+			return;
+		}
+		int size = cellPixels();
+		repaint(cell % board.width * size, cell / board.width * size, size, size);
+	}
+
+	// Paints a cell and the eight around it again, after a ship cell was added or
+	// removed there (which can change whether its neighbours touch)
+	public void repaintAround(int cell) {
+		if (cell < 0 || cell >= board.cells) {
+			return;
+		}
+		int size = cellPixels();
+		repaint((cell % board.width - 1) * size, (cell / board.width - 1) * size, 3 * size, 3 * size);
+	}
+
+	// Paints the first count cells of a list again
+	public void repaintCells(int[] cells, int count) {
+		for (int i = 0; i < count; i++) {
+			repaintCell(cells[i]);
+		}
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		int size = cellPixels();
+		// Only the cells inside the area being repainted
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		int firstCol = Math.max(0, clip.x / size);
+		int lastCol = Math.min(board.width - 1, (clip.x + clip.width - 1) / size);
+		int firstRow = Math.max(0, clip.y / size);
+		int lastRow = Math.min(board.height - 1, (clip.y + clip.height - 1) / size);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				int cell = row * board.width + col;
+				int x = col * size;
+				int y = row * size;
+				g.setColor(color(cell));
+				g.fillRect(x, y, size, size);
+				if (size > 3) { // tiny cells would be all grid lines
+					g.setColor(GRID);
+					g.drawRect(x, y, size - 1, size - 1);
+				}
+			}
+		}
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setColor(SELECTED);
+		g2.setStroke(new BasicStroke(3));
+		for (int cell = selected.nextSetBit(0); cell >= 0; cell = selected.nextSetBit(cell + 1)) {
+			g2.drawRect(cell % board.width * size + 1, cell / board.width * size + 1, size - 3, size - 3);
+		}
+	}
+
+	private Color color(int cell) {
+		if (board.isHit(cell)) {
+			return HIT;
+		}
+		if (board.isMiss(cell)) {
+			return MISS;
+		}
+		if (showShips && board.isShip(cell)) {
+			return board.isTouching(cell) ? TOUCHING : SHIP;
+		}
+		return WATER;
+	}
+}
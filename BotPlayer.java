@@ -0,0 +1,211 @@
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/*
+ * Description
+ * -----------
+ * This class is a computer opponent that sits
+ * in a Match on the server like any connected
+ * player and speaks the same Protocol frames,
+ * so a human's Battleship window cannot tell
+ * the difference. Its shots come from a
+ * ProbabilityBot. Like a Battleship window, it
+ * resolves its own shots against the board the
+ * opponent sends at READY, but it only ever
+ * tells the ProbabilityBot what the shot did.
+ * In an authoritative match it never sees the
+ * opponent's board at all, only the match's
+ * RESULT for each shot. It plays by the
+ * match's Rules, a whole SALVO a turn in a
+ * salvo game. It always wants a rematch.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class BotPlayer implements Seat {
+
+	static final String NAME = "Computer";
+
+	Match match;
+	int seat;
+	boolean movesFirst;
+	boolean authoritative;
+	// Won an authoritative round, so it answers the loser's rematch answer
+	boolean owesRematch;
+
+	final SplittableRandom random;
+	final FleetGenerator fleets;
+	// Sized for the match's rules in join()
+	ProbabilityBot strategy;
+	Bitboard selfBoard;
+	Bitboard oppBoard;
+	int[] salvo;
+	private final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FRAME);
+
+	public BotPlayer(long seed) {
+		random = new SplittableRandom(seed);
+		fleets = new FleetGenerator(random.nextLong());
+	}
+
+	// Takes a seat in a match, before the match starts
+	public void join(Match match, int seat) {
+		this.match = match;
+		this.seat = seat;
+		strategy = new ProbabilityBot(match.rules, random.nextLong());
+		selfBoard = new Bitboard(match.rules);
+		oppBoard = new Bitboard(match.rules);
+		salvo = new int[match.rules.fleet.length];
+	}
+
+	// A frame from the opponent, relayed by the match
+	@Override
+	public void send(ByteBuffer frame) {
+		switch (Protocol.type(frame)) {
+		case Protocol.HELLO:
+			movesFirst = (Protocol.helloFlags(frame) & Protocol.HELLO_FIRST) == 0;
+			authoritative = (Protocol.helloFlags(frame) & Protocol.HELLO_AUTHORITATIVE) != 0;
+			newRound();
+			break;
+		case Protocol.READY:
+			// In an authoritative match this means the opponent's board is in
+			if (authoritative && movesFirst) {
+				fire();
+			}
+			break;
+		case Protocol.BOARD:
+			oppBoard.clear();
+			Protocol.boardShips(frame, oppBoard);
+			if (movesFirst) {
+				fire();
+			}
+			break;
+		case Protocol.RESULT:
+			// Only says so on a win, the loser's GAME_OVER has to reach them first
+			int cell = Protocol.cell(frame);
+			int result = Protocol.resultCode(frame);
+			oppBoard.recordShot(cell, result, Protocol.resultShip(frame));
+			strategy.shotResult(cell, result, oppBoard.sunk);
+			owesRematch = Bitboard.fleetRemaining(result) == 0;
+			break;
+		case Protocol.RESULTS:
+			for (int i = 0; i < Protocol.resultsCount(frame); i++) {
+				int salvoCell = Protocol.resultsCell(frame, i);
+				int salvoResult = Protocol.resultsCode(frame, i);
+				oppBoard.recordShot(salvoCell, salvoResult, Protocol.resultsShip(frame, i));
+				strategy.shotResult(salvoCell, salvoResult, oppBoard.sunk);
+				owesRematch = Bitboard.fleetRemaining(salvoResult) == 0;
+			}
+			break;
+		case Protocol.SHOT:
+			selfBoard.fire(Protocol.cell(frame));
+			fire();
+			break;
+		case Protocol.SALVO:
+			for (int i = 0; i < Protocol.salvoCount(frame); i++) {
+				selfBoard.fire(Protocol.salvoCell(frame, i));
+			}
+			if (selfBoard.fleetRemaining == 0) {
+				Protocol.rematch(out, true);
+				emit();
+			} else {
+				fire();
+			}
+			break;
+		case Protocol.GAME_OVER:
+			selfBoard.fire(Protocol.cell(frame));
+			Protocol.rematch(out, true);
+			emit();
+			break;
+		case Protocol.REMATCH:
+			boolean playAgain = Protocol.rematchAnswer(frame);
+			if (owesRematch) {
+				owesRematch = false;
+				Protocol.rematch(out, true);
+				emit();
+			}
+			if (playAgain) {
+				newRound();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void close() {
+		// nothing to release
+	}
+
+	// Places a new fleet and tells the opponent it is ready
+	private void newRound() {
+		selfBoard.clear();
+		oppBoard.clear();
+		strategy.reset();
+		fleets.place(selfBoard);
+		Protocol.ready(out);
+		emit();
+		Protocol.board(out, selfBoard);
+		emit();
+	}
+
+	// Takes the next shot and reports it to the opponent, or in an authoritative
+	// match sends it to be resolved (the RESULT comes back from inside emit())
+	private void fire() {
+		if (match.rules.salvo) {
+			fireSalvo();
+			return;
+		}
+		int cell = strategy.nextShot();
+		if (authoritative) {
+			Protocol.shot(out, cell);
+			emit();
+			return;
+		}
+		int result = oppBoard.fire(cell);
+		strategy.shotResult(cell, result, oppBoard.sunk);
+		if (Bitboard.fleetRemaining(result) == 0) {
+			Protocol.gameOver(out, cell);
+			emit();
+			Protocol.rematch(out, true);
+			emit();
+		} else {
+			Protocol.shot(out, cell);
+			emit();
+		}
+	}
+
+	// Takes a whole salvo turn: one shot for each of our ships afloat
+	private void fireSalvo() {
+		int count = strategy.nextSalvo(salvo, match.rules.shotsPerTurn(selfBoard.fleetRemaining));
+		if (authoritative) {
+			Protocol.salvo(out, salvo, count);
+			emit();
+			return;
+		}
+		int fired = 0;
+		while (fired < count && oppBoard.fleetRemaining > 0) {
+			int result = oppBoard.fire(salvo[fired]);
+			strategy.shotResult(salvo[fired++], result, oppBoard.sunk);
+		}
+		Protocol.salvo(out, salvo, fired);
+		emit();
+		if (oppBoard.fleetRemaining == 0) {
+			Protocol.rematch(out, true);
+			emit();
+		}
+	}
+
+	// Hands the one frame in out to the match
+	private void emit() {
+		out.flip();
+		match.frameReceived(seat, out);
+		out.clear();
+	}
+}
@@ -0,0 +1,219 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Description
+ * -----------
+ * This class is what the spectators of one
+ * Match see. Every shot is encoded once, as a
+ * MOVE frame in a read-only buffer of its own,
+ * and kept in a ring of the last RING moves.
+ * A spectator only holds a Cursor into the
+ * ring, and writes duplicates of the same
+ * buffers (each with its own position, the
+ * bytes are shared), so the match does the same
+ * small amount of work for every shot whether
+ * nobody or thousands are watching, and never
+ * waits for any of them. A spectator that falls
+ * more than RING moves behind skips the ones it
+ * missed: it gets the current view instead
+ * (WATCHING, then a SNAPSHOT and its SHOTS),
+ * built once and shared by every spectator that
+ * needs it until the next move.
+ *
+ * The view is kept on two boards of its own,
+ * filled in from the moves with recordShot(),
+ * so building a snapshot never takes the
+ * match's lock. Seat 0's board is the "self"
+ * side of the SNAPSHOT. No ship is ever shown,
+ * only shots and the ships they sank.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Broadcast {
+
+	static final int RING = 1024;
+
+	// Where one spectator is in the moves, only used by whoever writes to it
+	static final class Cursor {
+		long next = -1; // -1 until it has had the view
+		int resyncs = 0;
+	}
+
+	final int match;
+	final Rules rules;
+	final String firstName;
+	final String secondName;
+	private final AtomicInteger watchers = new AtomicInteger();
+
+	private final Bitboard[] view;
+	private int turn;
+	private boolean roundOver;
+	private final ByteBuffer[] moves = new ByteBuffer[RING];
+	private long published = 0;
+	// The view as frames, built on demand and dropped at the next move
+	private ByteBuffer snapshot;
+	private final int[] shotCells = new int[Protocol.SHOTS_PER_FRAME];
+	private boolean closed = false;
+	// Told after every move and at close, e.g. to wake a thread that writes to
+	// spectators
+	private volatile Runnable listener = () -> {
+	};
+
+	// Starts from the boards of a match in progress. Called with the match locked.
+	public Broadcast(int match, Rules rules, String firstName, String secondName, Bitboard[] boards, int turn,
+			boolean roundOver) {
+		this.match = match;
+		this.rules = rules;
+		this.firstName = firstName;
+		this.secondName = secondName;
+		view = new Bitboard[] { new Bitboard(rules), new Bitboard(rules) };
+		for (int seat = 0; seat < 2; seat++) {
+			System.arraycopy(boards[seat].hits, 0, view[seat].hits, 0, view[seat].hits.length);
+			System.arraycopy(boards[seat].misses, 0, view[seat].misses, 0, view[seat].misses.length);
+		}
+		this.turn = turn;
+		this.roundOver = roundOver;
+	}
+
+	public void setListener(Runnable listener) {
+		this.listener = listener;
+	}
+
+	// A new spectator, whose first poll() gets the view
+	public Cursor join() {
+		watchers.incrementAndGet();
+		return new Cursor();
+	}
+
+	public void leave() {
+		watchers.decrementAndGet();
+	}
+
+	public int watchers() {
+		return watchers.get();
+	}
+
+	// A shot the player in seat fired. ship is the packed ship when it was SUNK.
+	public void move(int seat, int cell, int result, long ship) {
+		if (Bitboard.outcome(result) == Bitboard.ALREADY_SHOT) {
+			return; // changed nothing
+		}
+		ByteBuffer frame = ByteBuffer.allocate(Protocol.HEADER + 1 + 8 + Protocol.SHIP_BYTES);
+		Protocol.move(frame, seat, cell, result, Bitboard.outcome(result) == Bitboard.SUNK ? ship : 0);
+		synchronized (this) {
+			view[1 - seat].recordShot(cell, result, ship);
+			turn = 1 - seat;
+			roundOver = Bitboard.fleetRemaining(result) == 0;
+			publish(frame);
+		}
+		listener.run();
+	}
+
+	// Both players said yes to a rematch, so the boards start over
+	public void newRound() {
+		synchronized (this) {
+			view[0].clear();
+			view[1].clear();
+			turn = 0;
+			roundOver = false;
+			ByteBuffer frame = ByteBuffer.allocate(Protocol.HEADER + 1 + 16 + 4);
+			Protocol.snapshot(frame, Protocol.SNAP_YOUR_TURN, new int[4], view[0], view[1]);
+			publish(frame);
+		}
+		listener.run();
+	}
+
+	private void publish(ByteBuffer frame) {
+		frame.flip();
+		moves[(int) (published++ % RING)] = frame.asReadOnlyBuffer();
+		snapshot = null;
+		notifyAll();
+	}
+
+	// The match is over, spectators are closed once they have had every move
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		listener.run();
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	// Fills batch with what cursor has not had yet, and returns how many buffers
+	// that is (0 if it is up to date). Each buffer is one or more whole frames.
+	public synchronized int poll(Cursor cursor, ByteBuffer[] batch) {
+		if (cursor.next == -1 || published - cursor.next > RING) {
+			if (cursor.next != -1) {
+				cursor.resyncs++; // too far behind, skip to the current view
+			}
+			cursor.next = published;
+			batch[0] = view().duplicate();
+			return 1;
+		}
+		int count = 0;
+		while (cursor.next < published && count < batch.length) {
+			batch[count++] = moves[(int) (cursor.next++ % RING)].duplicate();
+		}
+		return count;
+	}
+
+	// Like poll(), but waits up to millis for something new
+	public synchronized int await(Cursor cursor, ByteBuffer[] batch, long millis) throws InterruptedException {
+		if (cursor.next == published && !closed) {
+			wait(millis);
+		}
+		return poll(cursor, batch);
+	}
+
+	// WATCHING, SNAPSHOT and SHOTS for the view as it is now, in one buffer
+	private ByteBuffer view() {
+		if (snapshot != null) {
+			return snapshot;
+		}
+		long[][] lists = { view[0].hits, view[0].misses, view[1].hits, view[1].misses };
+		int[] counts = new int[4];
+		int total = 0;
+		for (int list = 0; list < 4; list++) {
+			for (long word : lists[list]) {
+				counts[list] += Long.bitCount(word);
+			}
+			total += counts[list];
+		}
+		int frames = 4 + total / Protocol.SHOTS_PER_FRAME;
+		ByteBuffer out = ByteBuffer.allocate(2 * Protocol.MAX_FRAME + 4 * total + frames * (Protocol.HEADER + 1));
+		Protocol.watching(out, match, rules, firstName, secondName);
+		int flags = (roundOver ? Protocol.SNAP_ROUND_OVER : 0) | (turn == 0 ? Protocol.SNAP_YOUR_TURN : 0);
+		Protocol.snapshot(out, flags, counts, view[0], view[1]);
+		for (int list = 0; list < 4; list++) {
+			int count = 0;
+			long[] bits = lists[list];
+			for (int word = 0; word < bits.length; word++) {
+				for (long set = bits[word]; set != 0; set &= set - 1) {
+					shotCells[count++] = word << 6 | Long.numberOfTrailingZeros(set);
+					if (count == Protocol.SHOTS_PER_FRAME) {
+						Protocol.shots(out, list, shotCells, 0, count);
+						count = 0;
+					}
+				}
+			}
+			if (count > 0) {
+				Protocol.shots(out, list, shotCells, 0, count);
+			}
+		}
+		out.flip();
+		snapshot = out.asReadOnlyBuffer();
+		return snapshot;
+	}
+}
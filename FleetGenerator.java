@@ -0,0 +1,278 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Description
+ * -----------
+ * This class makes random valid fleets for the
+ * "Auto-place" button, the computer opponent,
+ * load tests and simulations, for the Rules of
+ * whatever board it is given. Ships are drawn
+ * longest first, each from all of its
+ * placements (across and down), and a fleet is
+ * only kept once no ship overlaps or touches
+ * another. Drawing only from the placements
+ * that still fit would be faster, but would
+ * make fleets crowded around the first ships
+ * more likely than others, so this way every
+ * valid fleet is equally likely. A fit is
+ * checked on the cells around the new ship
+ * only, so a ship costs time in its length,
+ * not the board's area.
+ *
+ * Boards of up to MASK_CELLS cells (the
+ * classic one among them) fit in two longs, so
+ * for those every placement of every ship is
+ * worked out once per Rules as a mask of its
+ * cells and a mask of its cells and the halo
+ * around them, and a fleet is drawn with a
+ * few ANDs and ORs, the same way.
+ *
+ * Crowded fleets can fail that check almost
+ * every time, so after UNIFORM_TRIES whole
+ * fleets only the ship that did not fit is
+ * drawn again, which is no longer uniform but
+ * always finishes if the fleet fits at all.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class FleetGenerator {
+
+	static final int UNIFORM_TRIES = 1000;
+	// Draws of one ship before starting its fleet again, once fleets are no longer uniform
+	static final int SHIP_TRIES = 1000;
+	// Fleets started again before giving up on the rules
+	static final int MAX_TRIES = 100 * UNIFORM_TRIES;
+	// Boards this small get their fleets from Masks
+	static final int MASK_CELLS = 128;
+
+	// Every placement of every ship in a fleet, as masks of a board of up to
+	// MASK_CELLS cells: the ship's cells, and its cells with the halo around them
+	static final class Masks {
+		// By ship (longest first, as in Rules.fleet), then placement
+		final long[][] packed;
+		final long[][] shipLo;
+		final long[][] shipHi;
+		final long[][] blockLo;
+		final long[][] blockHi;
+
+		Masks(Rules rules) {
+			int ships = rules.fleet.length;
+			packed = new long[ships][];
+			shipLo = new long[ships][];
+			shipHi = new long[ships][];
+			blockLo = new long[ships][];
+			blockHi = new long[ships][];
+			for (int ship = 0; ship < ships; ship++) {
+				if (ship > 0 && rules.fleet[ship] == rules.fleet[ship - 1]) {
+					// Ships of the same length share their placements
+					packed[ship] = packed[ship - 1];
+					shipLo[ship] = shipLo[ship - 1];
+					shipHi[ship] = shipHi[ship - 1];
+					blockLo[ship] = blockLo[ship - 1];
+					blockHi[ship] = blockHi[ship - 1];
+				} else {
+					add(rules, ship, rules.fleet[ship]);
+				}
+			}
+		}
+
+		private void add(Rules rules, int ship, int length) {
+			int across = rules.height * Math.max(0, rules.width - length + 1);
+			int down = length == 1 ? 0 : rules.width * Math.max(0, rules.height - length + 1);
+			packed[ship] = new long[across + down];
+			shipLo[ship] = new long[across + down];
+			shipHi[ship] = new long[across + down];
+			blockLo[ship] = new long[across + down];
+			blockHi[ship] = new long[across + down];
+			int p = 0;
+			for (int vertical = 0; vertical < 2; vertical++) {
+				int rows = vertical == 0 ? rules.height : rules.height - length + 1;
+				int cols = vertical == 0 ? rules.width - length + 1 : rules.width;
+				if (vertical == 1 && length == 1) {
+					break; // the same as across
+				}
+				for (int row = 0; row < rows; row++) {
+					for (int col = 0; col < cols; col++) {
+						packed[ship][p] = Bitboard.pack(row * rules.width + col, length, vertical == 1);
+						int lastRow = vertical == 0 ? row : row + length - 1;
+						int lastCol = vertical == 0 ? col + length - 1 : col;
+						for (int r = Math.max(0, row - 1); r <= Math.min(rules.height - 1, lastRow + 1); r++) {
+							for (int c = Math.max(0, col - 1); c <= Math.min(rules.width - 1, lastCol + 1); c++) {
+								int cell = r * rules.width + c;
+								boolean onShip = r >= row && r <= lastRow && c >= col && c <= lastCol;
+								if (cell < 64) {
+									blockLo[ship][p] |= 1L << cell;
+									shipLo[ship][p] |= onShip ? 1L << cell : 0;
+								} else {
+									blockHi[ship][p] |= 1L << cell;
+									shipHi[ship][p] |= onShip ? 1L << cell : 0;
+								}
+							}
+						}
+						p++;
+					}
+				}
+			}
+		}
+	}
+
+	// Built once per Rules and shared by every generator
+	private static final ConcurrentHashMap<Rules, Masks> MASKS = new ConcurrentHashMap<>();
+
+	SplittableRandom random;
+
+	// The ships placed so far in the fleet being made, packed
+	private long[] placed = new long[Rules.CLASSIC.fleet.length];
+	// The masks of the rules of the last board, if it was small enough
+	private Rules maskRules;
+	private Masks masks;
+
+	public FleetGenerator(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	public void reseed(long seed) {
+		random = new SplittableRandom(seed);
+	}
+
+	// Puts a new fleet on board, ready to play. Throws IllegalStateException if the
+	// board's fleet does not seem to fit on it.
+	public void place(Bitboard board) {
+		int[] fleet = board.rules.fleet;
+		if (placed.length < fleet.length) {
+			placed = new long[fleet.length];
+		}
+		board.clear();
+		int tries = 0;
+		if (board.cells <= MASK_CELLS) {
+			if (board.rules != maskRules) {
+				maskRules = board.rules;
+				masks = MASKS.computeIfAbsent(board.rules, Masks::new);
+			}
+			if (placeFromMasks(board)) {
+				return;
+			}
+			tries = UNIFORM_TRIES; // on to drawing one ship at a time
+		}
+		for (; tries < MAX_TRIES; tries++) {
+			int perShip = tries < UNIFORM_TRIES ? 1 : SHIP_TRIES;
+			int ship = 0;
+			for (; ship < fleet.length; ship++) {
+				long placement = draw(board, fleet[ship], perShip);
+				if (placement == -1) {
+					break; // touches a ship already placed, start a new fleet
+				}
+				board.placeShip(placement);
+				placed[ship] = placement;
+			}
+			if (ship == fleet.length) {
+				board.labelShips();
+				return;
+			}
+			for (int i = 0; i < ship; i++) {
+				unplace(board, placed[i]);
+			}
+		}
+		throw new IllegalStateException("Could not fit ships " + board.rules + " on the board");
+	}
+
+	// Tries UNIFORM_TRIES fleets from the masks, and puts the first that fits on
+	// board. Returns false if none did.
+	private boolean placeFromMasks(Bitboard board) {
+		int ships = masks.shipLo.length;
+		for (int tries = 0; tries < UNIFORM_TRIES; tries++) {
+			long lo = 0;
+			long hi = 0;
+			long blockedLo = 0;
+			long blockedHi = 0;
+			long bits = 0;
+			int ship = 0;
+			for (; ship < ships; ship++) {
+				// Two draws per random long: the top 32 bits, then the bottom 32 bits,
+				// each scaled to the number of placements
+				if ((ship & 1) == 0) {
+					bits = random.nextLong();
+				} else {
+					bits <<= 32;
+				}
+				int p = (int) (((bits >>> 32) * masks.shipLo[ship].length) >>> 32);
+				if ((masks.shipLo[ship][p] & blockedLo) != 0 || (masks.shipHi[ship][p] & blockedHi) != 0) {
+					break; // touches a ship already placed, start a new fleet
+				}
+				placed[ship] = masks.packed[ship][p];
+				lo |= masks.shipLo[ship][p];
+				hi |= masks.shipHi[ship][p];
+				blockedLo |= masks.blockLo[ship][p];
+				blockedHi |= masks.blockHi[ship][p];
+			}
+			if (ship == ships) {
+				board.ships[0] = lo;
+				if (board.ships.length > 1) {
+					board.ships[1] = hi;
+				}
+				board.labelFleet(placed, ships);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Draws up to tries placements of a ship, and returns the first that fits, or -1
+	private long draw(Bitboard board, int length, int tries) {
+		// A ship longer than the board is wide (or tall) only fits one way
+		int across = board.height * Math.max(0, board.width - length + 1);
+		int down = board.width * Math.max(0, board.height - length + 1);
+		for (int i = 0; i < tries; i++) {
+			int p = random.nextInt(across + down);
+			long placement;
+			if (p < across) {
+				int row = p / (board.width - length + 1);
+				int col = p % (board.width - length + 1);
+				placement = Bitboard.pack(row * board.width + col, length, false);
+			} else {
+				p -= across;
+				int row = p / board.width;
+				int col = p % board.width;
+				placement = Bitboard.pack(row * board.width + col, length, true);
+			}
+			if (fits(board, placement)) {
+				return placement;
+			}
+		}
+		return -1;
+	}
+
+	// True if no ship is on or next to the placement's cells
+	private static boolean fits(Bitboard board, long placement) {
+		int start = Bitboard.shipStart(placement);
+		int length = Bitboard.shipLength(placement);
+		boolean vertical = Bitboard.shipVertical(placement);
+		int row = start / board.width;
+		int col = start % board.width;
+		int lastRow = Math.min(board.height - 1, (vertical ? row + length - 1 : row) + 1);
+		int lastCol = Math.min(board.width - 1, (vertical ? col : col + length - 1) + 1);
+		int firstCol = Math.max(0, col - 1);
+		for (int r = Math.max(0, row - 1); r <= lastRow; r++) {
+			if (Bitboard.any(board.ships, r * board.width + firstCol, r * board.width + lastCol)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void unplace(Bitboard board, long placement) {
+		int step = Bitboard.shipVertical(placement) ? board.width : 1;
+		int cell = Bitboard.shipStart(placement);
+		for (int i = 0; i < Bitboard.shipLength(placement); i++, cell += step) {
+			board.setShip(cell, false);
+		}
+	}
+}
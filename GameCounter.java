@@ -0,0 +1,54 @@
+/*
+ * Description
+ * -----------
+ * This class counts finished games. Besides the
+ * total, it reports how many games finished per
+ * second over the last whole 10 second window
+ * (or over the whole gap, when no game finished
+ * for longer than that).
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class GameCounter implements GameCounterMBean {
+
+	static final long WINDOW = 10_000_000_000L;
+
+	private long total = 0;
+	private long windowStart = System.nanoTime();
+	private long windowGames = 0;
+	private double lastRate = 0;
+
+	public synchronized void gameCompleted() {
+		roll(System.nanoTime());
+		windowGames++;
+		total++;
+	}
+
+	@Override
+	public synchronized long getGamesCompleted() {
+		return total;
+	}
+
+	@Override
+	public synchronized double getGamesPerSecond() {
+		roll(System.nanoTime());
+		return lastRate;
+	}
+
+	// Closes the current window once it is at least WINDOW long
+	private void roll(long now) {
+		long elapsed = now - windowStart;
+		if (elapsed >= WINDOW) {
+			lastRate = windowGames * 1e9 / elapsed;
+			windowStart = now;
+			windowGames = 0;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Description
+ * -----------
+ * This interface is what JMX tools see of a
+ * GameCounter registered by Metrics.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public interface GameCounterMBean {
+
+	long getGamesCompleted();
+
+	double getGamesPerSecond();
+}
@@ -0,0 +1,106 @@
+/*
+ * Description
+ * -----------
+ * This class runs the rules of one match with
+ * no Swing dependency, so a server or a bot can
+ * play many games without building any buttons.
+ * Player 0 always fires first (like the host),
+ * and players alternate turns until one fleet
+ * is completely sunk. A turn is one shot, or in
+ * a salvo game one shot for every ship the
+ * shooter has afloat when the turn starts (a
+ * player may end it early with endTurn()).
+ * A salvo is chosen before any of it lands, so
+ * a salvo shot at a cell already shot (say,
+ * around a ship the same salvo just sank) is
+ * spent, while a single shot like that just
+ * keeps the turn.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class GameEngine {
+
+	final Rules rules;
+	final Bitboard[] boards;
+	int turn = 0;
+	int winner = -1;
+	// Shots the player to move has left this turn, -1 until their first one
+	int shotsLeft = -1;
+
+	public GameEngine() {
+		this(Rules.CLASSIC);
+	}
+
+	public GameEngine(Rules rules) {
+		this.rules = rules;
+		boards = new Bitboard[] { new Bitboard(rules), new Bitboard(rules) };
+	}
+
+	// Places a player's ships (packed, see Bitboard.pack()), returns a Bitboard
+	// validation result, or BAD_LENGTH if a ship does not fit on the board
+	public int place(int player, long[] ships, int count) {
+		Bitboard board = boards[player];
+		board.clear();
+		for (int i = 0; i < count; i++) {
+			if (!board.placeShip(ships[i])) {
+				return Bitboard.BAD_LENGTH;
+			}
+		}
+		// Labels the ships in the same pass
+		return board.validate();
+	}
+
+	// The player whose turn it is fires at the opponent's board, returns the packed
+	// Bitboard result. The turn passes after their last shot of the turn.
+	public int fire(int cell) {
+		if (winner != -1) {
+			throw new IllegalStateException("Game is over");
+		}
+		if (shotsLeft == -1) {
+			shotsLeft = rules.shotsPerTurn(boards[turn].fleetRemaining);
+		}
+		Bitboard target = boards[1 - turn];
+		int result = target.fire(cell);
+		if (Bitboard.outcome(result) == Bitboard.ALREADY_SHOT && !rules.salvo) {
+			return result;
+		}
+		if (Bitboard.fleetRemaining(result) == 0) {
+			winner = turn;
+		} else if (--shotsLeft == 0) {
+			nextTurn();
+		}
+		return result;
+	}
+
+	// Ends a salvo with shots left, if any were fired
+	public void endTurn() {
+		if (winner == -1 && shotsLeft != -1 && shotsLeft < rules.shotsPerTurn(boards[turn].fleetRemaining)) {
+			nextTurn();
+		}
+	}
+
+	private void nextTurn() {
+		turn = 1 - turn;
+		shotsLeft = -1;
+	}
+
+	public boolean gameOver() {
+		return winner != -1;
+	}
+
+	// Reset the game for another round
+	public void reset() {
+		boards[0].clear();
+		boards[1].clear();
+		turn = 0;
+		winner = -1;
+		shotsLeft = -1;
+	}
+}
@@ -0,0 +1,417 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+
+/*
+ * Description
+ * -----------
+ * This class is a headless server that hosts
+ * many matches on one port. A single selector
+ * thread multiplexes every non-blocking socket
+ * channel. Each connection has its own small
+ * read and write buffers. Players are paired
+ * by the rating in their HELLO through a
+ * Matchmaker (or with a BotPlayer if they ask
+ * for the computer), and
+ * the matches live in a MatchRegistry. Battleship
+ * windows join it exactly like they would join
+ * a host. Timed match tasks are queued back to
+ * the selector thread, so nothing else ever
+ * touches a connection. That includes a sweep
+ * over every connection each
+ * Timeouts.SWEEP_MILLIS, which drops those
+ * that sent no HELLO in time or went silent,
+ * and sends a HEARTBEAT to those it has not
+ * written to lately.
+ *
+ * Usage: java GameServer <port> [nio|threads] [relay|authoritative]
+ * ("threads" runs ThreadedGameServer instead,
+ * "authoritative" keeps the boards on the
+ * server and resolves every shot here). The
+ * board and fleet come from Rules.configured().
+ *
+ * A SNAPSHOT of a long game on a big board can
+ * be more than the write buffer holds, so a
+ * buffer grows (up to MAX_WRITE_BUFFER) while
+ * it is that far behind, and goes back to its
+ * usual size once it has been written out. The
+ * read buffer likewise only grows (to
+ * Protocol.MAX_FRAME) while a frame bigger than
+ * it is coming in, which keeps an idle
+ * connection's buffers small.
+ *
+ * A connection that opens with WATCH instead
+ * of HELLO is a spectator. It is handed to a
+ * SpectatorHub, which writes every move to all
+ * of a match's spectators on a thread of its
+ * own, so the selector thread only ever writes
+ * to players.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class GameServer implements Runnable {
+
+	// Room for a HELLO, a few shots and a classic board, which is all most
+	// connections ever need. Both grow for bigger frames.
+	static final int READ_BUFFER = 512;
+	static final int WRITE_BUFFER = 2048;
+	// A player this far behind on reading is dropped. Enough for every shot of two
+	// 1000x1000 boards.
+	static final int MAX_WRITE_BUFFER = 8 << 20;
+
+	final MatchRegistry registry;
+	final SpectatorHub spectators = new SpectatorHub();
+	final int port;
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final ByteBuffer heartbeat = ByteBuffer.allocate(Protocol.HEADER);
+	private ScheduledFuture<?> sweep;
+	private Selector selector;
+	private ServerSocketChannel server;
+
+	// Pairs players by rating, and hands each pair back to the selector thread
+	final Matchmaker<Client> matchmaker = new Matchmaker<>((first, second) -> runOnSelector(() -> pair(first, second)));
+
+	public GameServer(int port) {
+		this(port, false);
+	}
+
+	public GameServer(int port, boolean authoritative) {
+		this(port, authoritative, Rules.configured());
+	}
+
+	public GameServer(int port, boolean authoritative, Rules rules) {
+		this.port = port;
+		registry = new MatchRegistry(this::runOnSelector, authoritative, rules);
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 1234;
+		String mode = args.length > 1 ? args[1] : "nio";
+		boolean authoritative = args.length > 2 && args[2].equals("authoritative");
+		if (mode.equals("threads")) {
+			ThreadedGameServer threadedServer = new ThreadedGameServer(port, authoritative);
+			threadedServer.open();
+			System.out.println("Battleship server (thread per connection" + (authoritative ? ", authoritative" : "")
+					+ ", " + threadedServer.registry.rules + ") listening on port " + port);
+			threadedServer.run();
+		} else {
+			GameServer gameServer = new GameServer(port, authoritative);
+			gameServer.open();
+			System.out.println("Battleship server (selector" + (authoritative ? ", authoritative" : "")
+					+ ", " + gameServer.registry.rules + ") listening on port " + port);
+			gameServer.run();
+		}
+	}
+
+	// Binds the port, call before run()
+	public void open() throws IOException {
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.configureBlocking(false);
+		server.bind(new InetSocketAddress(port), 1024);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		Protocol.heartbeat(heartbeat);
+		heartbeat.flip();
+		sweep = Timeouts.every(() -> runOnSelector(this::checkConnections), Timeouts.SWEEP_MILLIS);
+		spectators.open();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (server.isOpen()) {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					try {
+						task.run();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						Client client = (Client) key.attachment();
+						try {
+							if (key.isReadable()) {
+								client.read();
+							}
+							if (key.isValid() && key.isWritable()) {
+								client.flush();
+							}
+						} catch (IOException e) {
+							client.disconnect();
+						} catch (RuntimeException e) {
+							// A bug, but it only costs this client, not the thread every match runs on
+							e.printStackTrace();
+							client.disconnect();
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Runs task on the selector thread as soon as it wakes up
+	private void runOnSelector(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	// Drops dead connections and keeps quiet ones alive, on the selector thread
+	private void checkConnections() {
+		long now = System.nanoTime();
+		for (SelectionKey key : selector.keys()) {
+			if (!key.isValid() || !(key.attachment() instanceof Client)) {
+				continue;
+			}
+			Client client = (Client) key.attachment();
+			boolean joined = client.name != null || client.match != null;
+			if (Timeouts.expired(client.lastRead, now, joined ? Timeouts.IDLE_MILLIS : Timeouts.HANDSHAKE_MILLIS)) {
+				client.disconnect();
+			} else if (Timeouts.expired(client.lastWrite, now, Timeouts.HEARTBEAT_MILLIS)) {
+				client.send(heartbeat);
+			}
+		}
+	}
+
+	// The port actually bound, for when port 0 picked a free one
+	public int localPort() {
+		return server.socket().getLocalPort();
+	}
+
+	public void stop() throws IOException {
+		sweep.cancel(false);
+		registry.close();
+		matchmaker.close();
+		spectators.close();
+		server.close();
+		selector.wakeup();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = server.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			Client client = new Client(channel);
+			client.key = channel.register(selector, SelectionKey.OP_READ, client);
+		}
+	}
+
+	// A frame from a client who is not in a match yet, which must be its HELLO, a
+	// RESUME or a WATCH
+	private void lobbyFrame(Client client, ByteBuffer frame) throws ProtocolException {
+		if (Protocol.type(frame) == Protocol.WATCH) {
+			Match match = registry.watched(Protocol.watchMatch(frame));
+			Broadcast broadcast = match == null ? null : match.watch();
+			if (broadcast == null) {
+				throw new ProtocolException("No match to watch");
+			}
+			// From now on only the hub touches this channel
+			client.key.cancel();
+			client.writeBuffer.flip();
+			spectators.add(client.channel, broadcast, client.writeBuffer);
+			return;
+		}
+		if (Protocol.type(frame) == Protocol.RESUME) {
+			Match match = registry.session(Protocol.token(frame));
+			int seat = match == null ? -1 : match.resume(Protocol.token(frame), client);
+			if (seat == -1) {
+				throw new ProtocolException("Unknown session");
+			}
+			client.seat = seat;
+			client.match = match;
+			return;
+		}
+		if (Protocol.type(frame) != Protocol.HELLO) {
+			throw new ProtocolException("Expected HELLO, got " + Protocol.type(frame));
+		}
+		client.name = Protocol.helloName(frame);
+		if ((Protocol.helloFlags(frame) & Protocol.HELLO_BOT) != 0) {
+			client.seat = 0;
+			client.match = registry.createWithBot(client, client.name);
+			client.match.start();
+			return;
+		}
+		// A rating this server has worked out beats the one the player claims
+		client.rating = PlayerStats.shared().rating(client.name, Protocol.helloRating(frame));
+		client.ticket = matchmaker.join(client, client.rating);
+	}
+
+	// Starts a match for two players the matchmaker paired, unless one of them left
+	// in the meantime (then the other goes back in the queue)
+	private void pair(Client first, Client second) {
+		if (first.closing || second.closing) {
+			if (!first.closing) {
+				first.ticket = matchmaker.join(first, first.rating);
+			}
+			if (!second.closing) {
+				second.ticket = matchmaker.join(second, second.rating);
+			}
+			return;
+		}
+		first.ticket = second.ticket = null;
+		first.seat = 0;
+		second.seat = 1;
+		// Set before create(), which already sends both players their HELLO
+		Match match = registry.create(first, first.name, second, second.name);
+		first.match = match;
+		second.match = match;
+		match.start();
+	}
+
+	// One connection, only ever used on the selector thread
+	final class Client implements Seat {
+
+		final SocketChannel channel;
+		SelectionKey key;
+		ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER);
+		ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER);
+		String name;
+		int rating;
+		Matchmaker<Client>.Ticket ticket;
+		Match match;
+		int seat;
+		boolean closing = false;
+		// When a frame was last read from or written to this client, by System.nanoTime()
+		long lastRead = System.nanoTime();
+		long lastWrite = lastRead;
+
+		Client(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		// Reads what has arrived and handles every complete frame in it
+		void read() throws IOException {
+			if (channel.read(readBuffer) == -1) {
+				disconnect();
+				return;
+			}
+			readBuffer.flip();
+			int length;
+			while (key.isValid() && (length = Protocol.frameLength(readBuffer)) != -1) {
+				int end = readBuffer.position() + length;
+				lastRead = System.nanoTime();
+				if (Protocol.type(readBuffer) == Protocol.HEARTBEAT) {
+					// only keeps the connection alive
+				} else if (match == null) {
+					lobbyFrame(this, readBuffer);
+				} else {
+					match.frameReceived(seat, readBuffer);
+				}
+				readBuffer.position(end);
+			}
+			readBuffer.compact();
+			if (readBuffer.position() >= Protocol.LENGTH_BYTES) {
+				// The next frame may not fit, so make room for the largest one
+				length = Protocol.LENGTH_BYTES + (readBuffer.getShort(0) & 0xFFFF);
+				if (length > readBuffer.capacity() && readBuffer.capacity() < Protocol.MAX_FRAME) {
+					readBuffer.flip();
+					readBuffer = ByteBuffer.allocate(Protocol.MAX_FRAME).put(readBuffer);
+				}
+			} else if (readBuffer.capacity() > READ_BUFFER) {
+				readBuffer.flip();
+				readBuffer = ByteBuffer.allocate(READ_BUFFER).put(readBuffer);
+			}
+		}
+
+		@Override
+		public void send(ByteBuffer frame) {
+			if (closing) {
+				return;
+			}
+			int start = frame.position();
+			int length = Protocol.LENGTH_BYTES + (frame.getShort(start) & 0xFFFF);
+			if (length > writeBuffer.remaining()) {
+				if (writeBuffer.capacity() >= MAX_WRITE_BUFFER) {
+					disconnect(); // too far behind on reading
+					return;
+				}
+				ByteBuffer bigger = ByteBuffer.allocate(Math.min(MAX_WRITE_BUFFER, 2 * writeBuffer.capacity()));
+				writeBuffer.flip();
+				writeBuffer = bigger.put(writeBuffer);
+				send(frame);
+				return;
+			}
+			writeBuffer.put(frame.duplicate().limit(start + length));
+			lastWrite = System.nanoTime();
+			try {
+				flush();
+			} catch (IOException e) {
+				disconnect();
+			}
+		}
+
+		// Writes as much as the socket will take, and waits for OP_WRITE for the rest
+		void flush() throws IOException {
+			writeBuffer.flip();
+			channel.write(writeBuffer);
+			writeBuffer.compact();
+			if (writeBuffer.position() == 0 && writeBuffer.capacity() > WRITE_BUFFER) {
+				writeBuffer = ByteBuffer.allocate(WRITE_BUFFER);
+			}
+			if (writeBuffer.position() > 0) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} else if (closing) {
+				disconnect();
+			} else {
+				key.interestOps(SelectionKey.OP_READ);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closing) {
+				return;
+			}
+			closing = true;
+			if (writeBuffer.position() == 0) {
+				disconnect();
+			}
+		}
+
+		// Closes the channel right away, and ends the match or leaves the lobby
+		void disconnect() {
+			closing = true;
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			if (ticket != null) {
+				ticket.leave();
+			}
+			if (match != null) {
+				match.seatClosed(this);
+			}
+		}
+	}
+}
@@ -11,8 +11,10 @@ import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -51,6 +53,7 @@ public class GameSetup implements ActionListener {
 	JLabel logo = new JLabel(logoIcon);
 	JButton hostB = new JButton("Host");
 	JButton joinB = new JButton("Join");
+	JButton computerB = new JButton("vs. Computer");
 	JTextField hostPortTF = new HintTextField("Port Number");
 	JTextField joinPortTF = new HintTextField("Port Number");
 	JTextField joinNameTF = new HintTextField("Host Name");
@@ -108,6 +111,15 @@ public class GameSetup implements ActionListener {
 		helpB.addActionListener(this);
 		panel.add(helpB, c);
 
+		// "vs. Computer" button
+		c.gridx = 0;
+		c.gridy = 2;
+		c.insets = new Insets(50, 0, 50, 0);
+		computerB.setFont(buttonFont);
+		computerB.setPreferredSize(new Dimension(200, 50));
+		computerB.addActionListener(this);
+		panel.add(computerB, c);
+
 		// "Join" button
 		c.gridx = 0;
 		c.gridy = 3;
@@ -140,8 +152,15 @@ public class GameSetup implements ActionListener {
 		frame.setVisible(true);
 	}
 
-	public static void main(String[] args) {
-		new GameSetup();
+	// Normally opens the setup window. "--server <port> [nio|threads]
+	// [relay|authoritative]" instead runs a headless GameServer that Battleship
+	// windows can join.
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("--server")) {
+			GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+		} else {
+			new GameSetup();
+		}
 	}
 
 	@Override
@@ -200,6 +219,22 @@ public class GameSetup implements ActionListener {
 				new Battleship(hostName, port, false, name); // the "false" means it is a client
 			}
 		}
+		// Play the computer, through a GameServer running inside this program that
+		// keeps the computer's board to itself
+		if (e.getSource().equals(computerB)) {
+			String name = JOptionPane.showInputDialog(frame, "What is your name?");
+			try {
+				GameServer server = new GameServer(0, true);
+				server.open();
+				Thread serverThread = new Thread(server, "Battleship server");
+				serverThread.setDaemon(true);
+				serverThread.start();
+				new Battleship("localhost", Integer.toString(server.localPort()), false, name, true);
+			} catch (IOException e1) {
+				JOptionPane.showMessageDialog(frame, "Could not start the computer opponent.");
+				e1.printStackTrace();
+			}
+		}
 		// Tutorial for how to set up a game
 		if (e.getSource().equals(helpB)) {
 			if (JOptionPane.showOptionDialog(frame, "Would you like a quick tutorial for how to set up a game?",
@@ -0,0 +1,415 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Description
+ * -----------
+ * This class reads a MatchJournal back, one
+ * record at a time through a cursor (the fields
+ * below are the current record), straight out of
+ * the mapped segments in order. It can also
+ * follow a journal that is still being written,
+ * or step over every record but one type.
+ *
+ * Run on its own, it replays every match, or
+ * just one, into a GameEngine as fast as it can,
+ * checking that each shot was fired in turn and
+ * had the result that was recorded, by the rules
+ * in the match's START record (a salvo turn
+ * ends early when the other seat fires next,
+ * since shots at cells already shot are not
+ * journalled). Replaying
+ * one match also prints its records. Matches
+ * played commit-reveal have no BOARD records;
+ * instead each REVEAL is checked against its
+ * COMMIT and the shots taken at that board,
+ * with a BoardCommitment.
+ *
+ * Usage: java JournalReader <journal directory> [match]
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class JournalReader {
+
+	private final Path dir;
+	private final List<Path> segments = new ArrayList<>();
+	private int nextSegment = 0;
+	private MappedByteBuffer segment;
+	// How far into the segment there are whole records to read
+	private int readable;
+	private boolean follow = false;
+	// Following, where the records of the last segment ended when last looked at
+	private int looked;
+	private long lookedAt;
+
+	// The current record
+	int type;
+	int seat;
+	long match;
+	long time;
+	Rules rules;
+	// The ships of a BOARD or REVEAL, packed
+	final long[] ships = new long[Rules.MAX_SHIPS];
+	int numShips;
+	int cell;
+	int result;
+	boolean playAgain;
+	String firstName, secondName;
+	final byte[] hash = new byte[Protocol.HASH_BYTES];
+	final byte[] salt = new byte[Protocol.SALT_BYTES];
+
+	public JournalReader(Path dir) throws IOException {
+		this.dir = dir;
+		segments.addAll(segments(dir));
+	}
+
+	// Reads only these segments, in this order
+	public JournalReader(List<Path> segments) {
+		dir = null;
+		this.segments.addAll(segments);
+	}
+
+	// The segments of the journal in dir, in order
+	static List<Path> segments(Path dir) throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, "*" + MatchJournal.SUFFIX)) {
+			for (Path path : paths) {
+				segments.add(path);
+			}
+		}
+		segments.sort((a, b) -> Integer.compare(MatchJournal.segmentNumber(a), MatchJournal.segmentNumber(b)));
+		return segments;
+	}
+
+	// Keeps reading a journal that is still being written: next() returns false
+	// when it has caught up, and can be called again later for what has been
+	// written since
+	public void follow() {
+		follow = true;
+	}
+
+	// Moves to the next record, returns false after the last one
+	public boolean next() throws IOException {
+		return next(0);
+	}
+
+	// Moves to the next record of one type (0 for any), stepping over the others
+	// without reading them, returns false after the last one
+	public boolean next(int wanted) throws IOException {
+		while (true) {
+			while (segment != null && segment.position() + MatchJournal.HEADER <= readable) {
+				int at = segment.position();
+				int length = segment.getShort(at) & 0xFFFF;
+				if (length == 0) {
+					break; // the unused end of the segment
+				}
+				segment.position(at + MatchJournal.LENGTH_BYTES);
+				if (wanted == 0 || segment.get(at + MatchJournal.LENGTH_BYTES) == wanted) {
+					read(length);
+					return true;
+				}
+				segment.position(at + MatchJournal.LENGTH_BYTES + length);
+			}
+			if (!advance()) {
+				return false;
+			}
+		}
+	}
+
+	// Maps the next segment or, following, reads further into the last one.
+	// Returns false if there is nothing more (yet).
+	private boolean advance() throws IOException {
+		if (follow && nextSegment == segments.size() && dir != null) {
+			// Segments are never removed, so the ones already read keep their places
+			List<Path> now = segments(dir);
+			segments.addAll(now.subList(Math.min(segments.size(), now.size()), now.size()));
+		}
+		if (segment != null && readable < segment.limit()) {
+			if (nextSegment < segments.size()) {
+				readable = segment.limit(); // the writer has moved on, this one is complete
+				return true;
+			}
+			// The writer copies a batch in well under FLUSH_MILLIS, so records that
+			// were already there that long ago are whole, newer ones maybe not yet
+			long now = System.nanoTime();
+			if (now - lookedAt >= MatchJournal.FLUSH_MILLIS * 1_000_000) {
+				readable = Math.max(readable, looked);
+				looked = writtenEnd();
+				lookedAt = now;
+			}
+			return segment.position() + MatchJournal.HEADER <= readable
+					&& segment.getShort(segment.position()) != 0;
+		}
+		if (nextSegment == segments.size()) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(segments.get(nextSegment++), StandardOpenOption.READ)) {
+			segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		// The last segment may still be filling up, so following starts it unread
+		readable = follow && nextSegment == segments.size() ? 0 : segment.limit();
+		looked = 0;
+		lookedAt = System.nanoTime() - MatchJournal.FLUSH_MILLIS * 1_000_000;
+		return true;
+	}
+
+	// Where the records written to the current segment so far end
+	private int writtenEnd() {
+		int at = Math.max(segment.position(), readable);
+		while (at + MatchJournal.HEADER <= segment.limit()) {
+			int length = segment.getShort(at) & 0xFFFF;
+			if (length == 0) {
+				break;
+			}
+			at += MatchJournal.LENGTH_BYTES + length;
+		}
+		return Math.min(at, segment.limit());
+	}
+
+	private void read(int length) throws IOException {
+		int end = segment.position() + length;
+		type = segment.get();
+		seat = segment.get();
+		match = segment.getLong();
+		time = segment.getLong();
+		switch (type) {
+		case MatchJournal.START:
+			rules = Protocol.getRules(segment, segment.position(), end);
+			segment.position(segment.position() + Protocol.rulesBytes(rules));
+			firstName = name();
+			secondName = name();
+			break;
+		case MatchJournal.BOARD:
+			ships();
+			break;
+		case MatchJournal.SHOT:
+		case MatchJournal.GAME_OVER:
+			cell = segment.getInt();
+			result = segment.getInt();
+			break;
+		case MatchJournal.REMATCH:
+			playAgain = segment.get() != 0;
+			break;
+		case MatchJournal.COMMIT:
+			segment.get(hash);
+			break;
+		case MatchJournal.REVEAL:
+			segment.get(salt);
+			ships();
+			break;
+		default:
+			break;
+		}
+		// Skip anything a newer journal added to this record
+		segment.position(end);
+	}
+
+	// Reads a ship list, as Protocol.putShips() wrote it
+	private void ships() {
+		numShips = Math.min(segment.getShort() & 0xFFFF, Rules.MAX_SHIPS);
+		for (int i = 0; i < numShips; i++) {
+			int start = segment.getInt();
+			int bits = segment.getShort() & 0xFFFF;
+			ships[i] = Bitboard.pack(start, bits & Bitboard.LENGTH_MASK, (bits & Bitboard.VERTICAL) != 0);
+		}
+	}
+
+	// The ships of the current record, readable, e.g. "0+5 across, 22+4 down"
+	private String describeShips() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < numShips; i++) {
+			text.append(i == 0 ? "" : ", ").append(Bitboard.shipStart(ships[i])).append('+')
+					.append(Bitboard.shipLength(ships[i])).append(Bitboard.shipVertical(ships[i]) ? " down" : " across");
+		}
+		return text.toString();
+	}
+
+	private String name() {
+		byte[] bytes = new byte[segment.get() & 0xFF];
+		segment.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// The current record, readable
+	@Override
+	public String toString() {
+		String prefix = String.format("%tT.%<tL match %d seat %d ", time, match, seat);
+		switch (type) {
+		case MatchJournal.START:
+			return prefix + "START " + firstName + " vs. " + secondName + ", " + rules;
+		case MatchJournal.BOARD:
+			return prefix + "BOARD " + describeShips();
+		case MatchJournal.SHOT:
+		case MatchJournal.GAME_OVER:
+			String[] outcomes = { "miss", "hit", "sunk", "already shot" };
+			return prefix + (type == MatchJournal.SHOT ? "SHOT " : "GAME_OVER ") + cell + " "
+					+ outcomes[Bitboard.outcome(result)] + ", " + Bitboard.fleetRemaining(result) + " left";
+		case MatchJournal.REMATCH:
+			return prefix + "REMATCH " + (playAgain ? "yes" : "no");
+		case MatchJournal.COMMIT:
+			StringBuilder hex = new StringBuilder(prefix).append("COMMIT ");
+			for (byte b : hash) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		case MatchJournal.REVEAL:
+			return prefix + "REVEAL " + describeShips();
+		case MatchJournal.END:
+			return prefix + "END";
+		default:
+			return prefix + "unknown record " + type;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java JournalReader <journal directory> [match]");
+			return;
+		}
+		JournalReader reader = new JournalReader(Paths.get(args[0]));
+		boolean one = args.length > 1;
+		long only = one ? Long.parseLong(args[1]) : 0;
+
+		Map<Long, GameEngine> engines = new HashMap<>();
+		Map<Long, Audit> audits = new HashMap<>();
+		BoardCommitment commitments = new BoardCommitment();
+		long records = 0, matches = 0, games = 0, shots = 0, mismatches = 0, revealed = 0, failed = 0;
+		long start = System.nanoTime();
+		while (reader.next()) {
+			if (one && reader.match != only) {
+				continue;
+			}
+			records++;
+			if (one) {
+				System.out.println(reader);
+			}
+			GameEngine engine = engines.get(reader.match);
+			Audit audit = audits.get(reader.match);
+			switch (reader.type) {
+			case MatchJournal.START:
+				engines.put(reader.match, new GameEngine(reader.rules));
+				matches++;
+				break;
+			case MatchJournal.BOARD:
+				if (engine == null) {
+					break; // started before the journal did
+				}
+				// The first board of the next round
+				if (engine.gameOver()) {
+					engine.reset();
+				}
+				engine.place(reader.seat, reader.ships, reader.numShips);
+				break;
+			case MatchJournal.COMMIT:
+				// A commit-reveal match, audited at each REVEAL instead of replayed
+				engines.remove(reader.match);
+				if (audit == null) {
+					audit = new Audit(engine == null ? Rules.CLASSIC : engine.rules);
+					audits.put(reader.match, audit);
+				}
+				System.arraycopy(reader.hash, 0, audit.commitments[reader.seat], 0, Protocol.HASH_BYTES);
+				audit.shots[reader.seat] = 0;
+				break;
+			case MatchJournal.REVEAL:
+				if (audit == null) {
+					break;
+				}
+				int target = reader.seat;
+				audit.revealed.clear();
+				int verdict = !audit.revealed.placeShips(reader.ships, reader.numShips) ? BoardCommitment.INVALID_FLEET
+						: commitments.verify(audit.commitments[target], reader.salt, audit.revealed, audit.cells[target],
+								audit.results[target], audit.shots[target]);
+				revealed++;
+				if (verdict != BoardCommitment.VERIFIED) {
+					failed++;
+					System.out.println("Reveal fails, " + BoardCommitment.describe(verdict) + ": " + reader);
+				}
+				break;
+			case MatchJournal.SHOT:
+			case MatchJournal.GAME_OVER:
+				if (audit != null) {
+					// Shots are kept against the board they hit
+					audit.add(1 - reader.seat, reader.cell, reader.result);
+					shots++;
+					if (reader.type == MatchJournal.GAME_OVER) {
+						games++;
+					}
+					break;
+				}
+				if (engine == null || engine.gameOver()) {
+					break;
+				}
+				if (engine.rules.salvo && reader.seat != engine.turn) {
+					engine.endTurn();
+				}
+				boolean inTurn = reader.seat == engine.turn;
+				int result = engine.fire(reader.cell);
+				shots++;
+				boolean lastShot = reader.type == MatchJournal.GAME_OVER;
+				if (!inTurn || result != reader.result || engine.gameOver() != lastShot) {
+					mismatches++;
+					System.out.println("Replay differs: " + reader);
+				}
+				if (engine.gameOver()) {
+					games++;
+				}
+				break;
+			case MatchJournal.END:
+				engines.remove(reader.match);
+				audits.remove(reader.match);
+				break;
+			default:
+				break;
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Replayed %d records: %d matches, %d games, %d shots in %.3f s (%.0f shots/s), %d mismatches%n",
+				records, matches, games, shots, seconds, shots / seconds, mismatches);
+		if (revealed > 0) {
+			System.out.printf("Audited %d revealed boards (%.0f/s), %d failed%n", revealed, revealed / seconds, failed);
+		}
+	}
+
+	// What a commit-reveal match has journalled so far this round, by seat
+	static final class Audit {
+		final byte[][] commitments = new byte[2][Protocol.HASH_BYTES];
+		final int[][] cells = new int[2][64];
+		final int[][] results = new int[2][64];
+		final int[] shots = new int[2];
+		// Scratch board each REVEAL is checked on
+		final Bitboard revealed;
+
+		Audit(Rules rules) {
+			revealed = new Bitboard(rules);
+		}
+
+		// A shot at the board in seat
+		void add(int seat, int cell, int result) {
+			if (shots[seat] == cells[seat].length) {
+				cells[seat] = Arrays.copyOf(cells[seat], 2 * shots[seat]);
+				results[seat] = Arrays.copyOf(results[seat], 2 * shots[seat]);
+			}
+			cells[seat][shots[seat]] = cell;
+			results[seat][shots[seat]++] = result;
+		}
+	}
+}
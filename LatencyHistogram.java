@@ -0,0 +1,124 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Description
+ * -----------
+ * This class counts latencies (in nanoseconds)
+ * into log-linear buckets, like an HDR
+ * histogram: each power of two is split into
+ * 32 equal buckets, so any percentile is exact
+ * to within about 3%, in a fixed 16 KB no
+ * matter how many values are recorded or how
+ * large they get. Any number of threads can
+ * record at once without locking. It is also
+ * the MBean that Metrics registers for each of
+ * its latencies.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+	static final int SUB_BITS = 5;
+	static final int SUB_BUCKETS = 1 << SUB_BITS;
+	static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	// Values below SUB_BUCKETS get a bucket each, larger ones are bucketed by
+	// their highest bit and the SUB_BITS bits after it
+	static int bucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) Math.max(value, 0);
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	// The smallest value that falls in a bucket
+	static long lowestValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+	}
+
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(nanos));
+	}
+
+	@Override
+	public long getCount() {
+		return count();
+	}
+
+	@Override
+	public double getP50Micros() {
+		return percentile(0.5) / 1e3;
+	}
+
+	@Override
+	public double getP99Micros() {
+		return percentile(0.99) / 1e3;
+	}
+
+	@Override
+	public double getP999Micros() {
+		return percentile(0.999) / 1e3;
+	}
+
+	@Override
+	public double getMaxMicros() {
+		return max() / 1e3;
+	}
+
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	// The value at or below which fraction (0 to 1) of the recorded values fall,
+	// or 0 if nothing was recorded
+	public long percentile(double fraction) {
+		long total = count();
+		if (total == 0) {
+			return 0;
+		}
+		long needed = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= needed) {
+				// report the middle of the bucket
+				return (lowestValue(i) + lowestValue(i + 1) - 1) / 2;
+			}
+		}
+		return lowestValue(BUCKETS - 1);
+	}
+
+	public long max() {
+		for (int i = BUCKETS - 1; i >= 0; i--) {
+			if (counts.get(i) > 0) {
+				return lowestValue(i + 1) - 1;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Description
+ * -----------
+ * This interface is what JMX tools (jconsole,
+ * VisualVM, ...) see of a LatencyHistogram
+ * registered by Metrics. Times are in
+ * microseconds.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public interface LatencyHistogramMBean {
+
+	long getCount();
+
+	double getP50Micros();
+
+	double getP99Micros();
+
+	double getP999Micros();
+
+	double getMaxMicros();
+
+	void reset();
+}
@@ -0,0 +1,488 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Description
+ * -----------
+ * This class load tests a game server with
+ * many headless players, all on this machine.
+ * Each player opens its own connection and
+ * talks exactly like a Battleship window: HELLO
+ * with its name, READY and BOARD with a random
+ * valid fleet, SHOT and GAME_OVER (or a SALVO
+ * a turn, by salvo rules) at a fixed rate, and
+ * always yes to a rematch. The server
+ * pairs them with each other by rating, which
+ * is spread over 1000 to 1999. In "random" mode
+ * every game gets a new fleet and shot order,
+ * in "scripted" mode each player replays the
+ * same fleet and shots every game.
+ *
+ * A move's latency is the time from a player
+ * sending a shot until its opponent reads it.
+ * Both ends are in this program, so the send
+ * time is handed over through an array indexed
+ * by player number (which is also the player's
+ * name). Only moves and games that finish
+ * within the run are counted.
+ *
+ * With no port, a GameServer is started inside
+ * this program, relaying or authoritative.
+ * Otherwise it connects to one already
+ * listening on localhost, for example
+ * "java GameSetup --server 1234 threads".
+ * Against an authoritative server the players
+ * never see each other's boards, so the move
+ * latency includes resolving the shot there.
+ *
+ * Spectators, if any, all WATCH the match the
+ * server says is the most watched, from half a
+ * second in, and only read. Their lag is the
+ * time from the shooter sending a shot until
+ * a spectator reads its MOVE, and a resync is
+ * the view sent again in place of moves a
+ * spectator fell too far behind on.
+ *
+ * Usage: java LoadGenerator [connections] [seconds] [shots/second per player]
+ *                           [random|scripted] [port|relay|authoritative]
+ *                           [spectators]
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class LoadGenerator {
+
+	final InetAddress host = InetAddress.getLoopbackAddress();
+	final int port;
+	final int connections;
+	final long shotInterval;
+	final boolean scripted;
+	final int spectators;
+
+	// When each player last sent a shot, read by its opponent
+	final AtomicLongArray sentAt;
+	final LatencyHistogram moveLatency = new LatencyHistogram();
+	final AtomicLong moves = new AtomicLong();
+	final AtomicLong games = new AtomicLong();
+	final AtomicLong failures = new AtomicLong();
+	final LatencyHistogram spectatorLag = new LatencyHistogram();
+	final AtomicLong watchedMoves = new AtomicLong();
+	final AtomicLong resyncs = new AtomicLong();
+	final AtomicLong droppedSpectators = new AtomicLong();
+
+	private final List<Player> players = new ArrayList<>();
+	private final List<Socket> watchers = new ArrayList<>();
+	private volatile long deadline;
+
+	public LoadGenerator(int port, int connections, double shotsPerSecond, boolean scripted, int spectators) {
+		this.port = port;
+		this.connections = connections;
+		this.shotInterval = shotsPerSecond > 0 ? (long) (1e9 / shotsPerSecond) : 0;
+		this.scripted = scripted;
+		this.spectators = spectators;
+		sentAt = new AtomicLongArray(connections);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+		double rate = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+		boolean scripted = args.length > 3 && args[3].equals("scripted");
+		int spectators = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+		if (connections % 2 != 0) {
+			connections++; // every player needs an opponent
+		}
+
+		GameServer server = null;
+		int port;
+		if (args.length > 4 && !args[4].equals("relay") && !args[4].equals("authoritative")) {
+			port = Integer.parseInt(args[4]);
+		} else {
+			server = new GameServer(0, args.length > 4 && args[4].equals("authoritative"));
+			server.open();
+			Thread serverThread = new Thread(server, "Battleship server");
+			serverThread.setDaemon(true);
+			serverThread.start();
+			port = server.localPort();
+		}
+
+		LoadGenerator load = new LoadGenerator(port, connections, rate, scripted, spectators);
+		System.out.printf("%d players and %d spectators on localhost:%d, %s games, %.1f shots/s each, for %d s%n",
+				connections, spectators, port, scripted ? "scripted" : "random", rate, seconds);
+		double elapsed = load.run(seconds);
+		load.report(elapsed);
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	// Plays for the given number of seconds, returns the seconds actually measured
+	public double run(int seconds) throws InterruptedException {
+		long start = System.nanoTime();
+		deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService executor = ThreadedGameServer.newConnectionExecutor();
+		for (int id = 0; id < connections; id++) {
+			Player player = new Player(id);
+			synchronized (players) {
+				players.add(player);
+			}
+			executor.execute(player);
+		}
+		if (spectators > 0) {
+			TimeUnit.MILLISECONDS.sleep(500); // for the matches to start
+			for (int i = 0; i < spectators; i++) {
+				executor.execute(this::watch);
+			}
+		}
+		long remaining = deadline - System.nanoTime();
+		if (remaining > 0) {
+			TimeUnit.NANOSECONDS.sleep(remaining);
+		}
+		// Time is up, cut every game off where it is
+		synchronized (players) {
+			for (Player player : players) {
+				player.close();
+			}
+		}
+		synchronized (watchers) {
+			for (Socket socket : watchers) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// already closed
+				}
+			}
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		return (deadline - start) / 1e9;
+	}
+
+	public void report(double seconds) {
+		System.out.printf("%d moves (%.0f/s), %d games (%.1f/s), %d failed connections%n", moves.get(),
+				moves.get() / seconds, games.get(), games.get() / seconds, failures.get());
+		System.out.printf("Move latency (us): p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+				moveLatency.percentile(0.5) / 1e3, moveLatency.percentile(0.99) / 1e3,
+				moveLatency.percentile(0.999) / 1e3, moveLatency.max() / 1e3);
+		if (spectators > 0) {
+			System.out.printf("%d moves seen by spectators (%.0f/s), %d resyncs, %d spectators dropped%n",
+					watchedMoves.get(), watchedMoves.get() / seconds, resyncs.get(), droppedSpectators.get());
+			System.out.printf("Spectator lag (us): p50 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+					spectatorLag.percentile(0.5) / 1e3, spectatorLag.percentile(0.99) / 1e3,
+					spectatorLag.percentile(0.999) / 1e3, spectatorLag.max() / 1e3);
+		}
+		// Only known when the server runs in this program
+		LatencyHistogram matchmaking = Metrics.MATCHMAKING;
+		if (matchmaking.count() > 0) {
+			System.out.printf("Matchmaking wait (ms): p50 %.1f, p99 %.1f, max %.1f%n", matchmaking.percentile(0.5) / 1e6,
+					matchmaking.percentile(0.99) / 1e6, matchmaking.max() / 1e6);
+		}
+	}
+
+	// One spectator: watches the most watched match until the run is over, and
+	// times each move
+	private void watch() {
+		try (Socket socket = new Socket(host, port)) {
+			synchronized (watchers) {
+				watchers.add(socket);
+			}
+			DataInputStream din = new DataInputStream(socket.getInputStream());
+			DataOutputStream dout = new DataOutputStream(socket.getOutputStream());
+			ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_FRAME);
+			ByteBuffer out = ByteBuffer.allocate(Protocol.HEADER + 4);
+			Protocol.watch(out, 0);
+			Protocol.send(dout, out);
+			int[] shooters = new int[2];
+			boolean first = true;
+			while (true) {
+				int type = Protocol.receive(din, in);
+				long now = System.nanoTime();
+				if (type == Protocol.WATCHING) {
+					shooters[0] = Integer.parseInt(Protocol.watchingName(in, 0));
+					shooters[1] = Integer.parseInt(Protocol.watchingName(in, 1));
+					if (!first) {
+						resyncs.incrementAndGet();
+					}
+					first = false;
+				} else if (type == Protocol.MOVE && now - deadline < 0) {
+					spectatorLag.record(now - sentAt.get(shooters[Protocol.moveSeat(in)]));
+					watchedMoves.incrementAndGet();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			// Closed at the end of the run, or dropped by the server
+			if (System.nanoTime() - deadline < 0) {
+				droppedSpectators.incrementAndGet();
+			}
+		}
+	}
+
+	// One headless player on its own thread, blocking like Battleship used to
+	final class Player implements Runnable {
+
+		final int id;
+		final long seed;
+		final int rating;
+		SplittableRandom random;
+		final FleetGenerator fleets = new FleetGenerator(0);
+		// Made for the server's rules once its HELLO is in
+		Bitboard selfBoard;
+		Bitboard oppBoard;
+		Rules rules;
+		// One turn's cells in a salvo game
+		int[] salvo;
+		int[] order;
+		int nextInOrder;
+		int opponent;
+		boolean movesFirst;
+		boolean authoritative;
+		long nextShotAt;
+		private boolean closed;
+		private Socket socket;
+		private DataOutputStream dout;
+		private final ByteBuffer in = ByteBuffer.allocate(Protocol.MAX_FRAME);
+		private final ByteBuffer out = ByteBuffer.allocate(Protocol.MAX_FRAME);
+
+		Player(int id) {
+			this.id = id;
+			this.seed = Simulator.gameSeed(42, id);
+			this.rating = 1000 + (int) Long.remainderUnsigned(seed, 1000);
+			this.random = new SplittableRandom(seed);
+		}
+
+		@Override
+		public void run() {
+			try {
+				synchronized (this) {
+					if (closed) {
+						return;
+					}
+					socket = new Socket(host, port);
+				}
+				socket.setTcpNoDelay(true);
+				DataInputStream din = new DataInputStream(socket.getInputStream());
+				dout = new DataOutputStream(socket.getOutputStream());
+
+				Protocol.hello(out, 0, rating, Rules.configured(), Integer.toString(id));
+				Protocol.send(dout, out);
+				int type;
+				while ((type = Protocol.receive(din, in)) == Protocol.HEARTBEAT) {
+					// still waiting for an opponent
+				}
+				if (type != Protocol.HELLO) {
+					throw new IOException("Expected HELLO, got " + Protocol.type(in));
+				}
+				opponent = Integer.parseInt(Protocol.helloName(in));
+				rules = Protocol.helloRules(in);
+				salvo = new int[rules.fleet.length];
+				selfBoard = new Bitboard(rules);
+				oppBoard = new Bitboard(rules);
+				order = new int[rules.cells];
+				movesFirst = (Protocol.helloFlags(in) & Protocol.HELLO_FIRST) == 0;
+				authoritative = (Protocol.helloFlags(in) & Protocol.HELLO_AUTHORITATIVE) != 0;
+				newRound();
+
+				while (true) {
+					switch (Protocol.receive(din, in)) {
+					case Protocol.READY:
+						// From an authoritative server, the opponent's board is in
+						if (authoritative && movesFirst) {
+							nextShotAt = System.nanoTime();
+							fire();
+						}
+						break;
+					case Protocol.RESULT:
+						int result = Protocol.resultCode(in);
+						oppBoard.recordShot(Protocol.cell(in), result, Protocol.resultShip(in));
+						if (Bitboard.fleetRemaining(result) == 0) {
+							gameWon();
+							Protocol.rematch(out, true);
+							Protocol.send(dout, out);
+						}
+						break;
+					case Protocol.RESULTS:
+						for (int i = 0; i < Protocol.resultsCount(in); i++) {
+							oppBoard.recordShot(Protocol.resultsCell(in, i), Protocol.resultsCode(in, i),
+									Protocol.resultsShip(in, i));
+						}
+						if (Protocol.resultsCount(in) > 0 && oppBoard.fleetRemaining == 0) {
+							gameWon();
+							Protocol.rematch(out, true);
+							Protocol.send(dout, out);
+						}
+						break;
+					case Protocol.SESSION:
+					case Protocol.HEARTBEAT:
+						break;
+					case Protocol.BOARD:
+						oppBoard.clear();
+						Protocol.boardShips(in, oppBoard);
+						if (movesFirst) {
+							nextShotAt = System.nanoTime();
+							fire();
+						}
+						break;
+					case Protocol.SHOT:
+						moveReceived();
+						selfBoard.fire(Protocol.cell(in));
+						fire();
+						break;
+					case Protocol.SALVO:
+						moveReceived();
+						for (int i = 0; i < Protocol.salvoCount(in); i++) {
+							selfBoard.fire(Protocol.salvoCell(in, i));
+						}
+						if (selfBoard.fleetRemaining == 0) {
+							Protocol.rematch(out, true);
+							Protocol.send(dout, out);
+						} else {
+							fire();
+						}
+						break;
+					case Protocol.GAME_OVER:
+						moveReceived();
+						selfBoard.fire(Protocol.cell(in));
+						Protocol.rematch(out, true);
+						Protocol.send(dout, out);
+						break;
+					case Protocol.REMATCH:
+						if (!Protocol.rematchAnswer(in)) {
+							close();
+							return;
+						}
+						newRound();
+						break;
+					default:
+						throw new IOException("Unexpected message " + Protocol.type(in));
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// Closed at the end of the run, or by the server
+				if (System.nanoTime() - deadline < 0) {
+					failures.incrementAndGet();
+				}
+			}
+			close();
+		}
+
+		// Places a new fleet, shuffles a new shot order and sends READY and BOARD
+		private void newRound() throws IOException {
+			if (scripted) {
+				random = new SplittableRandom(seed);
+			}
+			fleets.reseed(random.nextLong());
+			fleets.place(selfBoard);
+			oppBoard.clear();
+			for (int i = 0; i < order.length; i++) {
+				int j = random.nextInt(i + 1);
+				order[i] = order[j];
+				order[j] = i;
+			}
+			nextInOrder = 0;
+			Protocol.ready(out);
+			Protocol.board(out, selfBoard);
+			Protocol.send(dout, out);
+		}
+
+		// Waits for this player's next turn at the shot rate, then shoots at the
+		// next cell in its order that has not been hit or ruled out yet
+		private void fire() throws IOException {
+			long wait = nextShotAt - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			nextShotAt = Math.max(nextShotAt + shotInterval, System.nanoTime() - shotInterval);
+			if (rules.salvo) {
+				fireSalvo();
+				return;
+			}
+			int cell = order[nextInOrder++];
+			while (oppBoard.isHit(cell) || oppBoard.isMiss(cell)) {
+				cell = order[nextInOrder++];
+			}
+			if (authoritative) {
+				Protocol.shot(out, cell); // the RESULT comes back from the server
+			} else if (Bitboard.fleetRemaining(oppBoard.fire(cell)) == 0) {
+				Protocol.gameOver(out, cell);
+				Protocol.rematch(out, true);
+				gameWon();
+			} else {
+				Protocol.shot(out, cell);
+			}
+			sentAt.set(id, System.nanoTime());
+			Protocol.send(dout, out);
+		}
+
+		// One shot for each ship afloat, at the next cells in the order, all in one
+		// SALVO
+		private void fireSalvo() throws IOException {
+			int count = 0;
+			int shots = rules.shotsPerTurn(selfBoard.fleetRemaining);
+			while (count < shots && nextInOrder < order.length) {
+				int cell = order[nextInOrder++];
+				if (!oppBoard.isHit(cell) && !oppBoard.isMiss(cell)) {
+					salvo[count++] = cell;
+				}
+			}
+			boolean won = false;
+			if (!authoritative) {
+				int fired = 0;
+				while (fired < count && !won) {
+					won = Bitboard.fleetRemaining(oppBoard.fire(salvo[fired++])) == 0;
+				}
+				count = fired;
+			}
+			Protocol.salvo(out, salvo, count); // the RESULTS come back from an authoritative server
+			if (won) {
+				Protocol.rematch(out, true);
+				gameWon();
+			}
+			sentAt.set(id, System.nanoTime());
+			Protocol.send(dout, out);
+		}
+
+		private void gameWon() {
+			if (System.nanoTime() - deadline < 0) {
+				games.incrementAndGet();
+			}
+		}
+
+		// Times the shot the opponent just sent
+		private void moveReceived() {
+			long now = System.nanoTime();
+			if (now - deadline < 0) {
+				moveLatency.record(now - sentAt.get(opponent));
+				moves.incrementAndGet();
+			}
+		}
+
+		synchronized void close() {
+			closed = true; // and never connects if it has not yet
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (IOException e) {
+					// already closed
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,552 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledFuture;
+
+/*
+ * Description
+ * -----------
+ * This class is one match between two players
+ * on a server. It introduces the players to
+ * each other (the first seat fires first, just
+ * like the host in a direct game) and then
+ * relays their frames to each other, the same
+ * way the two Battleship windows would talk
+ * directly. The match ends when either player
+ * declines a rematch, or leaves for good.
+ *
+ * Along the way the match keeps both boards,
+ * whose turn it is and the rematch answers, so
+ * every shot can be journalled with its result
+ * and a player whose connection drops can
+ * resume. Each player gets a session token
+ * after HELLO; a player who reconnects within
+ * RESUME_MILLIS and sends it in a RESUME takes
+ * their seat back and gets a SNAPSHOT of the
+ * match (and the SHOTS frames that list every
+ * cell shot so far) instead of the frames they
+ * missed. Both players hear the registry's
+ * Rules in their HELLO.
+ * A player who takes longer than
+ * Timeouts.TURN_MILLIS to fire ends the match.
+ *
+ * In an authoritative match the boards never
+ * leave the server. A BOARD stays here (the
+ * opponent only hears READY once it is in),
+ * and the match fires each SHOT itself: the
+ * shooter gets a RESULT with the sunk ship,
+ * the opponent gets the SHOT, or
+ * GAME_OVER for the last ship. Shots out of
+ * turn are ignored, and so is GAME_OVER from
+ * a player.
+ *
+ * In a salvo game a turn is one SALVO frame of
+ * up to one cell per ship the shooter has
+ * afloat, and the match checks that count in
+ * both kinds of match. An authoritative match
+ * fires the whole salvo, stopping if the last
+ * ship sinks, and answers with one RESULTS;
+ * the opponent gets a SALVO of the cells that
+ * were fired and sees the loss on their own
+ * board.
+ *
+ * Any number of spectators can watch a match
+ * through its Broadcast, made when the first
+ * one asks. The match hands it every shot as it
+ * is journalled, and never waits for the
+ * spectators themselves.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Match {
+
+	final int NO_ANSWER = -1;
+	static final long RESUME_MILLIS = 5000;
+
+	final int id;
+	final MatchRegistry registry;
+	final boolean authoritative;
+	final Rules rules;
+	final Seat[] seats = new Seat[2];
+	final String[] names = new String[2];
+	final long[] tokens = new long[2];
+	final int[] rematch = { NO_ANSWER, NO_ANSWER };
+	boolean finished = false;
+
+	// The current round, as the players have told it
+	final Bitboard[] boards;
+	final boolean[] boardIn = new boolean[2];
+	int turn = 0;
+	boolean roundOver = false;
+	// When the player to move got the turn, by System.nanoTime()
+	long turnStarted;
+
+	// What spectators see, null until the first one asks
+	volatile Broadcast broadcast;
+
+	// Ends the match if a disconnected player does not come back in time
+	private final ScheduledFuture<?>[] expiry = new ScheduledFuture<?>[2];
+
+	final MatchJournal journal = MatchJournal.shared();
+	final long journalId = journal.newMatch();
+	final PlayerStats stats = PlayerStats.shared();
+
+	// Used to encode the few frames the match sends itself. It starts with room for
+	// the HELLO and SESSION, and only grows for a big salvo's RESULTS or a resume.
+	private ByteBuffer scratch;
+	// One SHOTS frame's cells, made by the first resume(), and how many cells each
+	// list has
+	private int[] shotCells;
+	private final int[] shotCounts = new int[4];
+	// One salvo's cells, with the result and sunk ship of each, for salvo()
+	private final int[] salvoCells;
+	private final int[] salvoResults;
+	private final long[] salvoShips;
+	// Its own buffer, because it can go out while scratch is busy: a bot places its
+	// fleet from inside start()
+	private final ByteBuffer ready = ByteBuffer.allocate(Protocol.HEADER);
+
+	public Match(int id, MatchRegistry registry, Seat first, String firstName, Seat second, String secondName) {
+		this.id = id;
+		this.registry = registry;
+		this.authoritative = registry.authoritative;
+		this.rules = registry.rules;
+		boards = new Bitboard[] { new Bitboard(rules), new Bitboard(rules) };
+		salvoCells = new int[rules.fleet.length];
+		salvoResults = new int[rules.fleet.length];
+		salvoShips = new long[rules.fleet.length];
+		scratch = ByteBuffer.allocate(2 * Protocol.HEADER + 3 + Protocol.rulesBytes(rules) + Protocol.MAX_NAME_BYTES + 8);
+		seats[0] = first;
+		seats[1] = second;
+		names[0] = firstName;
+		names[1] = secondName;
+		Protocol.ready(ready);
+		ready.flip();
+	}
+
+	// Tells each player their opponent's name, that seat 0 fires first, and their
+	// session token
+	public synchronized void start() {
+		journal.start(journalId, names[0], names[1], rules);
+		for (int seat = 0; seat < 2; seat++) {
+			tokens[seat] = registry.newSession(this);
+			scratch.clear();
+			int flags = (seat == 0 ? 0 : Protocol.HELLO_FIRST) | (authoritative ? Protocol.HELLO_AUTHORITATIVE : 0);
+			Protocol.hello(scratch, flags, Protocol.UNRATED, rules, names[1 - seat]);
+			Protocol.session(scratch, tokens[seat]);
+			sendAll(seat);
+		}
+	}
+
+	// Handles one frame from the player in seat
+	public synchronized void frameReceived(int seat, ByteBuffer frame) {
+		if (finished) {
+			return;
+		}
+		if (!cellsOnBoard(frame)) {
+			// Only a broken or hostile client names a cell off the board, so drop it
+			// before the cell reaches a Bitboard (its seat can still be resumed)
+			seats[seat].close();
+			return;
+		}
+		switch (Protocol.type(frame)) {
+		case Protocol.HELLO:
+		case Protocol.RESUME:
+			return; // names were already exchanged when the match started
+		case Protocol.READY:
+			if (authoritative) {
+				return; // sent once the board is in
+			}
+			break;
+		case Protocol.BOARD:
+			boards[seat].clear();
+			if (!Protocol.boardShips(frame, boards[seat])
+					|| (authoritative && boards[seat].validate() != Bitboard.VALID)) {
+				finish(); // a player who sends an invalid fleet is not playing fair
+				return;
+			}
+			boardIn[seat] = true;
+			turnStarted = System.nanoTime();
+			journal.board(journalId, seat, boards[seat]);
+			if (authoritative) {
+				seats[1 - seat].send(ready);
+				return;
+			}
+			break;
+		case Protocol.SHOT:
+		case Protocol.GAME_OVER:
+			if (authoritative) {
+				if (Protocol.type(frame) == Protocol.SHOT) {
+					shoot(seat, Protocol.cell(frame));
+				}
+				return;
+			}
+			int cell = Protocol.cell(frame);
+			boolean last = Protocol.type(frame) == Protocol.GAME_OVER;
+			if (cell >= 0 && cell < rules.cells) {
+				int result = boards[1 - seat].fire(cell);
+				journal.shot(journalId, seat, last ? MatchJournal.GAME_OVER : MatchJournal.SHOT, cell, result);
+				if (boardIn[1 - seat]) {
+					watched(seat, cell, result, boards[1 - seat].sunk);
+				}
+			}
+			turn = 1 - seat;
+			turnStarted = System.nanoTime();
+			if (last) {
+				roundWon(seat);
+			}
+			break;
+		case Protocol.SALVO:
+			if (!rules.salvo || Protocol.salvoCount(frame) > rules.shotsPerTurn(boards[seat].fleetRemaining)) {
+				finish(); // more shots than ships afloat, or no salvos in this game
+				return;
+			}
+			if (authoritative) {
+				salvo(seat, frame);
+				return;
+			}
+			// Relayed as it is, the shooter has already fired it
+			Bitboard target = boards[1 - seat];
+			for (int i = 0; i < Protocol.salvoCount(frame) && target.fleetRemaining > 0; i++) {
+				int salvoCell = Protocol.salvoCell(frame, i);
+				if (salvoCell >= 0 && salvoCell < rules.cells) {
+					journalShot(seat, salvoCell, target.fire(salvoCell));
+				}
+			}
+			turn = 1 - seat;
+			turnStarted = System.nanoTime();
+			if (boardIn[1 - seat] && target.fleetRemaining == 0 && !roundOver) {
+				roundWon(seat);
+			}
+			break;
+		case Protocol.RESULT:
+			// From a committed player, the only word on what the shot at them did
+			if (!boardIn[seat]) {
+				watched(1 - seat, Protocol.cell(frame), Protocol.resultCode(frame), Protocol.resultShip(frame));
+			}
+			break;
+		case Protocol.RESULTS:
+			for (int i = 0; i < Protocol.resultsCount(frame) && !boardIn[seat]; i++) {
+				watched(1 - seat, Protocol.resultsCell(frame, i), Protocol.resultsCode(frame, i),
+						Protocol.resultsShip(frame, i));
+			}
+			break;
+		case Protocol.REMATCH:
+			// Settle the answers before relaying, a bot answers (and places its next
+			// fleet) from inside send()
+			rematch[seat] = Protocol.rematchAnswer(frame) ? 1 : 0;
+			journal.rematch(journalId, seat, rematch[seat] == 1);
+			boolean ending = false;
+			if (rematch[1 - seat] != NO_ANSWER) {
+				if (rematch[0] == 1 && rematch[1] == 1) {
+					newRound();
+				} else {
+					ending = true;
+				}
+			}
+			seats[1 - seat].send(frame);
+			if (ending) {
+				finish();
+			}
+			return;
+		default:
+			break;
+		}
+		seats[1 - seat].send(frame);
+	}
+
+	// Whether every cell a shot or result frame names is on the board
+	private boolean cellsOnBoard(ByteBuffer frame) {
+		switch (Protocol.type(frame)) {
+		case Protocol.SHOT:
+		case Protocol.GAME_OVER:
+		case Protocol.RESULT:
+			return boards[0].inBounds(Protocol.cell(frame));
+		case Protocol.SALVO:
+			for (int i = 0; i < Protocol.salvoCount(frame); i++) {
+				if (!boards[0].inBounds(Protocol.salvoCell(frame, i))) {
+					return false;
+				}
+			}
+			return true;
+		case Protocol.RESULTS:
+			for (int i = 0; i < Protocol.resultsCount(frame); i++) {
+				if (!boards[0].inBounds(Protocol.resultsCell(frame, i))) {
+					return false;
+				}
+			}
+			return true;
+		default:
+			return true;
+		}
+	}
+
+	// Resolves a shot from seat in an authoritative match
+	private void shoot(int seat, int cell) {
+		if (!boardIn[0] || !boardIn[1] || roundOver || turn != seat || cell < 0 || cell >= rules.cells) {
+			return;
+		}
+		Bitboard target = boards[1 - seat];
+		int result = target.fire(cell);
+		boolean sunk = Bitboard.outcome(result) == Bitboard.SUNK;
+		scratch.clear();
+		Protocol.result(scratch, cell, result, sunk ? target.sunk : 0);
+		sendAll(seat);
+		if (Bitboard.outcome(result) == Bitboard.ALREADY_SHOT) {
+			return; // still their turn
+		}
+		boolean last = Bitboard.fleetRemaining(result) == 0;
+		journal.shot(journalId, seat, last ? MatchJournal.GAME_OVER : MatchJournal.SHOT, cell, result);
+		watched(seat, cell, result, target.sunk);
+		turn = 1 - seat;
+		turnStarted = System.nanoTime();
+		scratch.clear();
+		if (last) {
+			roundWon(seat);
+			Protocol.gameOver(scratch, cell);
+		} else {
+			Protocol.shot(scratch, cell);
+		}
+		sendLast(1 - seat);
+	}
+
+	// Resolves a salvo from seat in an authoritative match, whose size was checked
+	private void salvo(int seat, ByteBuffer frame) {
+		int count = Protocol.salvoCount(frame);
+		if (!boardIn[0] || !boardIn[1] || roundOver || turn != seat) {
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			int cell = Protocol.salvoCell(frame, i);
+			if (cell < 0 || cell >= rules.cells) {
+				return;
+			}
+		}
+		// A cell that was already shot (or is twice in the salvo) is a spent shot
+		Bitboard target = boards[1 - seat];
+		int fired = 0;
+		while (fired < count && target.fleetRemaining > 0) {
+			int cell = Protocol.salvoCell(frame, fired);
+			int result = target.fire(cell);
+			salvoCells[fired] = cell;
+			salvoResults[fired] = result;
+			salvoShips[fired++] = Bitboard.outcome(result) == Bitboard.SUNK ? target.sunk : 0;
+			journalShot(seat, cell, result);
+		}
+		clearScratch(Protocol.HEADER + Protocol.RESULT_BYTES * fired);
+		Protocol.results(scratch, salvoCells, salvoResults, salvoShips, fired);
+		sendAll(seat);
+		turn = 1 - seat;
+		turnStarted = System.nanoTime();
+		if (target.fleetRemaining == 0) {
+			roundWon(seat);
+		}
+		clearScratch(Protocol.HEADER + 4 * fired);
+		Protocol.salvo(scratch, salvoCells, fired);
+		sendLast(1 - seat);
+	}
+
+	// Journals one salvo shot from seat, unless it was at a cell already shot
+	private void journalShot(int seat, int cell, int result) {
+		if (Bitboard.outcome(result) != Bitboard.ALREADY_SHOT) {
+			journal.shot(journalId, seat, Bitboard.fleetRemaining(result) == 0 ? MatchJournal.GAME_OVER
+					: MatchJournal.SHOT, cell, result);
+			if (boardIn[1 - seat]) {
+				watched(seat, cell, result, boards[1 - seat].sunk);
+			}
+		}
+	}
+
+	// Passes a shot from seat on to the spectators, if there are any
+	private void watched(int seat, int cell, int result, long ship) {
+		if (broadcast != null) {
+			broadcast.move(seat, cell, result, ship);
+		}
+	}
+
+	// The match's Broadcast, made on the first call. Null once the match is over.
+	public synchronized Broadcast watch() {
+		if (finished) {
+			return null;
+		}
+		if (broadcast == null) {
+			broadcast = new Broadcast(id, rules, names[0], names[1], boards, turn, roundOver);
+		}
+		return broadcast;
+	}
+
+	// The player in seat sank the last ship. Only a win the boards agree with
+	// counts towards the ratings.
+	private void roundWon(int seat) {
+		roundOver = true;
+		Metrics.SERVER_GAMES.gameCompleted();
+		if (boards[1 - seat].fleetRemaining == 0) {
+			stats.gameOver(names[seat], names[1 - seat]);
+		}
+	}
+
+	private void newRound() {
+		rematch[0] = rematch[1] = NO_ANSWER;
+		boards[0].clear();
+		boards[1].clear();
+		boardIn[0] = boardIn[1] = false;
+		turn = 0;
+		roundOver = false;
+		if (broadcast != null) {
+			broadcast.newRound();
+		}
+	}
+
+	// Ends the match if the player to move has taken longer than TURN_MILLIS
+	public synchronized void checkTurn(long now) {
+		if (!finished && boardIn[0] && boardIn[1] && !roundOver
+				&& Timeouts.expired(turnStarted, now, Timeouts.TURN_MILLIS)) {
+			finish();
+		}
+	}
+
+	// A player's connection closed. Unless the match is over, their seat is kept
+	// for RESUME_MILLIS in case they come back.
+	public synchronized void seatClosed(Seat closed) {
+		int seat = closed == seats[0] ? 0 : closed == seats[1] ? 1 : -1;
+		if (finished || seat == -1 || expiry[seat] != null) {
+			return; // already replaced by a resumed connection, or already waiting
+		}
+		expiry[seat] = registry.schedule(() -> expire(seat, closed), RESUME_MILLIS);
+	}
+
+	private synchronized void expire(int seat, Seat closed) {
+		if (!finished && seats[seat] == closed) {
+			finish();
+		}
+	}
+
+	// Gives the seat with this session token to a new connection and sends it a
+	// SNAPSHOT and its SHOTS. Returns the seat, or -1 if the token is not (or no
+	// longer) good.
+	public synchronized int resume(long token, Seat seat) {
+		int index = token == tokens[0] ? 0 : token == tokens[1] ? 1 : -1;
+		if (finished || index == -1) {
+			return -1;
+		}
+		Seat old = seats[index];
+		seats[index] = seat;
+		if (expiry[index] != null) {
+			expiry[index].cancel(false);
+			expiry[index] = null;
+		}
+		// The old connection may not have noticed it is dead yet
+		old.close();
+
+		int other = 1 - index;
+		int flags = 0;
+		if (boardIn[0] && boardIn[1] && !roundOver && turn == index) {
+			flags |= Protocol.SNAP_YOUR_TURN;
+		}
+		if (boardIn[index]) {
+			flags |= Protocol.SNAP_SELF_BOARD;
+		}
+		if (boardIn[other]) {
+			flags |= Protocol.SNAP_OPP_BOARD;
+		}
+		if (roundOver) {
+			flags |= Protocol.SNAP_ROUND_OVER;
+		}
+		if (rematch[index] != NO_ANSWER) {
+			flags |= Protocol.SNAP_SELF_REMATCH;
+		}
+		if (rematch[other] != NO_ANSWER) {
+			flags |= Protocol.SNAP_OPP_REMATCH;
+		}
+		if (rematch[other] == 1) {
+			flags |= Protocol.SNAP_OPP_PLAY_AGAIN;
+		}
+		Bitboard self = boards[index];
+		Bitboard opp = boards[other];
+		long[][] lists = { self.hits, self.misses, opp.hits, opp.misses };
+		for (int list = 0; list < 4; list++) {
+			shotCounts[list] = 0;
+			for (long word : lists[list]) {
+				shotCounts[list] += Long.bitCount(word);
+			}
+		}
+		clearScratch(Protocol.MAX_FRAME);
+		// The opponent's ships only if they are not secret
+		Protocol.snapshot(scratch, flags, shotCounts, self, authoritative ? null : opp);
+		sendAll(index);
+		for (int list = 0; list < 4; list++) {
+			sendShots(index, list, lists[list]);
+		}
+		return index;
+	}
+
+	// Sends every cell set in bits as SHOTS frames, SHOTS_PER_FRAME cells at a time
+	private void sendShots(int seat, int list, long[] bits) {
+		if (shotCells == null) {
+			shotCells = new int[Protocol.SHOTS_PER_FRAME];
+		}
+		int count = 0;
+		for (int word = 0; word < bits.length; word++) {
+			for (long set = bits[word]; set != 0; set &= set - 1) {
+				shotCells[count++] = word << 6 | Long.numberOfTrailingZeros(set);
+				if (count == Protocol.SHOTS_PER_FRAME) {
+					clearScratch(Protocol.MAX_FRAME);
+					Protocol.shots(scratch, list, shotCells, 0, count);
+					sendAll(seat);
+					count = 0;
+				}
+			}
+		}
+		if (count > 0) {
+			clearScratch(Protocol.MAX_FRAME);
+			Protocol.shots(scratch, list, shotCells, 0, count);
+			sendAll(seat);
+		}
+	}
+
+	// Clears scratch, first growing it if it has less than bytes of room
+	private void clearScratch(int bytes) {
+		if (scratch.capacity() < bytes) {
+			scratch = ByteBuffer.allocate(Math.max(bytes, Math.min(Protocol.MAX_FRAME, 2 * scratch.capacity())));
+		}
+		scratch.clear();
+	}
+
+	// Sends every frame in scratch to seat, one at a time
+	private void sendAll(int seat) {
+		scratch.flip();
+		while (scratch.hasRemaining()) {
+			int end = scratch.position() + Protocol.LENGTH_BYTES + (scratch.getShort(scratch.position()) & 0xFFFF);
+			seats[seat].send(scratch);
+			scratch.position(end);
+		}
+	}
+
+	// Sends the one frame in scratch to seat, and leaves scratch alone afterwards: a
+	// bot in that seat answers from inside send(), which uses scratch again
+	private void sendLast(int seat) {
+		scratch.flip();
+		seats[seat].send(scratch);
+	}
+
+	private void finish() {
+		finished = true;
+		for (int seat = 0; seat < 2; seat++) {
+			if (expiry[seat] != null) {
+				expiry[seat].cancel(false);
+			}
+		}
+		journal.end(journalId);
+		if (broadcast != null) {
+			broadcast.close();
+		}
+		seats[0].close();
+		seats[1].close();
+		registry.remove(this);
+	}
+}
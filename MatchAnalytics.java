@@ -0,0 +1,463 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Description
+ * -----------
+ * This class works out where players put
+ * their ships and where they shoot, from a
+ * MatchJournal: for every board and fleet
+ * played, how often each cell had a ship on
+ * it (from the boards at READY, or revealed
+ * after a commit-reveal round), how often it
+ * was shot at and hit, how many shots players
+ * took to hit anything, and how many shots
+ * the winners took. Everything is counted in
+ * plain long arrays, by cell or by number of
+ * shots.
+ *
+ * The segments are read in parallel on every
+ * core, one to a thread, after a first quick
+ * pass that only reads START records, for the
+ * rules of matches that began in an earlier
+ * segment. Board and shot counts need nothing
+ * else; a round that runs over the end of a
+ * segment is joined up afterwards from the
+ * little each thread kept about it (shots and
+ * first hit per seat), in segment order.
+ *
+ * With --follow it keeps reading the journal
+ * as a server writes it, on one thread, and
+ * prints the counts every REPORT_MILLIS.
+ *
+ * Usage: java MatchAnalytics [--follow] <journal directory>
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class MatchAnalytics {
+
+	// Grids are printed with at most this many columns and rows, bigger boards
+	// are shrunk to fit by adding up blocks of cells
+	static final int PRINTED_SIDE = 20;
+	static final long REPORT_MILLIS = 10_000;
+	static final long POLL_MILLIS = 100;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		boolean follow = args.length > 0 && args[0].equals("--follow");
+		if (args.length != (follow ? 2 : 1)) {
+			System.out.println("Usage: java MatchAnalytics [--follow] <journal directory>");
+			return;
+		}
+		Path dir = Paths.get(args[follow ? 1 : 0]);
+		if (follow) {
+			follow(dir);
+			return;
+		}
+		long start = System.nanoTime();
+		Map<Rules, Stats> totals = run(dir);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long bytes = 0;
+		for (Path segment : JournalReader.segments(dir)) {
+			bytes += Files.size(segment);
+		}
+		long games = 0;
+		for (Stats stats : totals.values()) {
+			games += stats.games;
+		}
+		System.out.printf("%d games in %d MB of journal in %.2f s (%.0f games/min) on %d cores%n", games,
+				bytes >> 20, seconds, games * 60 / seconds, Runtime.getRuntime().availableProcessors());
+		report(totals);
+	}
+
+	// Counts everything in the journal in dir, by the rules it was played by
+	public static Map<Rules, Stats> run(Path dir) throws IOException {
+		List<Path> segments = JournalReader.segments(dir);
+		try {
+			Map<Long, Rules> started = IntStream.range(0, segments.size()).parallel()
+					.mapToObj(segment -> starts(segments.get(segment))).reduce(new HashMap<>(), (a, b) -> {
+						Map<Long, Rules> both = new HashMap<>(a);
+						both.putAll(b);
+						return both;
+					});
+			List<Worker> parts = IntStream.range(0, segments.size()).parallel().mapToObj(segment -> {
+				Worker worker = new Worker(started);
+				worker.read(new JournalReader(segments.subList(segment, segment + 1)));
+				return worker;
+			}).collect(Collectors.toList());
+			return join(parts, started);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// The rules of every match that starts in one segment
+	private static Map<Long, Rules> starts(Path segment) {
+		Map<Long, Rules> rules = new HashMap<>();
+		try {
+			JournalReader reader = new JournalReader(List.of(segment));
+			while (reader.next(MatchJournal.START)) {
+				rules.put(reader.match, reader.rules);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return rules;
+	}
+
+	// Adds up the counts of the segments, and finishes the rounds that ran from
+	// one segment into the next
+	private static Map<Rules, Stats> join(List<Worker> parts, Map<Long, Rules> started) {
+		Map<Rules, Stats> totals = new HashMap<>();
+		// Rounds still going at the end of the segments so far, by match
+		Map<Long, Round> open = new HashMap<>();
+		for (Worker part : parts) {
+			for (Stats stats : part.stats.values()) {
+				totals.computeIfAbsent(stats.rules, Stats::new).add(stats);
+			}
+			for (Map.Entry<Long, Round> entry : part.continued.entrySet()) {
+				Round earlier = open.remove(entry.getKey());
+				Round round = earlier == null ? entry.getValue() : earlier.then(entry.getValue());
+				Rules rules = started.get(entry.getKey());
+				if (!round.ended) {
+					open.put(entry.getKey(), round);
+				} else if (round.winner != -1 && rules != null) {
+					totals.computeIfAbsent(rules, Stats::new).game(round);
+				}
+			}
+			for (Map.Entry<Long, Game> entry : part.games.entrySet()) {
+				Round round = entry.getValue().round;
+				if (round != null && round != part.continued.get(entry.getKey())) {
+					open.put(entry.getKey(), round);
+				}
+			}
+		}
+		return totals;
+	}
+
+	// Reads the journal as it is written, until the program is stopped
+	private static void follow(Path dir) throws IOException, InterruptedException {
+		while (!Files.isDirectory(dir)) {
+			Thread.sleep(POLL_MILLIS); // the server has not opened its journal yet
+		}
+		JournalReader reader = new JournalReader(dir);
+		reader.follow();
+		// Only rounds of matches that start while following are counted whole
+		Worker worker = new Worker(new HashMap<>());
+		long nextReport = System.currentTimeMillis() + REPORT_MILLIS;
+		while (true) {
+			while (reader.next()) {
+				worker.add(reader);
+			}
+			if (System.currentTimeMillis() >= nextReport) {
+				System.out.printf("%n%tT%n", System.currentTimeMillis());
+				report(worker.stats);
+				nextReport += REPORT_MILLIS;
+			}
+			Thread.sleep(POLL_MILLIS);
+		}
+	}
+
+	private static void report(Map<Rules, Stats> totals) {
+		for (Stats stats : totals.values()) {
+			System.out.println();
+			System.out.printf("%s: %d boards, %d shots, %d games", stats.rules, stats.boards, stats.shots,
+					stats.games);
+			if (stats.games > 0) {
+				System.out.printf(", first player won %.2f%%%n", 100.0 * stats.firstPlayerWins / stats.games);
+				System.out.println("Winner's shots: " + describe(stats.toWin, 0));
+				System.out.printf("Shots to a first hit: %s, never %.2f%%%n", describe(stats.firstHit, 1),
+						100.0 * stats.firstHit[0] / (2 * stats.games));
+			} else {
+				System.out.println();
+			}
+			if (stats.boards > 0) {
+				System.out.println("Ships placed (% of boards with a ship on the cell)");
+				printGrid(stats.rules, stats.placed, null, stats.boards);
+			}
+			if (stats.shots > 0) {
+				System.out.println("Shots fired (% of boards the cell was shot on)");
+				printGrid(stats.rules, stats.fired, null, Math.max(stats.boards, 2 * stats.games));
+				System.out.println("Hit rate (% of shots at the cell that hit)");
+				printGrid(stats.rules, stats.hit, stats.fired, 0);
+			}
+		}
+	}
+
+	// Mean and percentiles of a distribution counted by number of shots, from
+	// first shots on
+	private static String describe(long[] counts, int first) {
+		long total = 0, sum = 0;
+		for (int shots = first; shots < counts.length; shots++) {
+			total += counts[shots];
+			sum += shots * counts[shots];
+		}
+		if (total == 0) {
+			return "none";
+		}
+		return String.format("mean %.2f, p50 %d, p90 %d, p99 %d, min %d, max %d", (double) sum / total,
+				percentile(counts, first, total, 0.5), percentile(counts, first, total, 0.9),
+				percentile(counts, first, total, 0.99), percentile(counts, first, total, 0),
+				percentile(counts, first, total, 1));
+	}
+
+	// The smallest number of shots that at least fraction of the counts from first
+	// on are at
+	private static int percentile(long[] counts, int first, long total, double fraction) {
+		long needed = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int shots = first; shots < counts.length; shots++) {
+			seen += counts[shots];
+			if (seen >= needed) {
+				return shots;
+			}
+		}
+		return counts.length - 1;
+	}
+
+	// Prints counts by cell as percentages, either of the matching cells of per or
+	// (when per is null) of total for every cell
+	private static void printGrid(Rules rules, long[] counts, long[] per, long total) {
+		int block = (Math.max(rules.width, rules.height) + PRINTED_SIDE - 1) / PRINTED_SIDE;
+		for (int top = 0; top < rules.height; top += block) {
+			StringBuilder line = new StringBuilder();
+			for (int left = 0; left < rules.width; left += block) {
+				long count = 0, of = 0;
+				for (int row = top; row < Math.min(rules.height, top + block); row++) {
+					for (int col = left; col < Math.min(rules.width, left + block); col++) {
+						int cell = row * rules.width + col;
+						count += counts[cell];
+						of += per == null ? total : per[cell];
+					}
+				}
+				line.append(of == 0 ? "    ." : String.format("%5.0f", 100.0 * count / of));
+			}
+			System.out.println(line);
+		}
+	}
+
+	// The counts for one board and fleet, added to by one thread at a time
+	static final class Stats {
+
+		final Rules rules;
+		long boards = 0;
+		long shots = 0;
+		long games = 0;
+		long firstPlayerWins = 0;
+		// By cell: boards with a ship there, shots at it, and the shots that hit
+		final long[] placed;
+		final long[] fired;
+		final long[] hit;
+		// Players of finished games by how many shots they took to hit anything (0
+		// for never), and winners by how many shots they took in all
+		final long[] firstHit;
+		final long[] toWin;
+
+		Stats(Rules rules) {
+			this.rules = rules;
+			placed = new long[rules.cells];
+			fired = new long[rules.cells];
+			hit = new long[rules.cells];
+			firstHit = new long[rules.cells + 1];
+			toWin = new long[rules.cells + 1];
+		}
+
+		// A fleet, as a BOARD or REVEAL record has it
+		void board(long[] ships, int count) {
+			boards++;
+			for (int i = 0; i < count; i++) {
+				int start = Bitboard.shipStart(ships[i]);
+				int length = Bitboard.shipLength(ships[i]);
+				boolean vertical = Bitboard.shipVertical(ships[i]);
+				int row = start / rules.width;
+				int col = start % rules.width;
+				if (start < 0 || start >= rules.cells || (vertical ? row : col) + length > (vertical ? rules.height
+						: rules.width)) {
+					continue; // not on this board
+				}
+				for (int cell = 0, step = vertical ? rules.width : 1; cell < length; cell++) {
+					placed[start + cell * step]++;
+				}
+			}
+		}
+
+		void shot(int cell, int result) {
+			if (cell < 0 || cell >= rules.cells) {
+				return;
+			}
+			shots++;
+			fired[cell]++;
+			if (Bitboard.outcome(result) != Bitboard.MISS) {
+				hit[cell]++;
+			}
+		}
+
+		// A round that was won
+		void game(Round round) {
+			games++;
+			if (round.winner == 0) {
+				firstPlayerWins++;
+			}
+			toWin[Math.min(round.shots[round.winner], rules.cells)]++;
+			for (int seat = 0; seat < 2; seat++) {
+				firstHit[Math.min(round.firstHit[seat], rules.cells)]++;
+			}
+		}
+
+		void add(Stats other) {
+			boards += other.boards;
+			shots += other.shots;
+			games += other.games;
+			firstPlayerWins += other.firstPlayerWins;
+			for (int cell = 0; cell < rules.cells; cell++) {
+				placed[cell] += other.placed[cell];
+				fired[cell] += other.fired[cell];
+				hit[cell] += other.hit[cell];
+			}
+			for (int shots = 0; shots <= rules.cells; shots++) {
+				firstHit[shots] += other.firstHit[shots];
+				toWin[shots] += other.toWin[shots];
+			}
+		}
+	}
+
+	// What is kept of one round, or of the part of it in one segment
+	static final class Round {
+
+		final int[] shots = new int[2];
+		// The shot (counting from 1) each seat first hit something with, 0 for none yet
+		final int[] firstHit = new int[2];
+		int winner = -1;
+		// Over, won or abandoned
+		boolean ended = false;
+
+		void shot(int seat, int result) {
+			shots[seat]++;
+			if (firstHit[seat] == 0 && Bitboard.outcome(result) != Bitboard.MISS) {
+				firstHit[seat] = shots[seat];
+			}
+		}
+
+		// Adds the rest of the round, from a later segment
+		Round then(Round rest) {
+			for (int seat = 0; seat < 2; seat++) {
+				if (firstHit[seat] == 0 && rest.firstHit[seat] != 0) {
+					firstHit[seat] = shots[seat] + rest.firstHit[seat];
+				}
+				shots[seat] += rest.shots[seat];
+			}
+			winner = rest.winner;
+			ended = rest.ended;
+			return this;
+		}
+	}
+
+	// One match as a Worker has seen it
+	static final class Game {
+
+		// null if the match started before the journal did
+		final Stats stats;
+		// The round being played, null between rounds
+		Round round;
+
+		Game(Stats stats) {
+			this.stats = stats;
+		}
+	}
+
+	// Counts the records of one segment, or of a journal being followed
+	static final class Worker {
+
+		// Rules of the matches that started before the records this reads
+		final Map<Long, Rules> started;
+		final Map<Rules, Stats> stats = new HashMap<>();
+		final Map<Long, Game> games = new HashMap<>();
+		// The first round of every match that was already going when this began,
+		// which can be the end of one from the segment before
+		final Map<Long, Round> continued = new HashMap<>();
+
+		Worker(Map<Long, Rules> started) {
+			this.started = started;
+		}
+
+		void read(JournalReader reader) {
+			try {
+				while (reader.next()) {
+					add(reader);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Counts the reader's current record
+		void add(JournalReader record) {
+			Game game = games.get(record.match);
+			if (game == null) {
+				Rules rules = record.type == MatchJournal.START ? record.rules : started.get(record.match);
+				game = new Game(rules == null ? null : stats.computeIfAbsent(rules, Stats::new));
+				games.put(record.match, game);
+				if (record.type != MatchJournal.START) {
+					game.round = new Round();
+					continued.put(record.match, game.round);
+				}
+			}
+			switch (record.type) {
+			case MatchJournal.BOARD:
+			case MatchJournal.REVEAL:
+				if (game.stats != null) {
+					game.stats.board(record.ships, record.numShips);
+				}
+				break;
+			case MatchJournal.SHOT:
+			case MatchJournal.GAME_OVER:
+				if (game.stats != null) {
+					game.stats.shot(record.cell, record.result);
+				}
+				if (game.round == null) {
+					game.round = new Round();
+				}
+				game.round.shot(record.seat, record.result);
+				if (record.type == MatchJournal.GAME_OVER) {
+					game.round.winner = record.seat;
+					finish(record.match, game);
+				}
+				break;
+			case MatchJournal.END:
+				finish(record.match, game);
+				games.remove(record.match);
+				break;
+			default:
+				break;
+			}
+		}
+
+		// The round in progress is over: counted now, unless it may have begun in an
+		// earlier segment
+		private void finish(long match, Game game) {
+			Round round = game.round;
+			if (round == null) {
+				return;
+			}
+			round.ended = true;
+			game.round = null;
+			if (round.winner != -1 && game.stats != null && continued.get(match) != round) {
+				game.stats.game(round);
+			}
+		}
+	}
+}
@@ -0,0 +1,418 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Description
+ * -----------
+ * This class records every match event (the
+ * start, each board at READY or its commitment
+ * and reveal, each shot with its result,
+ * GAME_OVER, rematch answers and the end) in
+ * an append-only binary journal, so
+ * matches can be replayed and audited later with
+ * JournalReader. Each record is
+ *
+ *   length (2 bytes, counts everything after it)
+ *   type   (1 byte)
+ *   seat   (1 byte, 0 = the player who fires first)
+ *   match  (8 bytes)
+ *   time   (8 bytes, milliseconds since 1970)
+ *   payload
+ *
+ * The journal is a directory of fixed-size
+ * segment files mapped into memory; a segment
+ * that cannot fit the next record is closed and
+ * the next one is started. A record never spans
+ * two segments, and the unused end of a segment
+ * stays zero, which reads as length 0.
+ *
+ * The game and server threads only copy records
+ * into an in-memory batch. There are STRIPES
+ * batches, each with its own lock, and all of a
+ * match's records go to the same one, so they
+ * stay in order while matches on different
+ * threads rarely wait for each other. A writer
+ * thread swaps the batches out every few
+ * milliseconds and copies them into the mapped
+ * segment, so nothing that plays a game waits
+ * for the disk. If the writer falls behind, a
+ * batch grows (up to MAX_BATCH), and past that
+ * whoever records waits for the writer: a
+ * record is never dropped, since a match missing
+ * one cannot be replayed.
+ *
+ * Journaling is off unless the system property
+ * battleship.journal names a directory, e.g.
+ *
+ *   java -Dbattleship.journal=journal GameSetup --server 1234
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class MatchJournal implements Runnable {
+
+	// Record types
+	static final int START = 1; // rules, then two names: length(1) + UTF-8, first seat first
+	static final int BOARD = 2; // ship list, as in a Protocol BOARD
+	static final int SHOT = 3; // cell(4) + Bitboard result(4)
+	static final int GAME_OVER = 4; // cell(4) + Bitboard result(4) of the final shot
+	static final int REMATCH = 5; // answer(1), 1 = play again
+	static final int END = 6; // no payload
+	static final int COMMIT = 7; // board hash(32), in place of BOARD in a commit-reveal game
+	static final int REVEAL = 8; // salt(16) + ship list, once the round is over
+
+	static final int LENGTH_BYTES = 2;
+	static final int HEADER = LENGTH_BYTES + 1 + 1 + 8 + 8;
+	static final int SEGMENT_SIZE = 16 << 20;
+	static final int STRIPES = 16;
+	static final int BATCH_SIZE = 64 << 10;
+	static final int MAX_BATCH = 4 << 20;
+	static final long FLUSH_MILLIS = 5;
+	static final String SUFFIX = ".journal";
+
+	private static MatchJournal shared;
+
+	final Path dir;
+	// Match ids start at the time the journal opened, so they stay unique across runs
+	private final AtomicLong nextMatch = new AtomicLong(System.currentTimeMillis() * 1000);
+	// Made by open(), so a disabled journal costs nothing
+	private Stripe[] stripes;
+	private volatile boolean closed = false;
+	private volatile Thread writer;
+
+	private int segmentNumber;
+	private MappedByteBuffer segment;
+
+	// dir == null makes a journal that ignores everything
+	MatchJournal(Path dir) {
+		this.dir = dir;
+	}
+
+	// The journal named by the battleship.journal property, opened on first use and
+	// shared by everything in this program. Never null; disabled if the property is
+	// not set or the directory cannot be used.
+	public static synchronized MatchJournal shared() {
+		if (shared == null) {
+			String property = System.getProperty("battleship.journal");
+			shared = new MatchJournal(property == null ? null : Paths.get(property));
+			if (shared.dir != null) {
+				try {
+					shared.open();
+				} catch (IOException e) {
+					System.err.println("Match journal disabled: " + e.getMessage());
+					shared = new MatchJournal(null);
+				}
+			}
+		}
+		return shared;
+	}
+
+	public boolean enabled() {
+		return writer != null;
+	}
+
+	// Starts a new segment after any already in dir, and the writer thread
+	void open() throws IOException {
+		Files.createDirectories(dir);
+		segmentNumber = 0;
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+			for (Path path : segments) {
+				segmentNumber = Math.max(segmentNumber, segmentNumber(path));
+			}
+		}
+		roll();
+		stripes = new Stripe[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+		writer = new Thread(this, "Battleship journal");
+		writer.setDaemon(true);
+		writer.start();
+		// Write out the last batch even when the game calls System.exit
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	static Path segmentPath(Path dir, int number) {
+		return dir.resolve(String.format("%08d%s", number, SUFFIX));
+	}
+
+	static int segmentNumber(Path path) {
+		String name = path.getFileName().toString();
+		try {
+			return Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	// A new match id, to pass to all of that match's records
+	public long newMatch() {
+		return nextMatch.incrementAndGet();
+	}
+
+	public void start(long match, String firstName, String secondName, Rules rules) {
+		if (writer == null) {
+			return;
+		}
+		byte[] first = truncate(firstName);
+		byte[] second = truncate(secondName);
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, START, 0, match, Protocol.rulesBytes(rules) + 2 + first.length + second.length)) {
+				Protocol.putRules(stripe.batch, rules);
+				stripe.batch.put((byte) first.length).put(first);
+				stripe.batch.put((byte) second.length).put(second);
+			}
+		}
+	}
+
+	// board must be labelled
+	public void board(long match, int seat, Bitboard board) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, BOARD, seat, match, Protocol.shipListBytes(board))) {
+				Protocol.putShips(stripe.batch, board);
+			}
+		}
+	}
+
+	// type is SHOT, or GAME_OVER for the shot that sank the last ship
+	public void shot(long match, int seat, int type, int cell, int result) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, type, seat, match, 8)) {
+				stripe.batch.putInt(cell).putInt(result);
+			}
+		}
+	}
+
+	public void rematch(long match, int seat, boolean playAgain) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, REMATCH, seat, match, 1)) {
+				stripe.batch.put((byte) (playAgain ? 1 : 0));
+			}
+		}
+	}
+
+	public void commit(long match, int seat, byte[] hash) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, COMMIT, seat, match, Protocol.HASH_BYTES)) {
+				stripe.batch.put(hash, 0, Protocol.HASH_BYTES);
+			}
+		}
+	}
+
+	public void reveal(long match, int seat, byte[] salt, Bitboard board) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			if (begin(stripe, REVEAL, seat, match, Protocol.SALT_BYTES + Protocol.shipListBytes(board))) {
+				stripe.batch.put(salt, 0, Protocol.SALT_BYTES);
+				Protocol.putShips(stripe.batch, board);
+			}
+		}
+	}
+
+	public void end(long match) {
+		if (writer == null) {
+			return;
+		}
+		Stripe stripe = stripe(match);
+		synchronized (stripe) {
+			begin(stripe, END, 0, match, 0);
+		}
+	}
+
+	// The stripe that holds every record of match
+	private Stripe stripe(long match) {
+		return stripes[(int) (match & (STRIPES - 1))];
+	}
+
+	private static byte[] truncate(String name) {
+		byte[] bytes = name == null ? new byte[0] : name.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > Protocol.MAX_NAME_BYTES) {
+			byte[] shorter = new byte[Protocol.MAX_NAME_BYTES];
+			System.arraycopy(bytes, 0, shorter, 0, shorter.length);
+			return shorter;
+		}
+		return bytes;
+	}
+
+	// Writes a record header into the batch of stripe, which the caller holds the
+	// lock of. Makes room first by growing the batch or, once it is MAX_BATCH,
+	// waiting for the writer to take it. Returns false if the record has to be
+	// skipped because the journal has closed.
+	private boolean begin(Stripe stripe, int type, int seat, long match, int payload) {
+		boolean interrupted = false;
+		while (!closed && stripe.batch.remaining() < HEADER + payload) {
+			if (stripe.batch.capacity() < MAX_BATCH) {
+				ByteBuffer bigger = ByteBuffer.allocate(Math.min(MAX_BATCH, 2 * stripe.batch.capacity()));
+				stripe.batch.flip();
+				stripe.batch = bigger.put(stripe.batch);
+			} else {
+				try {
+					stripe.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (closed) {
+			return false;
+		}
+		ByteBuffer batch = stripe.batch;
+		batch.putShort((short) (HEADER - LENGTH_BYTES + payload));
+		batch.put((byte) type);
+		batch.put((byte) seat);
+		batch.putLong(match);
+		batch.putLong(System.currentTimeMillis());
+		return true;
+	}
+
+	// The writer thread: every FLUSH_MILLIS, swaps out each stripe's batch and
+	// copies it to the segment
+	@Override
+	public void run() {
+		while (true) {
+			boolean last;
+			synchronized (this) {
+				if (!closed) {
+					try {
+						wait(FLUSH_MILLIS);
+					} catch (InterruptedException e) {
+						closed = true;
+					}
+				}
+				last = closed;
+			}
+			try {
+				for (Stripe stripe : stripes) {
+					ByteBuffer full;
+					synchronized (stripe) {
+						full = stripe.batch;
+						// A batch that grew goes back to its usual size once written
+						stripe.batch = stripe.writing.capacity() > BATCH_SIZE ? ByteBuffer.allocate(BATCH_SIZE)
+								: stripe.writing;
+						stripe.writing = full;
+						stripe.notifyAll();
+					}
+					append(full.flip());
+					full.clear();
+				}
+				if (last) {
+					segment.force();
+				}
+			} catch (IOException e) {
+				System.err.println("Match journal stopped: " + e.getMessage());
+				last = true;
+			}
+			if (last) {
+				synchronized (this) {
+					closed = true;
+					writer = null;
+					notifyAll();
+				}
+				// Nobody waits for a batch that will never be written
+				for (Stripe stripe : stripes) {
+					synchronized (stripe) {
+						stripe.notifyAll();
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	// Copies whole records into the segment, as many at a time as fit
+	private void append(ByteBuffer records) throws IOException {
+		byte[] array = records.array();
+		int start = records.position();
+		int limit = records.limit();
+		while (start < limit) {
+			int end = start;
+			while (end < limit) {
+				int length = LENGTH_BYTES + (records.getShort(end) & 0xFFFF);
+				if (end + length - start > segment.remaining()) {
+					break;
+				}
+				end += length;
+			}
+			if (end == start) {
+				roll();
+				continue;
+			}
+			segment.put(array, start, end - start);
+			start = end;
+		}
+	}
+
+	// Finishes the current segment and maps the next one
+	private void roll() throws IOException {
+		if (segment != null) {
+			segment.force();
+		}
+		segmentNumber++;
+		try (FileChannel channel = FileChannel.open(segmentPath(dir, segmentNumber), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+		}
+	}
+
+	// Writes out what is left and stops the writer
+	public void close() {
+		synchronized (this) {
+			if (writer == null) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+			while (writer != null) {
+				try {
+					wait(1000);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	// One of the STRIPES batches, and the one the writer last took from it
+	private static final class Stripe {
+		ByteBuffer batch = ByteBuffer.allocate(BATCH_SIZE);
+		ByteBuffer writing = ByteBuffer.allocate(BATCH_SIZE);
+	}
+}
@@ -0,0 +1,150 @@
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Description
+ * -----------
+ * This class keeps every live Match on a server
+ * in memory, keyed by match id. Matches add
+ * themselves when created and remove themselves
+ * once both players have left. It also hands
+ * out the session tokens players use to resume
+ * a match after a dropped connection, and ends
+ * matches whose player to move has run out of
+ * time (Timeouts.TURN_MILLIS). On a server
+ * started in authoritative mode, every match
+ * it creates keeps the boards to itself.
+ * Every match is played by the server's Rules,
+ * which each player hears in its HELLO. A
+ * spectator asks for a match by id, or for
+ * whichever match has the most spectators.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class MatchRegistry {
+
+	private final ConcurrentHashMap<Integer, Match> matches = new ConcurrentHashMap<>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+	private final ConcurrentHashMap<Long, Match> sessions = new ConcurrentHashMap<>();
+	private final SecureRandom tokens = new SecureRandom();
+	// New matches resolve shots here instead of relaying boards (see Match)
+	final boolean authoritative;
+	final Rules rules;
+
+	// Timed tasks wait on the Timeouts timer, then run on the owner (the thread that
+	// is allowed to touch the seats)
+	private final Executor owner;
+	private final ScheduledFuture<?> sweep;
+
+	// For servers whose seats can be used from any thread
+	public MatchRegistry(boolean authoritative, Rules rules) {
+		this(Runnable::run, authoritative, rules);
+	}
+
+	public MatchRegistry(Executor owner, boolean authoritative, Rules rules) {
+		this.owner = owner;
+		this.authoritative = authoritative;
+		this.rules = rules;
+		sweep = Timeouts.every(() -> owner.execute(this::checkTurns), Timeouts.SWEEP_MILLIS);
+	}
+
+	// Pairs two players who have sent their HELLO into a new match. The caller
+	// starts it once both players know their match.
+	public Match create(Seat first, String firstName, Seat second, String secondName) {
+		Match match = new Match(nextId.incrementAndGet(), this, first, firstName, second, secondName);
+		matches.put(match.id, match);
+		return match;
+	}
+
+	// Pairs a player with a computer opponent, which fires second. The caller
+	// starts it once the player knows their match.
+	public Match createWithBot(Seat player, String playerName) {
+		BotPlayer bot = new BotPlayer(System.nanoTime());
+		Match match = create(player, playerName, bot, BotPlayer.NAME);
+		bot.join(match, 1);
+		return match;
+	}
+
+	public Match get(int id) {
+		return matches.get(id);
+	}
+
+	// The match a spectator asked for, or with id 0 the one with the most
+	// spectators (the newest if nobody is watching any). Null if there is none.
+	public Match watched(int id) {
+		if (id != 0) {
+			return matches.get(id);
+		}
+		Match best = null;
+		int bestWatchers = -1;
+		for (Match match : matches.values()) {
+			Broadcast broadcast = match.broadcast;
+			int watchers = broadcast == null ? 0 : broadcast.watchers();
+			if (watchers > bestWatchers || (watchers == bestWatchers && match.id > best.id)) {
+				best = match;
+				bestWatchers = watchers;
+			}
+		}
+		return best;
+	}
+
+	// A new session token for a player in match
+	long newSession(Match match) {
+		long token;
+		do {
+			token = tokens.nextLong();
+		} while (token == 0 || sessions.putIfAbsent(token, match) != null);
+		return token;
+	}
+
+	// The match a session token belongs to, or null
+	public Match session(long token) {
+		return sessions.get(token);
+	}
+
+	// Runs task on the owner after delay milliseconds, unless cancelled first
+	public ScheduledFuture<?> schedule(Runnable task, long delay) {
+		return Timeouts.TIMER.schedule(() -> owner.execute(task), delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void checkTurns() {
+		long now = System.nanoTime();
+		for (Match match : matches.values()) {
+			match.checkTurn(now);
+		}
+	}
+
+	// Stops checking turns, for when the server stops
+	public void close() {
+		sweep.cancel(false);
+	}
+
+	void remove(Match match) {
+		for (long token : match.tokens) {
+			sessions.remove(token);
+		}
+		if (matches.remove(match.id) != null) {
+			completed.incrementAndGet();
+		}
+	}
+
+	public int size() {
+		return matches.size();
+	}
+
+	public int completed() {
+		return completed.get();
+	}
+}
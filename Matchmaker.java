@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/*
+ * Description
+ * -----------
+ * This class pairs the players waiting on a
+ * server by rating. A player joins with a
+ * rating and is paired with the closest waiting
+ * player within START_BAND points (of those as
+ * close, whoever has waited longest). Nobody that
+ * close? The player waits, and the band widens
+ * by BAND_GROWTH points every second, so a
+ * player with an unusual rating still gets a
+ * game eventually. Whoever has waited longer
+ * takes the first seat.
+ *
+ * Waiting players are kept in one lock-free
+ * queue per BUCKET_WIDTH points of rating, so
+ * any number of threads can join, leave and
+ * pair at once without a shared lock. Each
+ * waiting player holds a ticket whose state is
+ * claimed with compare-and-set, which makes
+ * sure a player is paired (or leaves) exactly
+ * once. A sweep on the Timeouts timer retries
+ * the waiting players with their widened bands,
+ * longest waiting first.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Matchmaker<T> {
+
+	// A player who does not know their rating (Protocol.UNRATED) starts here
+	static final int DEFAULT_RATING = 1500;
+	static final int MAX_RATING = 3999;
+	static final int BUCKET_WIDTH = 50;
+	static final int BUCKETS = MAX_RATING / BUCKET_WIDTH + 1;
+	// Rating points either side at first, and added per second of waiting
+	static final int START_BAND = Integer.getInteger("battleship.matchBand", 100);
+	static final int BAND_GROWTH = Integer.getInteger("battleship.matchBandGrowth", 50);
+	static final long SWEEP_MILLIS = 100;
+
+	// Ticket states
+	static final int WAITING = 0;
+	static final int HELD = 1; // being paired by the sweep, for a moment
+	static final int TAKEN = 2; // paired or left, and about to leave its queue
+
+	private final ConcurrentLinkedQueue<Ticket>[] buckets;
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final BiConsumer<T, T> paired;
+	private final ScheduledFuture<?> sweep;
+	// The waiting players of one sweep, only used on the timer thread
+	private final List<Ticket> swept = new ArrayList<>();
+
+	// paired is called with the two players of each new pair, the one who waited
+	// longer first, on whichever thread made the pair
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public Matchmaker(BiConsumer<T, T> paired) {
+		this.paired = paired;
+		buckets = new ConcurrentLinkedQueue[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new ConcurrentLinkedQueue<>();
+		}
+		sweep = Timeouts.every(this::sweep, SWEEP_MILLIS);
+	}
+
+	// Pairs the player right away if someone close enough is waiting, otherwise
+	// queues them. Keep the ticket to leave with.
+	public Ticket join(T player, int rating) {
+		int clamped = rating == Protocol.UNRATED ? DEFAULT_RATING : Math.max(0, Math.min(MAX_RATING, rating));
+		Ticket ticket = new Ticket(player, clamped, System.nanoTime());
+		Ticket partner = findPartner(ticket, START_BAND, ticket.joined);
+		if (partner != null) {
+			ticket.state.set(TAKEN);
+			pair(partner, ticket, ticket.joined);
+			return ticket;
+		}
+		waiting.incrementAndGet();
+		buckets[ticket.rating / BUCKET_WIDTH].offer(ticket);
+		return ticket;
+	}
+
+	// How far from their rating a player who joined at joined is paired by now
+	static int band(long joined, long now) {
+		long millis = (now - joined) / 1_000_000;
+		return (int) Math.min(MAX_RATING, START_BAND + millis * BAND_GROWTH / 1000);
+	}
+
+	// Claims the waiting player whose rating is closest to ticket's, within band
+	// of it (or within their own band, if that has grown wider), and of those as
+	// close the one who has waited longest. Returns null if there is none.
+	private Ticket findPartner(Ticket ticket, int band, long now) {
+		int home = ticket.rating / BUCKET_WIDTH;
+		int reach = band / BUCKET_WIDTH + 1;
+		while (true) {
+			Ticket best = null;
+			int bestGap = Integer.MAX_VALUE;
+			// Nobody in a bucket distance away is closer than (distance - 1) * BUCKET_WIDTH + 1
+			for (int distance = 0; distance <= reach && (distance - 1) * BUCKET_WIDTH < bestGap; distance++) {
+				for (int side = 0; side < (distance == 0 ? 1 : 2); side++) {
+					int bucket = side == 0 ? home + distance : home - distance;
+					if (bucket < 0 || bucket >= BUCKETS) {
+						continue;
+					}
+					Iterator<Ticket> tickets = buckets[bucket].iterator();
+					while (tickets.hasNext()) {
+						Ticket other = tickets.next();
+						int state = other.state.get();
+						int gap = Math.abs(other.rating - ticket.rating);
+						if (state == TAKEN) {
+							tickets.remove();
+						} else if (other != ticket && state == WAITING && gap <= Math.max(band, band(other.joined, now))
+								&& (gap < bestGap || gap == bestGap && other.joined - best.joined < 0)) {
+							best = other;
+							bestGap = gap;
+						}
+					}
+				}
+			}
+			if (best == null) {
+				return null;
+			}
+			// Left or paired since we looked? Look again. Its queue drops it later.
+			if (best.state.compareAndSet(WAITING, TAKEN)) {
+				waiting.decrementAndGet();
+				return best;
+			}
+		}
+	}
+
+	private void pair(Ticket a, Ticket b, long now) {
+		Metrics.MATCHMAKING.record(now - a.joined);
+		Metrics.MATCHMAKING.record(now - b.joined);
+		if (a.joined - b.joined <= 0) {
+			paired.accept(a.player, b.player);
+		} else {
+			paired.accept(b.player, a.player);
+		}
+	}
+
+	// Retries every waiting player with their widened band, longest waiting first,
+	// on the timer thread
+	private void sweep() {
+		long now = System.nanoTime();
+		for (ConcurrentLinkedQueue<Ticket> bucket : buckets) {
+			Iterator<Ticket> tickets = bucket.iterator();
+			while (tickets.hasNext()) {
+				Ticket ticket = tickets.next();
+				if (ticket.state.get() == TAKEN) {
+					tickets.remove();
+				} else {
+					swept.add(ticket);
+				}
+			}
+		}
+		swept.sort((a, b) -> Long.compare(a.joined - b.joined, 0));
+		for (Ticket ticket : swept) {
+			if (!ticket.state.compareAndSet(WAITING, HELD)) {
+				continue;
+			}
+			Ticket partner = findPartner(ticket, band(ticket.joined, now), now);
+			if (partner == null) {
+				ticket.state.set(WAITING);
+				continue;
+			}
+			ticket.state.set(TAKEN);
+			waiting.decrementAndGet();
+			pair(ticket, partner, now);
+		}
+		swept.clear();
+	}
+
+	// Players waiting right now
+	public int waiting() {
+		return waiting.get();
+	}
+
+	// Stops widening bands, for when the server stops
+	public void close() {
+		sweep.cancel(false);
+	}
+
+	// One player's place in the queue
+	final class Ticket {
+
+		final T player;
+		final int rating;
+		final long joined;
+		final AtomicInteger state = new AtomicInteger(WAITING);
+
+		Ticket(T player, int rating, long joined) {
+			this.player = player;
+			this.rating = rating;
+			this.joined = joined;
+		}
+
+		// Takes the player out of the queue. Returns false if they were already
+		// paired.
+		boolean leave() {
+			while (true) {
+				if (state.compareAndSet(WAITING, TAKEN)) {
+					waiting.decrementAndGet();
+					return true;
+				}
+				if (state.get() == TAKEN) {
+					return false;
+				}
+				Thread.onSpinWait(); // the sweep is pairing them right now
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Description
+ * -----------
+ * This class holds the counters and latency
+ * histograms for a Battleship window and the
+ * game servers, and registers them as JMX
+ * MBeans under "Battleship:*" the first time
+ * any of them is used:
+ *
+ *   Handshake     connected until the opponent's
+ *                 HELLO arrived
+ *   ShotRoundTrip "Fire!" until the opponent's
+ *                 next shot reached the radar
+ *                 (includes the opponent's
+ *                 thinking when they are human)
+ *   Validation    checking the placed fleet
+ *   Rematch       our rematch answer sent until
+ *                 the opponent's was in
+ *   Matchmaking   a player's wait on a server
+ *                 until they were paired
+ *   ClientGames   games finished in this window
+ *   ServerGames   games finished in any Match
+ *                 on a server in this program
+ *
+ * Recording is lock free and never allocates,
+ * so it is always on.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public final class Metrics {
+
+	static final LatencyHistogram HANDSHAKE = new LatencyHistogram();
+	static final LatencyHistogram SHOT_ROUND_TRIP = new LatencyHistogram();
+	static final LatencyHistogram VALIDATION = new LatencyHistogram();
+	static final LatencyHistogram REMATCH = new LatencyHistogram();
+	static final LatencyHistogram MATCHMAKING = new LatencyHistogram();
+	static final GameCounter CLIENT_GAMES = new GameCounter();
+	static final GameCounter SERVER_GAMES = new GameCounter();
+
+	static {
+		register("Battleship:type=Latency,name=Handshake", HANDSHAKE);
+		register("Battleship:type=Latency,name=ShotRoundTrip", SHOT_ROUND_TRIP);
+		register("Battleship:type=Latency,name=Validation", VALIDATION);
+		register("Battleship:type=Latency,name=Rematch", REMATCH);
+		register("Battleship:type=Latency,name=Matchmaking", MATCHMAKING);
+		register("Battleship:type=Games,name=ClientGames", CLIENT_GAMES);
+		register("Battleship:type=Games,name=ServerGames", SERVER_GAMES);
+	}
+
+	private Metrics() {
+	}
+
+	// Metrics are nice to have, so a failure here is printed and the game goes on
+	private static void register(String name, Object bean) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Description
+ * -----------
+ * This class wraps the socket to the opponent
+ * (or server). Once started, a background
+ * reader thread decodes incoming Protocol
+ * frames into a queue and hands them to a
+ * Listener through an Executor, which for the
+ * Swing game is SwingUtilities::invokeLater.
+ * That way nothing ever blocks the event
+ * dispatch thread waiting on the network.
+ *
+ * Once started, it also sends a HEARTBEAT when
+ * it has sent nothing for a while, and closes
+ * itself if nothing (not even a heartbeat) has
+ * arrived for Timeouts.IDLE_MILLIS. Heartbeats
+ * are never handed to the Listener.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class PeerConnection implements Runnable {
+
+	// Receives frames and disconnects, always on the deliverer's thread
+	public interface Listener {
+		// frame holds one complete frame starting at its position
+		void frameReceived(ByteBuffer frame);
+
+		void connectionClosed(IOException cause);
+	}
+
+	final Socket socket;
+	final DataInputStream din;
+	final DataOutputStream dout;
+
+	// Decoded frames waiting for delivery, and spare buffers to reuse for them
+	private final ConcurrentLinkedQueue<ByteBuffer> inbox = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<ByteBuffer> spare = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+	private volatile IOException closedBy;
+
+	// When a frame was last received and sent, by System.nanoTime()
+	private volatile long lastRead = System.nanoTime();
+	private long lastWrite = lastRead;
+	private volatile boolean timedOut = false;
+	private final ByteBuffer heartbeat = ByteBuffer.allocate(Protocol.HEADER);
+	private ScheduledFuture<?> ticker;
+
+	private Listener listener;
+	private Executor deliverer;
+
+	public PeerConnection(Socket socket) throws IOException {
+		this.socket = socket;
+		socket.setTcpNoDelay(true);
+		din = new DataInputStream(socket.getInputStream());
+		dout = new DataOutputStream(socket.getOutputStream());
+	}
+
+	// Sends everything encoded in out, then clears it
+	public synchronized void send(ByteBuffer out) throws IOException {
+		Protocol.send(dout, out);
+		lastWrite = System.nanoTime();
+	}
+
+	// Blocking read of one frame, skipping heartbeats, only for use before start()
+	public int receive(ByteBuffer frame) throws IOException {
+		int type;
+		while ((type = Protocol.receive(din, frame)) == Protocol.HEARTBEAT) {
+			// keep waiting
+		}
+		lastRead = System.nanoTime();
+		return type;
+	}
+
+	// Limits how long receive() waits for any frame, 0 = forever
+	public void setReceiveTimeout(long millis) throws IOException {
+		socket.setSoTimeout((int) millis);
+	}
+
+	// Starts the background reader
+	public void start(Listener listener, Executor deliverer) {
+		this.listener = listener;
+		this.deliverer = deliverer;
+		ticker = Timeouts.every(this::tick, Timeouts.SWEEP_MILLIS);
+		Thread reader = new Thread(this, "Battleship reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	// Runs on the Timeouts timer
+	private void tick() {
+		long now = System.nanoTime();
+		if (Timeouts.expired(lastRead, now, Timeouts.IDLE_MILLIS)) {
+			timedOut = true;
+			close();
+			return;
+		}
+		synchronized (this) {
+			if (Timeouts.expired(lastWrite, now, Timeouts.HEARTBEAT_MILLIS)) {
+				Protocol.heartbeat(heartbeat);
+				try {
+					send(heartbeat);
+				} catch (IOException e) {
+					close(); // the reader reports it
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				ByteBuffer frame = spare.poll();
+				if (frame == null) {
+					frame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+				}
+				int type = Protocol.receive(din, frame);
+				lastRead = System.nanoTime();
+				if (type == Protocol.HEARTBEAT) {
+					frame.clear();
+					spare.add(frame);
+					continue;
+				}
+				inbox.add(frame);
+				scheduleDrain();
+			}
+		} catch (EOFException e) {
+			closedBy = new EOFException("Opponent disconnected");
+		} catch (IOException e) {
+			closedBy = timedOut ? new SocketTimeoutException("Opponent stopped responding") : e;
+		}
+		ticker.cancel(false);
+		scheduleDrain();
+	}
+
+	private void scheduleDrain() {
+		if (drainScheduled.compareAndSet(false, true)) {
+			deliverer.execute(this::drain);
+		}
+	}
+
+	// Delivers every queued frame in order, then the disconnect if there was one
+	private void drain() {
+		drainScheduled.set(false);
+		ByteBuffer frame;
+		while ((frame = inbox.poll()) != null) {
+			listener.frameReceived(frame);
+			spare.add(frame);
+		}
+		IOException cause = closedBy;
+		if (cause != null) {
+			closedBy = null;
+			listener.connectionClosed(cause);
+		}
+	}
+
+	public void close() {
+		if (ticker != null) {
+			ticker.cancel(false);
+		}
+		try {
+			socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,341 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Description
+ * -----------
+ * This class keeps every player's wins, losses
+ * and Elo rating by name. Each finished game
+ * moves the winner's and loser's ratings by up
+ * to K_FACTOR points, depending on how expected
+ * the result was, and a RatingIndex keeps the
+ * leaderboard in order as it happens.
+ *
+ * Games update memory only. The players that
+ * changed are written behind: a writer thread
+ * appends them to the stats file every
+ * FLUSH_MILLIS, so no game ever waits for the
+ * disk. The file is a log of player records,
+ * the last one for a name wins, and it is
+ * compacted to one record per player when it
+ * is loaded.
+ *
+ * The stats are only kept on disk if the system
+ * property battleship.stats names a file, e.g.
+ *
+ *   java -Dbattleship.stats=players.stats GameSetup --server 1234
+ *
+ * and are also shown through JMX, under
+ * "Battleship:type=Players".
+ *
+ * Usage: java PlayerStats <stats file> [how many]
+ * (prints the leaderboard)
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class PlayerStats implements PlayerStatsMBean, Runnable {
+
+	static final double START_RATING = 1500;
+	static final double K_FACTOR = 32;
+	static final long FLUSH_MILLIS = 1000;
+
+	private static PlayerStats shared;
+
+	final Path file;
+	private final Map<String, Player> players = new HashMap<>();
+	private final RatingIndex index = new RatingIndex();
+	// Changed since the last flush, each at most once (see Player.dirty)
+	private List<Player> dirty = new ArrayList<>();
+	private List<Player> flushing = new ArrayList<>();
+	private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+	private boolean closed = false;
+	private volatile Thread writer;
+
+	// file == null keeps the stats in memory only
+	PlayerStats(Path file) {
+		this.file = file;
+	}
+
+	// The stats named by the battleship.stats property, loaded on first use and
+	// shared by everything in this program. Never null; in memory only if the
+	// property is not set or the file cannot be used.
+	public static synchronized PlayerStats shared() {
+		if (shared == null) {
+			String property = System.getProperty("battleship.stats");
+			shared = new PlayerStats(property == null ? null : Paths.get(property));
+			if (shared.file != null) {
+				try {
+					shared.open();
+				} catch (IOException e) {
+					System.err.println("Player stats not saved: " + e.getMessage());
+					shared = new PlayerStats(null);
+				}
+			}
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(shared,
+						new ObjectName("Battleship:type=Players"));
+			} catch (JMException e) {
+				e.printStackTrace();
+			}
+		}
+		return shared;
+	}
+
+	// Reads the file (if there is one), rewrites it compacted and starts the writer
+	void open() throws IOException {
+		if (Files.exists(file)) {
+			try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+				load(new DataInputStream(in));
+			}
+		}
+		Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(compacted)) {
+			DataOutputStream data = new DataOutputStream(batch);
+			for (Player player : players.values()) {
+				player.write(data);
+			}
+			batch.writeTo(out);
+			batch.reset();
+		}
+		Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		writer = new Thread(this, "Battleship stats");
+		writer.setDaemon(true);
+		writer.start();
+		// Write out the last changes even when the game calls System.exit
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+	}
+
+	private void load(DataInputStream in) throws IOException {
+		while (true) {
+			String name;
+			int wins, losses;
+			double rating;
+			try {
+				name = in.readUTF();
+				wins = in.readInt();
+				losses = in.readInt();
+				rating = in.readDouble();
+			} catch (EOFException e) {
+				return; // the end, or a record cut off by a crash
+			}
+			Player player = players.get(name);
+			if (player == null) {
+				player = new Player(name);
+				players.put(name, player);
+			} else {
+				index.remove(player);
+			}
+			player.wins = wins;
+			player.losses = losses;
+			player.rating = rating;
+			index.add(player);
+		}
+	}
+
+	private Player player(String name) {
+		Player player = players.get(name);
+		if (player == null) {
+			player = new Player(name);
+			players.put(name, player);
+			index.add(player);
+		}
+		return player;
+	}
+
+	// Counts a finished game and moves both ratings
+	public synchronized void gameOver(String winnerName, String loserName) {
+		if (winnerName == null || loserName == null || winnerName.equals(loserName)) {
+			return; // nothing to learn from a game against oneself
+		}
+		Player winner = player(winnerName);
+		Player loser = player(loserName);
+		// The winner's expected score, from 0 to 1
+		double expected = 1 / (1 + Math.pow(10, (loser.rating - winner.rating) / 400));
+		double change = K_FACTOR * (1 - expected);
+		index.remove(winner);
+		index.remove(loser);
+		winner.rating += change;
+		loser.rating -= change;
+		index.add(winner);
+		index.add(loser);
+		winner.wins++;
+		loser.losses++;
+		changed(winner);
+		changed(loser);
+	}
+
+	private void changed(Player player) {
+		if (!player.dirty && writer != null) {
+			player.dirty = true;
+			dirty.add(player);
+		}
+	}
+
+	// A player's rating rounded for Protocol and the Matchmaker, or fallback for
+	// someone who has not finished a game yet
+	public synchronized int rating(String name, int fallback) {
+		Player player = players.get(name);
+		return player == null ? fallback : (int) Math.round(player.rating);
+	}
+
+	public synchronized int wins(String name) {
+		Player player = players.get(name);
+		return player == null ? 0 : player.wins;
+	}
+
+	public synchronized int losses(String name) {
+		Player player = players.get(name);
+		return player == null ? 0 : player.losses;
+	}
+
+	@Override
+	public synchronized int getPlayers() {
+		return players.size();
+	}
+
+	// The k best players as "rank. name rating (wins-losses)"
+	@Override
+	public synchronized String[] top(int k) {
+		List<Player> top = new ArrayList<>(Math.min(k, players.size()));
+		index.top(k, top);
+		String[] lines = new String[top.size()];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = (i + 1) + ". " + top.get(i);
+		}
+		return lines;
+	}
+
+	// 1 for the best player, 0 for someone who has not finished a game
+	@Override
+	public synchronized int rank(String name) {
+		Player player = players.get(name);
+		return player == null ? 0 : index.rank(player);
+	}
+
+	// The writer thread: every FLUSH_MILLIS, encodes the changed players and
+	// appends them to the file
+	@Override
+	public void run() {
+		try (OutputStream out = new FileOutputStream(file.toFile(), true)) {
+			DataOutputStream data = new DataOutputStream(batch);
+			while (true) {
+				boolean last;
+				synchronized (this) {
+					if (!closed) {
+						try {
+							wait(FLUSH_MILLIS);
+						} catch (InterruptedException e) {
+							closed = true;
+						}
+					}
+					List<Player> changed = dirty;
+					dirty = flushing;
+					flushing = changed;
+					for (Player player : flushing) {
+						player.dirty = false;
+						player.write(data);
+					}
+					flushing.clear();
+					last = closed;
+				}
+				batch.writeTo(out);
+				batch.reset();
+				if (last) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Player stats stopped saving: " + e.getMessage());
+		}
+		synchronized (this) {
+			closed = true;
+			writer = null;
+			notifyAll();
+		}
+	}
+
+	// Writes out what is left and stops the writer
+	public void close() {
+		synchronized (this) {
+			if (writer == null) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+			while (writer != null) {
+				try {
+					wait(1000);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: java PlayerStats <stats file> [how many]");
+			return;
+		}
+		PlayerStats stats = new PlayerStats(Paths.get(args[0]));
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(stats.file))) {
+			stats.load(new DataInputStream(in));
+		}
+		System.out.println(stats.getPlayers() + " players");
+		for (String line : stats.top(args.length > 1 ? Integer.parseInt(args[1]) : 10)) {
+			System.out.println(line);
+		}
+	}
+
+	// One player's record
+	static final class Player {
+
+		final String name;
+		int wins;
+		int losses;
+		double rating = START_RATING;
+		boolean dirty;
+
+		Player(String name) {
+			this.name = name;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeUTF(name);
+			out.writeInt(wins);
+			out.writeInt(losses);
+			out.writeDouble(rating);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %.0f (%d-%d)", name, rating, wins, losses);
+		}
+	}
+}
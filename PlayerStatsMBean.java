@@ -0,0 +1,24 @@
+/*
+ * Description
+ * -----------
+ * This interface is what JMX shows of
+ * PlayerStats: how many players it knows, the
+ * leaderboard, and one player's rank.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public interface PlayerStatsMBean {
+
+	int getPlayers();
+
+	String[] top(int k);
+
+	int rank(String name);
+}
@@ -0,0 +1,460 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Description
+ * -----------
+ * This class picks shots for a computer player.
+ * Every way a ship of the remaining fleet could
+ * still be placed (straight, on the board, not
+ * on a known miss, and not touching a hit or a
+ * sunken ship of another ship, the same rule
+ * shipsValid() enforces) is counted for every
+ * cell, and the bot fires at the cell the most
+ * placements cover. While a ship is hit but not
+ * sunk, only the placements through those hits
+ * are counted. Placements are precomputed once
+ * per Rules and the counts are updated as each
+ * result comes in, instead of enumerating them
+ * again.
+ *
+ * Boards of more than DENSITY_CELLS cells would
+ * need too many placements for that, so there
+ * the bot hunts instead: it fires at random
+ * cells spaced by the shortest ship still
+ * afloat (so no ship can hide between them),
+ * and after a hit works along the ship until
+ * it sinks.
+ *
+ * A salvo is the best cell, then the best cell
+ * after it, and so on: each pick counts as
+ * shot until its result comes in, so one
+ * salvo never repeats a cell.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class ProbabilityBot {
+
+	// Largest board that gets placement counts
+	static final int DENSITY_CELLS = 4096;
+	// Random cells tried in hunt mode before searching the board in order
+	static final int HUNT_TRIES = 64;
+
+	// Every straight placement of every ship length of some Rules, and the
+	// placements covering each cell
+	static final class Placements {
+		final int count;
+		final int[] start;
+		final int[] length;
+		final int[] step;
+		final int[][] covering;
+		// How many placements of each length cover each cell on an empty board
+		final int[][] initialCover;
+
+		Placements(Rules rules) {
+			int width = rules.width;
+			int height = rules.height;
+			int n = 0;
+			for (int length : rules.lengths) {
+				// None across (or down) if the ship is longer than the board is wide (or tall)
+				n += height * Math.max(0, width - length + 1);
+				if (length > 1) {
+					n += width * Math.max(0, height - length + 1);
+				}
+			}
+			count = n;
+			start = new int[n];
+			length = new int[n];
+			step = new int[n];
+			initialCover = new int[rules.longest + 1][rules.cells];
+			int[] covers = new int[rules.cells];
+			int p = 0;
+			for (int len : rules.lengths) {
+				for (int vertical = 0; vertical < (len == 1 ? 1 : 2); vertical++) {
+					for (int row = 0; row < height; row++) {
+						for (int col = 0; col < width; col++) {
+							if ((vertical == 0 ? col + len > width : row + len > height)) {
+								continue;
+							}
+							start[p] = row * width + col;
+							length[p] = len;
+							step[p] = vertical == 0 ? 1 : width;
+							for (int k = 0, cell = start[p]; k < len; k++, cell += step[p]) {
+								covers[cell]++;
+								initialCover[len][cell]++;
+							}
+							p++;
+						}
+					}
+				}
+			}
+			covering = new int[rules.cells][];
+			for (int cell = 0; cell < rules.cells; cell++) {
+				covering[cell] = new int[covers[cell]];
+				covers[cell] = 0;
+			}
+			for (p = 0; p < count; p++) {
+				for (int k = 0, cell = start[p]; k < length[p]; k++, cell += step[p]) {
+					covering[cell][covers[cell]++] = p;
+				}
+			}
+		}
+
+		// True if placement p goes through cell
+		boolean covers(int p, int cell) {
+			int offset = cell - start[p];
+			if (offset < 0) {
+				return false;
+			}
+			if (step[p] == 1) {
+				return offset < length[p];
+			}
+			return offset % step[p] == 0 && offset / step[p] < length[p];
+		}
+	}
+
+	// Built once per Rules and shared by every bot playing them
+	private static final ConcurrentHashMap<Rules, Placements> PLACEMENTS = new ConcurrentHashMap<>();
+
+	final Rules rules;
+	final int width;
+	final int height;
+	final int cells;
+	SplittableRandom random;
+
+	// Density mode, null on boards that are too big
+	private final Placements table;
+	// Placements ruled out so far
+	private final boolean[] dead;
+	// Live placements of each length covering each cell
+	private final int[][] cover;
+	// Scratch scores for target mode
+	private final int[] score;
+
+	// Hunt mode: cells next to hits to try before hunting again
+	private int[] targets = new int[16];
+	private int numTargets = 0;
+
+	// Ships of each length still afloat
+	private final int[] afloat;
+
+	// Cells already shot at or known to be empty, and hits on ships not sunk yet
+	final long[] known;
+	final long[] openHits;
+	int numOpenHits = 0;
+
+	public ProbabilityBot(long seed) {
+		this(Rules.CLASSIC, seed);
+	}
+
+	public ProbabilityBot(Rules rules, long seed) {
+		this.rules = rules;
+		width = rules.width;
+		height = rules.height;
+		cells = rules.cells;
+		random = new SplittableRandom(seed);
+		if (cells <= DENSITY_CELLS) {
+			table = PLACEMENTS.computeIfAbsent(rules, Placements::new);
+			dead = new boolean[table.count];
+			cover = new int[rules.longest + 1][cells];
+			score = new int[cells];
+		} else {
+			table = null;
+			dead = null;
+			cover = null;
+			score = null;
+		}
+		afloat = new int[rules.longest + 1];
+		known = new long[(cells + 63) >>> 6];
+		openHits = new long[known.length];
+		reset();
+	}
+
+	// Forget everything for a new game, and reseed the tie breaks
+	public void reset(long seed) {
+		random = new SplittableRandom(seed);
+		reset();
+	}
+
+	// Forget everything for a new game
+	public void reset() {
+		Arrays.fill(afloat, 0);
+		for (int length : rules.fleet) {
+			afloat[length]++;
+		}
+		if (table != null) {
+			for (int length : rules.lengths) {
+				System.arraycopy(table.initialCover[length], 0, cover[length], 0, cells);
+			}
+			Arrays.fill(dead, false);
+		}
+		Arrays.fill(known, 0);
+		Arrays.fill(openHits, 0);
+		numOpenHits = 0;
+		numTargets = 0;
+	}
+
+	// Picks the next cell to fire at
+	public int nextShot() {
+		if (table == null) {
+			return huntShot();
+		}
+		boolean targeting = numOpenHits > 0;
+		if (targeting) {
+			scoreOpenHits();
+		}
+		int best = -1;
+		int bestScore = -1;
+		int ties = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (Bitboard.test(known, cell)) {
+				continue;
+			}
+			int s;
+			if (targeting) {
+				s = score[cell];
+			} else {
+				s = 0;
+				for (int length : rules.lengths) {
+					s += afloat[length] * cover[length][cell];
+				}
+			}
+			// Break ties at random so the bot is not predictable
+			if (s > bestScore) {
+				best = cell;
+				bestScore = s;
+				ties = 1;
+			} else if (s == bestScore && random.nextInt(++ties) == 0) {
+				best = cell;
+			}
+		}
+		return best;
+	}
+
+	// Picks up to count different cells to fire at together in one salvo, into
+	// salvo. Returns how many it picked (fewer only when the board runs out).
+	public int nextSalvo(int[] salvo, int count) {
+		int picked = 0;
+		while (picked < count) {
+			int cell = nextShot();
+			if (cell == -1) {
+				break;
+			}
+			salvo[picked++] = cell;
+			Bitboard.set(known, cell); // until shotResult() says what it did
+		}
+		return picked;
+	}
+
+	// In target mode, counts only the live placements that go through open hits
+	private void scoreOpenHits() {
+		Arrays.fill(score, 0);
+		for (int word = 0; word < openHits.length; word++) {
+			for (long bits = openHits[word]; bits != 0; bits &= bits - 1) {
+				int hit = word << 6 | Long.numberOfTrailingZeros(bits);
+				for (int p : table.covering[hit]) {
+					int weight = afloat[table.length[p]];
+					if (dead[p] || weight == 0) {
+						continue;
+					}
+					for (int k = 0, cell = table.start[p]; k < table.length[p]; k++, cell += table.step[p]) {
+						if (!Bitboard.test(known, cell)) {
+							score[cell] += weight;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Hunt mode: a cell next to a hit if there is one, otherwise a random cell on
+	// the grid spaced by the shortest ship afloat
+	private int huntShot() {
+		while (numTargets > 0) {
+			int cell = targets[--numTargets];
+			if (!Bitboard.test(known, cell)) {
+				return cell;
+			}
+		}
+		int spacing = 1;
+		while (spacing < afloat.length && afloat[spacing] == 0) {
+			spacing++;
+		}
+		spacing = Math.min(spacing, Math.max(width, height));
+		for (int i = 0; i < HUNT_TRIES; i++) {
+			int row = random.nextInt(height);
+			int col = random.nextInt(width);
+			col -= (row + col) % spacing;
+			int cell = row * width + col;
+			if (col >= 0 && !Bitboard.test(known, cell)) {
+				return cell;
+			}
+		}
+		// The grid is nearly used up, so take the next cell left on it (or on the
+		// board, once the grid is empty)
+		int from = random.nextInt(cells);
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < cells; i++) {
+				int cell = (from + i) % cells;
+				if (!Bitboard.test(known, cell) && (pass == 1 || (cell / width + cell % width) % spacing == 0)) {
+					return cell;
+				}
+			}
+		}
+		return -1;
+	}
+
+	// Tells the bot what its shot at cell did. result is the packed Bitboard
+	// result, and sunk the packed ship when it was SUNK.
+	public void shotResult(int cell, int result, long sunk) {
+		Bitboard.set(known, cell);
+		switch (Bitboard.outcome(result)) {
+		case Bitboard.MISS:
+			if (table != null) {
+				killCovering(cell, -1);
+			}
+			break;
+		case Bitboard.HIT:
+			hit(cell);
+			break;
+		case Bitboard.SUNK:
+			hit(cell);
+			sunk(sunk);
+			break;
+		default:
+			break;
+		}
+	}
+
+	// A hit ship can only be a placement through the hit, so anything else on or
+	// around the cell is ruled out, and its diagonal neighbours are empty
+	private void hit(int cell) {
+		Bitboard.set(openHits, cell);
+		numOpenHits++;
+		int row = cell / width;
+		int col = cell % width;
+		for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, row + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, col + 1); c++) {
+				int around = r * width + c;
+				if (table != null && around != cell) {
+					killCovering(around, cell);
+				}
+				if (r != row && c != col) {
+					Bitboard.set(known, around);
+				}
+			}
+		}
+		if (table == null) {
+			target(cell, row, col);
+		}
+	}
+
+	// Hunt mode: queues the cells that could continue the ship through cell. Once
+	// a neighbour is a hit too the ship's direction is known, so the cells beside
+	// it are empty and only the two ends of the run are queued.
+	private void target(int cell, int row, int col) {
+		boolean across = (col > 0 && Bitboard.test(openHits, cell - 1))
+				|| (col < width - 1 && Bitboard.test(openHits, cell + 1));
+		boolean down = (row > 0 && Bitboard.test(openHits, cell - width))
+				|| (row < height - 1 && Bitboard.test(openHits, cell + width));
+		if (across || down) {
+			int step = across ? 1 : width;
+			int first = cell;
+			while ((across ? first % width > 0 : first >= width) && Bitboard.test(openHits, first - step)) {
+				first -= step;
+			}
+			int last = cell;
+			while ((across ? last % width < width - 1 : last + width < cells) && Bitboard.test(openHits, last + step)) {
+				last += step;
+			}
+			for (int c = first; c <= last; c += step) {
+				knowEmpty(c / width + (across ? -1 : 0), c % width + (across ? 0 : -1));
+				knowEmpty(c / width + (across ? 1 : 0), c % width + (across ? 0 : 1));
+			}
+			if (across ? first % width > 0 : first >= width) {
+				push(first - step);
+			}
+			if (across ? last % width < width - 1 : last + width < cells) {
+				push(last + step);
+			}
+			return;
+		}
+		if (row > 0) {
+			push(cell - width);
+		}
+		if (row < height - 1) {
+			push(cell + width);
+		}
+		if (col > 0) {
+			push(cell - 1);
+		}
+		if (col < width - 1) {
+			push(cell + 1);
+		}
+	}
+
+	private void knowEmpty(int row, int col) {
+		if (row >= 0 && row < height && col >= 0 && col < width) {
+			Bitboard.set(known, row * width + col);
+		}
+	}
+
+	private void push(int cell) {
+		if (Bitboard.test(known, cell)) {
+			return;
+		}
+		if (numTargets == targets.length) {
+			targets = Arrays.copyOf(targets, 2 * numTargets);
+		}
+		targets[numTargets++] = cell;
+	}
+
+	// The ship's cells and its halo can hold no other ship
+	private void sunk(long ship) {
+		int start = Bitboard.shipStart(ship);
+		int length = Bitboard.shipLength(ship);
+		if (length == 0 || length >= afloat.length || start >= cells) {
+			return; // a server that does not say which ship sank
+		}
+		afloat[length]--;
+		int row = start / width;
+		int col = start % width;
+		int lastRow = Bitboard.shipVertical(ship) ? row + length - 1 : row;
+		int lastCol = Bitboard.shipVertical(ship) ? col : col + length - 1;
+		for (int r = Math.max(0, row - 1); r <= Math.min(height - 1, lastRow + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(width - 1, lastCol + 1); c++) {
+				int cell = r * width + c;
+				if (Bitboard.test(openHits, cell)) {
+					openHits[cell >>> 6] &= ~(1L << cell);
+					numOpenHits--;
+				}
+				Bitboard.set(known, cell);
+				if (table != null) {
+					killCovering(cell, -1);
+				}
+			}
+		}
+	}
+
+	// Rules out every placement covering cell, except those through keep (-1 for none)
+	private void killCovering(int cell, int keep) {
+		for (int p : table.covering[cell]) {
+			if (dead[p] || (keep != -1 && table.covers(p, keep))) {
+				continue;
+			}
+			dead[p] = true;
+			int length = table.length[p];
+			for (int k = 0, c = table.start[p]; k < length; k++, c += table.step[p]) {
+				cover[length][c]--;
+			}
+		}
+	}
+}
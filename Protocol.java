@@ -0,0 +1,635 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Description
+ * -----------
+ * This class encodes and decodes the binary
+ * messages sent between two players (or a
+ * player and a server). Every message is one
+ * frame:
+ *
+ *   length  (2 bytes, counts everything after it)
+ *   version (1 byte)
+ *   type    (1 byte)
+ *   payload (depends on the type)
+ *
+ * HELLO carries the sender's Rules, and boards
+ * go as lists of ships, 6 bytes each: the first
+ * cell (4 bytes), then the length with the top
+ * bit set for a ship running down (2 bytes).
+ * In a salvo game a turn is one SALVO of all
+ * its cells, answered (where a RESULT would
+ * be) by one RESULTS for all of them, so a
+ * turn is one round trip however many shots
+ * it has.
+ * A spectator sends WATCH instead of HELLO.
+ * It gets WATCHING with the match's rules and
+ * names, a SNAPSHOT and its SHOTS seen from
+ * the first seat (with no ships, only shots),
+ * and then a MOVE for every shot either player
+ * fires. A new round starts with an empty
+ * SNAPSHOT, and a spectator that falls too far
+ * behind gets WATCHING and the snapshot again
+ * in place of the moves it missed.
+ * Encoders append whole frames to a caller
+ * owned ByteBuffer and decoders read straight
+ * out of one, so shots and results never
+ * allocate. Only HELLO and WATCHING carry
+ * Strings.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public final class Protocol {
+
+	static final int VERSION = 5;
+
+	// Message types
+	static final int HELLO = 1; // flags(1) + rating(2) + rules + UTF-8 player name
+	static final int READY = 2; // no payload
+	static final int BOARD = 3; // ship list
+	static final int SHOT = 4; // cell(4)
+	static final int RESULT = 5; // cell(4) + Bitboard result(4) + sunk ship(6)
+	static final int GAME_OVER = 6; // cell(4) of the final shot
+	static final int REMATCH = 7; // answer(1), 1 = play again
+	static final int SESSION = 8; // token(8), from a server after HELLO
+	static final int RESUME = 9; // token(8), instead of HELLO to rejoin a match
+	static final int SNAPSHOT = 10; // flags(1) + four shot counts(4) + two ship lists, answers RESUME
+	static final int HEARTBEAT = 11; // no payload, never answered or relayed
+	static final int COMMIT = 12; // 32-byte board hash, in place of BOARD
+	static final int REVEAL = 13; // 16-byte salt + ship list, once the round is over
+	static final int SHOTS = 14; // list(1) + cells(4 each), the shots that follow a SNAPSHOT
+	static final int SALVO = 15; // cells(4 each), a whole turn of a salvo game in place of SHOT
+	static final int RESULTS = 16; // a RESULT's cell(4) + result(4) + sunk ship(6) for each SALVO cell
+	static final int WATCH = 17; // match(4), 0 for the most watched, from a spectator instead of HELLO
+	static final int WATCHING = 18; // match(4) + rules + two names: length(1) + UTF-8, first seat first
+	static final int MOVE = 19; // seat(1) of the shooter + cell(4) + result(4) + sunk ship(6), to spectators
+
+	// HELLO flags: the sender of this hello fires first, and (to a server) the
+	// sender wants to play against the computer
+	static final int HELLO_FIRST = 1;
+	static final int HELLO_BOT = 2;
+	// From a server: this match is server-authoritative. Boards go to the server
+	// only, which answers each SHOT with a RESULT and sends the loser GAME_OVER.
+	static final int HELLO_AUTHORITATIVE = 4;
+	// The sender can play commit-reveal (see BoardCommitment). A direct game uses it
+	// if both players say so: COMMIT instead of BOARD, a RESULT for every SHOT, and
+	// REVEAL at the end of the round.
+	static final int HELLO_COMMIT = 8;
+	// The HELLO rating of a player who does not know theirs (and of a server)
+	static final int UNRATED = 0;
+
+	// Rules flags
+	static final int RULES_SALVO = 1;
+
+	// SNAPSHOT flags, from the point of view of the player resuming
+	static final int SNAP_YOUR_TURN = 1;
+	static final int SNAP_SELF_BOARD = 2; // the server has your board
+	static final int SNAP_OPP_BOARD = 4; // and your opponent's
+	static final int SNAP_ROUND_OVER = 8;
+	static final int SNAP_SELF_REMATCH = 16; // the server has your rematch answer
+	static final int SNAP_OPP_REMATCH = 32; // your opponent has answered
+	static final int SNAP_OPP_PLAY_AGAIN = 64; // and said yes
+
+	// The lists of shots a SNAPSHOT counts, in the order the SHOTS frames after it
+	// send them
+	static final int SNAP_SELF_HITS = 0; // on your board
+	static final int SNAP_SELF_MISSES = 1;
+	static final int SNAP_OPP_HITS = 2; // on your opponent's
+	static final int SNAP_OPP_MISSES = 3;
+
+	static final int LENGTH_BYTES = 2;
+	static final int HEADER = LENGTH_BYTES + 2;
+	static final int SHIP_BYTES = 6;
+	static final int SALT_BYTES = 16;
+	static final int HASH_BYTES = 32;
+	static final int MAX_NAME_BYTES = 255;
+	// width(2) + height(2) + flags(2) + kinds(2), then length(2) + count(2) for each kind
+	static final int MAX_RULES_BYTES = 8 + 4 * Rules.MAX_SHIPS;
+	static final int MAX_SHIP_LIST = 2 + Rules.MAX_SHIPS * SHIP_BYTES;
+	static final int MAX_SNAPSHOT = 1 + 16 + 2 * MAX_SHIP_LIST;
+	// A salvo has at most one shot per ship
+	static final int MAX_SALVO = Rules.MAX_SHIPS;
+	static final int RESULT_BYTES = 8 + SHIP_BYTES;
+	static final int MAX_WATCHING = 4 + MAX_RULES_BYTES + 2 + 2 * MAX_NAME_BYTES;
+	static final int MAX_FRAME = HEADER + Math.max(Math.max(MAX_SNAPSHOT, RESULT_BYTES * MAX_SALVO),
+			Math.max(MAX_WATCHING, 3 + MAX_RULES_BYTES + MAX_NAME_BYTES));
+	static final int SHOTS_PER_FRAME = (MAX_SNAPSHOT - 1) / 4;
+
+	private Protocol() {
+	}
+
+	// Writes the header of a frame with the given payload length
+	private static void header(ByteBuffer out, int type, int payload) {
+		out.putShort((short) (2 + payload));
+		out.put((byte) VERSION);
+		out.put((byte) type);
+	}
+
+	// rating is what a server pairs players by, 0 to 65535 or UNRATED, and rules
+	// the ones the sender plays by
+	public static void hello(ByteBuffer out, int flags, int rating, Rules rules, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_NAME_BYTES);
+		header(out, HELLO, 3 + rulesBytes(rules) + length);
+		out.put((byte) flags);
+		out.putShort((short) rating);
+		putRules(out, rules);
+		out.put(bytes, 0, length);
+	}
+
+	static int rulesBytes(Rules rules) {
+		return 8 + 4 * rules.lengths.length;
+	}
+
+	// Writes rules as width(2) + height(2) + flags(2) + kinds(2), then length(2) +
+	// count(2) for each kind (also used by MatchJournal)
+	static void putRules(ByteBuffer out, Rules rules) {
+		out.putShort((short) rules.width);
+		out.putShort((short) rules.height);
+		out.putShort((short) (rules.salvo ? RULES_SALVO : 0));
+		out.putShort((short) rules.lengths.length);
+		for (int kind = 0; kind < rules.lengths.length; kind++) {
+			out.putShort((short) rules.lengths[kind]);
+			out.putShort((short) rules.counts[kind]);
+		}
+	}
+
+	// Reads rules written by putRules() at start, which must end by end. Throws if
+	// they do not fit or cannot be played.
+	static Rules getRules(ByteBuffer in, int start, int end) throws ProtocolException {
+		if (start + 8 > end) {
+			throw new ProtocolException("No room for the rules");
+		}
+		int kinds = in.getShort(start + 6) & 0xFFFF;
+		if (start + 8 + 4 * kinds > end) {
+			throw new ProtocolException("No room for " + kinds + " kinds of ship");
+		}
+		int[] lengths = new int[kinds];
+		int[] counts = new int[kinds];
+		for (int kind = 0; kind < kinds; kind++) {
+			lengths[kind] = in.getShort(start + 8 + 4 * kind) & 0xFFFF;
+			counts[kind] = in.getShort(start + 10 + 4 * kind) & 0xFFFF;
+		}
+		boolean salvo = (in.getShort(start + 4) & RULES_SALVO) != 0;
+		try {
+			return Rules.of(in.getShort(start) & 0xFFFF, in.getShort(start + 2) & 0xFFFF, lengths, counts, salvo);
+		} catch (IllegalArgumentException e) {
+			throw new ProtocolException("Bad rules: " + e.getMessage());
+		}
+	}
+
+	public static void ready(ByteBuffer out) {
+		header(out, READY, 0);
+	}
+
+	public static void heartbeat(ByteBuffer out) {
+		header(out, HEARTBEAT, 0);
+	}
+
+	// The ships of a labelled board
+	public static void board(ByteBuffer out, Bitboard board) {
+		header(out, BOARD, shipListBytes(board));
+		putShips(out, board);
+	}
+
+	static int shipListBytes(Bitboard board) {
+		return 2 + board.numShips * SHIP_BYTES;
+	}
+
+	// Writes a labelled board's ships as count(2) + ships
+	static void putShips(ByteBuffer out, Bitboard board) {
+		out.putShort((short) board.numShips);
+		for (int id = 0; id < board.numShips; id++) {
+			putShip(out, board.ship(id));
+		}
+	}
+
+	private static void putShip(ByteBuffer out, long ship) {
+		out.putInt(Bitboard.shipStart(ship));
+		out.putShort((short) (ship & 0xFFFF));
+	}
+
+	public static void shot(ByteBuffer out, int cell) {
+		header(out, SHOT, 4);
+		out.putInt(cell);
+	}
+
+	// ship is the packed ship when the result is SUNK, otherwise 0
+	public static void result(ByteBuffer out, int cell, int result, long ship) {
+		header(out, RESULT, 8 + SHIP_BYTES);
+		out.putInt(cell);
+		out.putInt(result);
+		putShip(out, ship);
+	}
+
+	// The first count cells, fired together as one turn of a salvo game
+	public static void salvo(ByteBuffer out, int[] cells, int count) {
+		header(out, SALVO, 4 * count);
+		for (int i = 0; i < count; i++) {
+			out.putInt(cells[i]);
+		}
+	}
+
+	// What each of the first count shots of a salvo did, like result() does for one
+	public static void results(ByteBuffer out, int[] cells, int[] results, long[] ships, int count) {
+		header(out, RESULTS, RESULT_BYTES * count);
+		for (int i = 0; i < count; i++) {
+			out.putInt(cells[i]);
+			out.putInt(results[i]);
+			putShip(out, ships[i]);
+		}
+	}
+
+	public static void gameOver(ByteBuffer out, int cell) {
+		header(out, GAME_OVER, 4);
+		out.putInt(cell);
+	}
+
+	public static void rematch(ByteBuffer out, boolean playAgain) {
+		header(out, REMATCH, 1);
+		out.put((byte) (playAgain ? 1 : 0));
+	}
+
+	public static void session(ByteBuffer out, long token) {
+		header(out, SESSION, 8);
+		out.putLong(token);
+	}
+
+	public static void resume(ByteBuffer out, long token) {
+		header(out, RESUME, 8);
+		out.putLong(token);
+	}
+
+	public static void commit(ByteBuffer out, byte[] hash) {
+		header(out, COMMIT, HASH_BYTES);
+		out.put(hash, 0, HASH_BYTES);
+	}
+
+	public static void reveal(ByteBuffer out, byte[] salt, Bitboard board) {
+		header(out, REVEAL, SALT_BYTES + shipListBytes(board));
+		out.put(salt, 0, SALT_BYTES);
+		putShips(out, board);
+	}
+
+	// shots are how many cells each of the SHOTS lists will have, in SNAP_SELF_HITS
+	// to SNAP_OPP_MISSES order. opp is null if the opponent's ships are secret.
+	public static void snapshot(ByteBuffer out, int flags, int[] shots, Bitboard self, Bitboard opp) {
+		header(out, SNAPSHOT, 1 + 16 + shipListBytes(self) + (opp == null ? 2 : shipListBytes(opp)));
+		out.put((byte) flags);
+		for (int i = 0; i < 4; i++) {
+			out.putInt(shots[i]);
+		}
+		putShips(out, self);
+		if (opp == null) {
+			out.putShort((short) 0);
+		} else {
+			putShips(out, opp);
+		}
+	}
+
+	// match 0 asks for the match with the most spectators
+	public static void watch(ByteBuffer out, int match) {
+		header(out, WATCH, 4);
+		out.putInt(match);
+	}
+
+	public static void watching(ByteBuffer out, int match, Rules rules, String firstName, String secondName) {
+		byte[] first = firstName.getBytes(StandardCharsets.UTF_8);
+		byte[] second = secondName.getBytes(StandardCharsets.UTF_8);
+		int firstLength = Math.min(first.length, MAX_NAME_BYTES);
+		int secondLength = Math.min(second.length, MAX_NAME_BYTES);
+		header(out, WATCHING, 4 + rulesBytes(rules) + 2 + firstLength + secondLength);
+		out.putInt(match);
+		putRules(out, rules);
+		out.put((byte) firstLength).put(first, 0, firstLength);
+		out.put((byte) secondLength).put(second, 0, secondLength);
+	}
+
+	// A shot fired by the player in seat, for spectators. ship is the packed ship
+	// when the result is SUNK, otherwise 0.
+	public static void move(ByteBuffer out, int seat, int cell, int result, long ship) {
+		header(out, MOVE, 1 + 8 + SHIP_BYTES);
+		out.put((byte) seat);
+		out.putInt(cell);
+		out.putInt(result);
+		putShip(out, ship);
+	}
+
+	// Up to SHOTS_PER_FRAME cells of one SNAPSHOT list
+	public static void shots(ByteBuffer out, int list, int[] cells, int from, int count) {
+		header(out, SHOTS, 1 + 4 * count);
+		out.put((byte) list);
+		for (int i = from; i < from + count; i++) {
+			out.putInt(cells[i]);
+		}
+	}
+
+	// Returns the size of the complete frame starting at in.position(), or -1 if
+	// not all of it has arrived yet. Throws if the frame can never be valid.
+	public static int frameLength(ByteBuffer in) throws ProtocolException {
+		int start = in.position();
+		if (in.limit() - start < HEADER) {
+			return -1;
+		}
+		int length = in.getShort(start) & 0xFFFF;
+		int version = in.get(start + 2) & 0xFF;
+		int type = in.get(start + 3) & 0xFF;
+		if (version != VERSION) {
+			throw new ProtocolException("Unsupported protocol version " + version);
+		}
+		if (!validPayload(type, length - 2)) {
+			throw new ProtocolException("Bad frame: type " + type + ", length " + length);
+		}
+		int total = LENGTH_BYTES + length;
+		return in.limit() - start < total ? -1 : total;
+	}
+
+	// Checks that a payload has the right size for its type
+	static boolean validPayload(int type, int payload) {
+		switch (type) {
+		case HELLO:
+			return payload >= 3 + 8 && payload <= 3 + MAX_RULES_BYTES + MAX_NAME_BYTES;
+		case READY:
+		case HEARTBEAT:
+			return payload == 0;
+		case BOARD:
+			return payload >= 2 && payload <= MAX_SHIP_LIST && (payload - 2) % SHIP_BYTES == 0;
+		case SHOT:
+		case GAME_OVER:
+			return payload == 4;
+		case RESULT:
+			return payload == 8 + SHIP_BYTES;
+		case REMATCH:
+			return payload == 1;
+		case SESSION:
+		case RESUME:
+			return payload == 8;
+		case SNAPSHOT:
+			return payload >= 1 + 16 + 4 && payload <= MAX_SNAPSHOT;
+		case COMMIT:
+			return payload == HASH_BYTES;
+		case REVEAL:
+			return payload >= SALT_BYTES + 2 && payload <= SALT_BYTES + MAX_SHIP_LIST
+					&& (payload - SALT_BYTES - 2) % SHIP_BYTES == 0;
+		case SHOTS:
+			return payload >= 1 && payload <= 1 + 4 * SHOTS_PER_FRAME && (payload - 1) % 4 == 0;
+		case SALVO:
+			return payload >= 4 && payload <= 4 * MAX_SALVO && payload % 4 == 0;
+		case RESULTS:
+			return payload >= RESULT_BYTES && payload <= RESULT_BYTES * MAX_SALVO && payload % RESULT_BYTES == 0;
+		case WATCH:
+			return payload == 4;
+		case WATCHING:
+			return payload >= 4 + 8 + 2 && payload <= MAX_WATCHING;
+		case MOVE:
+			return payload == 1 + 8 + SHIP_BYTES;
+		default:
+			return false;
+		}
+	}
+
+	// Accessors for a complete frame starting at frame.position()
+	public static int type(ByteBuffer frame) {
+		return frame.get(frame.position() + 3) & 0xFF;
+	}
+
+	public static int payloadLength(ByteBuffer frame) {
+		return (frame.getShort(frame.position()) & 0xFFFF) - 2;
+	}
+
+	public static int helloFlags(ByteBuffer frame) {
+		return frame.get(frame.position() + HEADER) & 0xFF;
+	}
+
+	public static int helloRating(ByteBuffer frame) {
+		return frame.getShort(frame.position() + HEADER + 1) & 0xFFFF;
+	}
+
+	// The rules of a HELLO. Throws if they are missing or cannot be played.
+	public static Rules helloRules(ByteBuffer frame) throws ProtocolException {
+		return getRules(frame, frame.position() + HEADER + 3, end(frame));
+	}
+
+	// Where a complete frame starting at frame.position() ends
+	private static int end(ByteBuffer frame) {
+		return frame.position() + LENGTH_BYTES + (frame.getShort(frame.position()) & 0xFFFF);
+	}
+
+	public static String helloName(ByteBuffer frame) throws ProtocolException {
+		int rules = 8 + 4 * (frame.getShort(frame.position() + HEADER + 9) & 0xFFFF);
+		int start = frame.position() + HEADER + 3 + rules;
+		int length = payloadLength(frame) - 3 - rules;
+		if (length < 0) {
+			throw new ProtocolException("Bad HELLO: no room for the name");
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = frame.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Puts the ships of a BOARD frame on board, which must be clear, and labels
+	// them. Returns false if the list is cut short or a ship does not fit on the
+	// board; the fleet still has to be validated.
+	public static boolean boardShips(ByteBuffer frame, Bitboard board) {
+		return getShips(frame, frame.position() + HEADER, end(frame), board);
+	}
+
+	// Reads a list written by putShips() at start, which must end by end, onto
+	// board (also used by JournalReader)
+	static boolean getShips(ByteBuffer in, int start, int end, Bitboard board) {
+		if (start + 2 > end) {
+			return false;
+		}
+		int count = in.getShort(start) & 0xFFFF;
+		if (count > Rules.MAX_SHIPS || start + 2 + count * SHIP_BYTES > end) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (!board.placeShip(getShip(in, start + 2 + i * SHIP_BYTES))) {
+				return false;
+			}
+		}
+		board.labelShips();
+		return true;
+	}
+
+	private static long getShip(ByteBuffer frame, int start) {
+		return Bitboard.pack(frame.getInt(start), frame.getShort(start + 4) & Bitboard.LENGTH_MASK,
+				(frame.getShort(start + 4) & Bitboard.VERTICAL) != 0);
+	}
+
+	// The token of a SESSION or RESUME frame
+	public static long token(ByteBuffer frame) {
+		return frame.getLong(frame.position() + HEADER);
+	}
+
+	public static int snapshotFlags(ByteBuffer frame) {
+		return frame.get(frame.position() + HEADER) & 0xFF;
+	}
+
+	// How many cells the SHOTS frames after a SNAPSHOT have for one list,
+	// SNAP_SELF_HITS to SNAP_OPP_MISSES
+	public static int snapshotShots(ByteBuffer frame, int list) {
+		return frame.getInt(frame.position() + HEADER + 1 + 4 * list);
+	}
+
+	// Puts our ships (or the opponent's, if they are not secret) from a SNAPSHOT on
+	// board, like boardShips() does
+	public static boolean snapshotShips(ByteBuffer frame, boolean self, Bitboard board) {
+		int start = frame.position() + HEADER + 1 + 16;
+		if (!self) {
+			start += 2 + (frame.getShort(start) & 0xFFFF) * SHIP_BYTES;
+		}
+		return getShips(frame, start, end(frame), board);
+	}
+
+	// The list a SHOTS frame belongs to, how many cells it has, and each cell
+	public static int shotsList(ByteBuffer frame) {
+		return frame.get(frame.position() + HEADER) & 0xFF;
+	}
+
+	public static int shotsCount(ByteBuffer frame) {
+		return (payloadLength(frame) - 1) / 4;
+	}
+
+	public static int shotsCell(ByteBuffer frame, int i) {
+		return frame.getInt(frame.position() + HEADER + 1 + 4 * i);
+	}
+
+	// The cell of a SHOT, RESULT or GAME_OVER frame
+	public static int cell(ByteBuffer frame) {
+		return frame.getInt(frame.position() + HEADER);
+	}
+
+	public static int resultCode(ByteBuffer frame) {
+		return frame.getInt(frame.position() + HEADER + 4);
+	}
+
+	// The sunk ship of a RESULT frame, packed
+	public static long resultShip(ByteBuffer frame) {
+		return getShip(frame, frame.position() + HEADER + 8);
+	}
+
+	// How many cells a SALVO has, and each cell
+	public static int salvoCount(ByteBuffer frame) {
+		return payloadLength(frame) / 4;
+	}
+
+	public static int salvoCell(ByteBuffer frame, int i) {
+		return frame.getInt(frame.position() + HEADER + 4 * i);
+	}
+
+	// How many shots a RESULTS has, and the cell, result and sunk ship of each
+	public static int resultsCount(ByteBuffer frame) {
+		return payloadLength(frame) / RESULT_BYTES;
+	}
+
+	public static int resultsCell(ByteBuffer frame, int i) {
+		return frame.getInt(frame.position() + HEADER + RESULT_BYTES * i);
+	}
+
+	public static int resultsCode(ByteBuffer frame, int i) {
+		return frame.getInt(frame.position() + HEADER + RESULT_BYTES * i + 4);
+	}
+
+	public static long resultsShip(ByteBuffer frame, int i) {
+		return getShip(frame, frame.position() + HEADER + RESULT_BYTES * i + 8);
+	}
+
+	// The match of a WATCH or WATCHING frame
+	public static int watchMatch(ByteBuffer frame) {
+		return frame.getInt(frame.position() + HEADER);
+	}
+
+	// The rules of a WATCHING. Throws if they are missing or cannot be played.
+	public static Rules watchingRules(ByteBuffer frame) throws ProtocolException {
+		return getRules(frame, frame.position() + HEADER + 4, end(frame));
+	}
+
+	// The name of the player in seat, from a WATCHING
+	public static String watchingName(ByteBuffer frame, int seat) throws ProtocolException {
+		int start = frame.position() + HEADER + 4 + 8 + 4 * (frame.getShort(frame.position() + HEADER + 10) & 0xFFFF);
+		for (int skip = 0; skip < seat && start < end(frame); skip++) {
+			start += 1 + (frame.get(start) & 0xFF);
+		}
+		if (start >= end(frame) || start + 1 + (frame.get(start) & 0xFF) > end(frame)) {
+			throw new ProtocolException("Bad WATCHING: no room for the names");
+		}
+		byte[] bytes = new byte[frame.get(start) & 0xFF];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = frame.get(start + 1 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// The shooter, cell, result and sunk ship of a MOVE frame
+	public static int moveSeat(ByteBuffer frame) {
+		return frame.get(frame.position() + HEADER) & 0xFF;
+	}
+
+	public static int moveCell(ByteBuffer frame) {
+		return frame.getInt(frame.position() + HEADER + 1);
+	}
+
+	public static int moveResult(ByteBuffer frame) {
+		return frame.getInt(frame.position() + HEADER + 5);
+	}
+
+	public static long moveShip(ByteBuffer frame) {
+		return getShip(frame, frame.position() + HEADER + 9);
+	}
+
+	// Copies the hash of a COMMIT frame into hash
+	public static void commitHash(ByteBuffer frame, byte[] hash) {
+		frame.get(frame.position() + HEADER, hash, 0, HASH_BYTES);
+	}
+
+	// Copies the salt of a REVEAL frame into salt
+	public static void revealSalt(ByteBuffer frame, byte[] salt) {
+		frame.get(frame.position() + HEADER, salt, 0, SALT_BYTES);
+	}
+
+	// Puts the ships of a REVEAL frame on board, like boardShips() does
+	public static boolean revealShips(ByteBuffer frame, Bitboard board) {
+		return getShips(frame, frame.position() + HEADER + SALT_BYTES, end(frame), board);
+	}
+
+	public static boolean rematchAnswer(ByteBuffer frame) {
+		return frame.get(frame.position() + HEADER) != 0;
+	}
+
+	// Sends everything encoded in out, then clears it for the next message
+	public static void send(DataOutputStream dout, ByteBuffer out) throws IOException {
+		dout.write(out.array(), 0, out.position());
+		dout.flush();
+		out.clear();
+	}
+
+	// Blocks until one whole frame has been read into frame, and returns its type
+	public static int receive(DataInputStream din, ByteBuffer frame) throws IOException {
+		frame.clear();
+		din.readFully(frame.array(), 0, HEADER);
+		frame.limit(HEADER);
+		int length = frameLength(frame);
+		if (length == -1) {
+			int total = LENGTH_BYTES + (frame.getShort(0) & 0xFFFF);
+			din.readFully(frame.array(), HEADER, total - HEADER);
+			frame.limit(total);
+		}
+		return type(frame);
+	}
+}
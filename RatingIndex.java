@@ -0,0 +1,185 @@
+import java.util.List;
+import java.util.SplittableRandom;
+
+/*
+ * Description
+ * -----------
+ * This class keeps players ordered by rating,
+ * highest first (ties by name), so the best K
+ * players and any one player's rank can be
+ * found without sorting. It is a treap: a
+ * binary search tree on the order above that
+ * is also a heap on random priorities, which
+ * keeps it balanced to O(log n) depth in
+ * expectation. Every node counts the nodes
+ * under it, so rank and the start of the top K
+ * take O(log n) as well.
+ *
+ * A player's rating must not change while they
+ * are in the index: remove them, change it,
+ * and add them back. Not thread-safe, see
+ * PlayerStats.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class RatingIndex {
+
+	private final SplittableRandom priorities = new SplittableRandom(1);
+	private Node root;
+
+	public void add(PlayerStats.Player player) {
+		root = insert(root, new Node(player, priorities.nextInt()));
+	}
+
+	public void remove(PlayerStats.Player player) {
+		root = delete(root, player.rating, player.name);
+	}
+
+	public int size() {
+		return size(root);
+	}
+
+	// 1 for the highest rated player, or 0 if the player is not in the index
+	public int rank(PlayerStats.Player player) {
+		int before = 0;
+		Node node = root;
+		while (node != null) {
+			int order = compare(player.rating, player.name, node);
+			if (order < 0) {
+				node = node.left;
+			} else if (order > 0) {
+				before += size(node.left) + 1;
+				node = node.right;
+			} else {
+				return before + size(node.left) + 1;
+			}
+		}
+		return 0;
+	}
+
+	// Adds the k highest rated players to top, best first
+	public void top(int k, List<PlayerStats.Player> top) {
+		collect(root, k, top);
+	}
+
+	private static void collect(Node node, int k, List<PlayerStats.Player> top) {
+		if (node == null || top.size() >= k) {
+			return;
+		}
+		collect(node.left, k, top);
+		if (top.size() < k) {
+			top.add(node.player);
+			collect(node.right, k, top);
+		}
+	}
+
+	// Higher ratings first, then names in order
+	private static int compare(double rating, String name, Node node) {
+		int order = Double.compare(node.rating, rating);
+		return order != 0 ? order : name.compareTo(node.name);
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static Node insert(Node node, Node added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.rating, added.name, node) < 0) {
+			node.left = insert(node.left, added);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, added);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		node.resize();
+		return node;
+	}
+
+	private static Node delete(Node node, double rating, String name) {
+		if (node == null) {
+			return null;
+		}
+		int order = compare(rating, name, node);
+		if (order < 0) {
+			node.left = delete(node.left, rating, name);
+		} else if (order > 0) {
+			node.right = delete(node.right, rating, name);
+		} else {
+			return merge(node.left, node.right);
+		}
+		node.resize();
+		return node;
+	}
+
+	// Joins two trees where everything in a comes before everything in b
+	private static Node merge(Node a, Node b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			a.resize();
+			return a;
+		}
+		b.left = merge(a, b.left);
+		b.resize();
+		return b;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.resize();
+		left.resize();
+		return left;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.resize();
+		right.resize();
+		return right;
+	}
+
+	private static final class Node {
+
+		final PlayerStats.Player player;
+		// The player's key when added, which is how they are found again
+		final double rating;
+		final String name;
+		final int priority;
+		int size = 1;
+		Node left, right;
+
+		Node(PlayerStats.Player player, int priority) {
+			this.player = player;
+			this.rating = player.rating;
+			this.name = player.name;
+			this.priority = priority;
+		}
+
+		void resize() {
+			size = 1 + RatingIndex.size(left) + RatingIndex.size(right);
+		}
+	}
+}
@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+/*
+ * Description
+ * -----------
+ * This class holds the rules one match is
+ * played by: the size of the board, the
+ * lengths of the ships in every fleet, and
+ * whether it is a salvo game, where each turn
+ * is up to one shot for every ship the shooter
+ * still has afloat, all fired together. Players
+ * agree on them in their HELLO. In a direct game
+ * the host's rules are played, on a server the
+ * server's.
+ *
+ * A program's own rules come from the system
+ * properties battleship.board and
+ * battleship.fleet, with "LxN" for N ships of
+ * length L, e.g.
+ *
+ *   java -Dbattleship.board=1000x1000 -Dbattleship.fleet=5x40,4x80,3x80,2x50 GameSetup
+ *
+ * and are the classic 10x10 board with ships
+ * of lengths 5, 4, 3, 3 and 2 otherwise. Setting
+ * battleship.salvo=true plays them as salvo.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public final class Rules {
+
+	static final int MAX_SIDE = 4096;
+	static final int MAX_SHIPS = 256;
+
+	static final Rules CLASSIC = new Rules(10, 10, new int[] { 5, 4, 3, 3, 2 });
+
+	final int width;
+	final int height;
+	final int cells;
+	// Ship lengths, longest first
+	final int[] fleet;
+	final int longest;
+	// Different lengths in the fleet, longest first, and how many ships have each
+	final int[] lengths;
+	final int[] counts;
+	// Each turn is a salvo of shotsPerTurn() shots instead of one
+	final boolean salvo;
+
+	public Rules(int width, int height, int[] fleet) {
+		this(width, height, fleet, false);
+	}
+
+	// Throws IllegalArgumentException for a board or fleet that cannot be played
+	public Rules(int width, int height, int[] fleet, boolean salvo) {
+		if (width < 1 || height < 1 || width > MAX_SIDE || height > MAX_SIDE) {
+			throw new IllegalArgumentException("Boards are 1x1 to " + MAX_SIDE + "x" + MAX_SIDE);
+		}
+		if (fleet.length == 0 || fleet.length > MAX_SHIPS) {
+			throw new IllegalArgumentException("Fleets have 1 to " + MAX_SHIPS + " ships");
+		}
+		this.width = width;
+		this.height = height;
+		this.cells = width * height;
+		this.salvo = salvo;
+		this.fleet = fleet.clone();
+		Arrays.sort(this.fleet);
+		for (int i = 0; i < this.fleet.length / 2; i++) {
+			int swap = this.fleet[i];
+			this.fleet[i] = this.fleet[this.fleet.length - 1 - i];
+			this.fleet[this.fleet.length - 1 - i] = swap;
+		}
+		longest = this.fleet[0];
+		if (this.fleet[this.fleet.length - 1] < 1 || longest > Math.max(width, height)) {
+			throw new IllegalArgumentException("Ships are 1 to " + Math.max(width, height) + " long on this board");
+		}
+		int kinds = 1;
+		for (int i = 1; i < this.fleet.length; i++) {
+			if (this.fleet[i] != this.fleet[i - 1]) {
+				kinds++;
+			}
+		}
+		lengths = new int[kinds];
+		counts = new int[kinds];
+		int kind = -1;
+		for (int i = 0; i < this.fleet.length; i++) {
+			if (i == 0 || this.fleet[i] != this.fleet[i - 1]) {
+				lengths[++kind] = this.fleet[i];
+			}
+			counts[kind]++;
+		}
+	}
+
+	// The rules given by the battleship.board, battleship.fleet and
+	// battleship.salvo properties
+	public static Rules configured() {
+		String board = System.getProperty("battleship.board");
+		String fleet = System.getProperty("battleship.fleet");
+		Rules rules = CLASSIC;
+		if (board != null || fleet != null) {
+			rules = parse(board == null ? "10x10" : board, fleet == null ? "5,4,3,3,2" : fleet);
+		}
+		return rules.withSalvo(Boolean.getBoolean("battleship.salvo"));
+	}
+
+	// The same board and fleet, played as salvo or not
+	public Rules withSalvo(boolean salvo) {
+		return salvo == this.salvo ? this : new Rules(width, height, fleet, salvo);
+	}
+
+	// How many shots a player with afloat ships left gets this turn
+	public int shotsPerTurn(int afloat) {
+		return salvo ? Math.max(1, afloat) : 1;
+	}
+
+	// Reads a board like "20x15" (width x height) and a fleet like "5,4,3x2,2"
+	public static Rules parse(String board, String fleet) {
+		try {
+			String[] sides = board.trim().split("x");
+			if (sides.length != 2) {
+				throw new IllegalArgumentException("A board is <width>x<height>, not " + board);
+			}
+			int[] ships = new int[0];
+			for (String item : fleet.split(",")) {
+				String[] parts = item.trim().split("x");
+				int length = Integer.parseInt(parts[0].trim());
+				int count = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+				if (count < 0 || ships.length + count > MAX_SHIPS) {
+					throw new IllegalArgumentException("Fleets have 1 to " + MAX_SHIPS + " ships");
+				}
+				int start = ships.length;
+				ships = Arrays.copyOf(ships, start + count);
+				Arrays.fill(ships, start, ships.length, length);
+			}
+			return new Rules(Integer.parseInt(sides[0].trim()), Integer.parseInt(sides[1].trim()), ships);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number in " + board + " / " + fleet);
+		}
+	}
+
+	// Builds rules from the different lengths and how many ships have each, as
+	// Protocol sends them
+	static Rules of(int width, int height, int[] lengths, int[] counts, boolean salvo) {
+		int ships = 0;
+		for (int count : counts) {
+			if (count < 0 || count > MAX_SHIPS) {
+				throw new IllegalArgumentException("Fleets have 1 to " + MAX_SHIPS + " ships");
+			}
+			ships += count;
+		}
+		if (ships > MAX_SHIPS) {
+			throw new IllegalArgumentException("Fleets have 1 to " + MAX_SHIPS + " ships");
+		}
+		int[] fleet = new int[ships];
+		int i = 0;
+		for (int kind = 0; kind < lengths.length; kind++) {
+			for (int n = 0; n < counts[kind]; n++) {
+				fleet[i++] = lengths[kind];
+			}
+		}
+		return new Rules(width, height, fleet, salvo);
+	}
+
+	public boolean isClassic() {
+		return equals(CLASSIC);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof Rules)) {
+			return false;
+		}
+		Rules rules = (Rules) other;
+		return width == rules.width && height == rules.height && salvo == rules.salvo
+				&& Arrays.equals(fleet, rules.fleet);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * width + height) + Arrays.hashCode(fleet) + (salvo ? 1 : 0);
+	}
+
+	// e.g. "10x10, ships 5, 4, 3x2, 2" or "10x10, ships 5, 4, 3x2, 2, salvo"
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder().append(width).append('x').append(height).append(", ships ");
+		for (int kind = 0; kind < lengths.length; kind++) {
+			text.append(kind == 0 ? "" : ", ").append(lengths[kind]);
+			if (counts[kind] > 1) {
+				text.append('x').append(counts[kind]);
+			}
+		}
+		if (salvo) {
+			text.append(", salvo");
+		}
+		return text.toString();
+	}
+}
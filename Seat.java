@@ -0,0 +1,28 @@
+import java.nio.ByteBuffer;
+
+/*
+ * Description
+ * -----------
+ * This interface is one player's connection as
+ * seen by a Match on the server, so the same
+ * match logic runs on top of the selector
+ * server and the thread-per-connection server.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public interface Seat {
+
+	// Queues one complete frame, starting at frame.position(), to this player.
+	// Must not change frame's position or limit.
+	void send(ByteBuffer frame);
+
+	// Closes the connection once everything queued has been sent
+	void close();
+}
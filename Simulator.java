@@ -0,0 +1,176 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/*
+ * Description
+ * -----------
+ * This class plays bot-against-bot games
+ * offline, with the same rules as a real match
+ * (GameEngine: valid fleets, hits and misses,
+ * automatic misses around sunken ships, game
+ * over once the whole fleet is down), on the
+ * board and fleet of Rules.configured(), and
+ * in salvo turns if those are salvo. Games
+ * are split into chunks that run in parallel
+ * on every core, each chunk reusing its own
+ * engine and bots so nothing is allocated per
+ * shot. Every game is seeded from the run's
+ * seed and its own number, so a run gives the
+ * same results for the same seed no matter
+ * how many cores play it.
+ *
+ * Usage: java Simulator [games] [seed]
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Simulator {
+
+	static final int CHUNK = 10_000;
+
+	public static void main(String[] args) {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+		Rules rules = Rules.configured();
+
+		long start = System.nanoTime();
+		Stats stats = run(rules, games, seed);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d games of %s in %.2f s (%.0f games/min) on %d cores%n", stats.games, rules, seconds,
+				stats.games * 60 / seconds, Runtime.getRuntime().availableProcessors());
+		System.out.printf("First player won %.2f%%%n", 100.0 * stats.firstPlayerWins / stats.games);
+		System.out.printf("Winner's shots: mean %.2f, p50 %d, p90 %d, p99 %d, min %d, max %d%n", stats.mean(),
+				stats.percentile(0.5), stats.percentile(0.9), stats.percentile(0.99), stats.percentile(0),
+				stats.percentile(1));
+		for (int shots = 0; shots < stats.winnerShots.length; shots++) {
+			if (stats.winnerShots[shots] > 0) {
+				System.out.printf("%3d %d%n", shots, stats.winnerShots[shots]);
+			}
+		}
+	}
+
+	// Plays games numbered 0 to games - 1 across all cores
+	public static Stats run(Rules rules, long games, long seed) {
+		int chunks = (int) ((games + CHUNK - 1) / CHUNK);
+		return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+			Worker worker = new Worker(rules);
+			long first = (long) chunk * CHUNK;
+			long last = Math.min(games, first + CHUNK);
+			for (long game = first; game < last; game++) {
+				worker.play(seed, game);
+			}
+			return worker.stats;
+		}).reduce(new Stats(rules), Stats::add);
+	}
+
+	// The seed for one game, spread out so neighbouring games are unrelated
+	static long gameSeed(long seed, long game) {
+		return new SplittableRandom(seed + game * 0x9E3779B97F4A7C15L).nextLong();
+	}
+
+	// Everything one thread needs to play games back to back
+	static final class Worker {
+
+		final GameEngine engine;
+		final ProbabilityBot[] bots;
+		final FleetGenerator fleets = new FleetGenerator(0);
+		final Stats stats;
+		final int[] shots = new int[2];
+		// One turn's cells, more than one in a salvo game
+		final int[] salvo;
+
+		Worker(Rules rules) {
+			engine = new GameEngine(rules);
+			bots = new ProbabilityBot[] { new ProbabilityBot(rules, 0), new ProbabilityBot(rules, 0) };
+			stats = new Stats(rules);
+			salvo = new int[rules.fleet.length];
+		}
+
+		void play(long seed, long game) {
+			SplittableRandom random = new SplittableRandom(gameSeed(seed, game));
+			engine.reset();
+			fleets.reseed(random.nextLong());
+			for (int player = 0; player < 2; player++) {
+				fleets.place(engine.boards[player]);
+				bots[player].reset(random.nextLong());
+			}
+			shots[0] = shots[1] = 0;
+			while (!engine.gameOver()) {
+				int shooter = engine.turn;
+				Bitboard target = engine.boards[1 - shooter];
+				int count = bots[shooter].nextSalvo(salvo,
+						engine.rules.shotsPerTurn(engine.boards[shooter].fleetRemaining));
+				for (int i = 0; i < count && !engine.gameOver(); i++) {
+					int result = engine.fire(salvo[i]);
+					bots[shooter].shotResult(salvo[i], result, target.sunk);
+					shots[shooter]++;
+				}
+				engine.endTurn(); // in case the bot found fewer cells to fire at
+			}
+			stats.record(engine.winner, shots[engine.winner]);
+		}
+	}
+
+	// Results of a batch of games, merged across threads
+	static final class Stats {
+
+		long games = 0;
+		long firstPlayerWins = 0;
+		// Games by the number of shots the winner fired, 0 to every cell
+		final long[] winnerShots;
+
+		Stats(Rules rules) {
+			this(rules.cells + 1);
+		}
+
+		private Stats(int buckets) {
+			winnerShots = new long[buckets];
+		}
+
+		void record(int winner, int shots) {
+			games++;
+			if (winner == 0) {
+				firstPlayerWins++;
+			}
+			winnerShots[shots]++;
+		}
+
+		Stats add(Stats other) {
+			Stats sum = new Stats(winnerShots.length);
+			sum.games = games + other.games;
+			sum.firstPlayerWins = firstPlayerWins + other.firstPlayerWins;
+			for (int i = 0; i < winnerShots.length; i++) {
+				sum.winnerShots[i] = winnerShots[i] + other.winnerShots[i];
+			}
+			return sum;
+		}
+
+		double mean() {
+			long total = 0;
+			for (int i = 0; i < winnerShots.length; i++) {
+				total += i * winnerShots[i];
+			}
+			return (double) total / games;
+		}
+
+		// The smallest shot count that at least fraction of the games were won in
+		int percentile(double fraction) {
+			long needed = Math.max(1, (long) Math.ceil(fraction * games));
+			long seen = 0;
+			for (int i = 0; i < winnerShots.length; i++) {
+				seen += winnerShots[i];
+				if (seen >= needed) {
+					return i;
+				}
+			}
+			return winnerShots.length - 1;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+
+/*
+ * Description
+ * -----------
+ * This class writes to the spectators of a
+ * GameServer, on a selector thread of its own,
+ * so however many are watching, the thread
+ * that plays the matches never writes to one.
+ * A connection whose first frame is WATCH is
+ * handed over here with the Broadcast of its
+ * match. When a move is published, every
+ * spectator of that match that is not still
+ * busy gets the new frames in one gathering
+ * write of the shared buffers; one that is
+ * busy carries on where the socket stopped,
+ * and catches up (or is resynced with the
+ * current view) once its socket drains. A
+ * spectator whose socket takes nothing for
+ * Timeouts.IDLE_MILLIS is dropped, and all of
+ * them are closed when their match ends.
+ * Each spectator's socket gets a small send
+ * buffer (SEND_BUFFER), so one that stops
+ * reading costs little memory and is soon
+ * resynced instead of queueing moves.
+ * Spectators never have to send anything;
+ * whatever they do send is read and ignored.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class SpectatorHub implements Runnable {
+
+	// Buffers written to one spectator at a time
+	static final int BATCH = 64;
+	// About 800 moves, far more than a spectator that keeps up ever has in flight
+	static final int SEND_BUFFER = 16 << 10;
+
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	// Matches with moves not yet passed on, added by the match threads
+	private final ConcurrentLinkedQueue<Broadcast> moved = new ConcurrentLinkedQueue<>();
+	// Everything below is only used on the hub thread
+	private final Map<Broadcast, Set<Spectator>> watching = new HashMap<>();
+	private final ByteBuffer ignored = ByteBuffer.allocate(1024);
+	private final ByteBuffer heartbeat = ByteBuffer.allocate(Protocol.HEADER);
+	private Selector selector;
+	private ScheduledFuture<?> sweep;
+	private volatile boolean running = false;
+
+	// Opens the selector and starts the hub thread
+	public void open() throws IOException {
+		selector = Selector.open();
+		Protocol.heartbeat(heartbeat);
+		heartbeat.flip();
+		running = true;
+		Thread thread = new Thread(this, "Battleship spectators");
+		thread.setDaemon(true);
+		thread.start();
+		sweep = Timeouts.every(() -> runOnHub(this::checkSpectators), Timeouts.SWEEP_MILLIS);
+	}
+
+	public void close() {
+		running = false;
+		sweep.cancel(false);
+		selector.wakeup();
+	}
+
+	// Takes over a connection that asked to watch. unsent is anything already
+	// queued to it, which goes out first.
+	public void add(SocketChannel channel, Broadcast broadcast, ByteBuffer unsent) {
+		runOnHub(() -> {
+			Spectator spectator = new Spectator(channel, broadcast);
+			if (unsent.hasRemaining()) {
+				spectator.pending[0] = unsent;
+				spectator.count = 1;
+			}
+			try {
+				channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+				spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+			} catch (IOException e) {
+				spectator.close();
+				return;
+			}
+			Set<Spectator> spectators = watching.get(broadcast);
+			if (spectators == null) {
+				spectators = new LinkedHashSet<>();
+				watching.put(broadcast, spectators);
+				broadcast.setListener(() -> {
+					moved.add(broadcast);
+					selector.wakeup();
+				});
+			}
+			spectators.add(spectator);
+			spectator.pump();
+		});
+	}
+
+	private void runOnHub(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
+				}
+				Broadcast broadcast;
+				while ((broadcast = moved.poll()) != null) {
+					Set<Spectator> spectators = watching.get(broadcast);
+					if (spectators == null) {
+						continue;
+					}
+					// A copy, since a spectator can close (and leave the set) while pumped
+					for (Spectator spectator : spectators.toArray(new Spectator[0])) {
+						if (spectator.first == spectator.count) {
+							spectator.pump();
+						}
+					}
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Spectator spectator = (Spectator) key.attachment();
+					if (key.isValid() && key.isReadable()) {
+						spectator.read();
+					}
+					if (key.isValid() && key.isWritable()) {
+						spectator.pump();
+					}
+				}
+			}
+			for (SelectionKey key : selector.keys()) {
+				((Spectator) key.attachment()).close();
+			}
+			selector.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Drops spectators that have stopped taking anything, and keeps idle ones alive
+	private void checkSpectators() {
+		long now = System.nanoTime();
+		Iterator<Set<Spectator>> matches = watching.values().iterator();
+		while (matches.hasNext()) {
+			Set<Spectator> spectators = matches.next();
+			for (Spectator spectator : spectators.toArray(new Spectator[0])) {
+				if (spectator.first < spectator.count) {
+					if (Timeouts.expired(spectator.lastProgress, now, Timeouts.IDLE_MILLIS)) {
+						spectator.close(); // too slow
+					}
+				} else if (Timeouts.expired(spectator.lastProgress, now, Timeouts.HEARTBEAT_MILLIS)) {
+					spectator.pending[0] = heartbeat.duplicate();
+					spectator.first = 0;
+					spectator.count = 1;
+					spectator.pump();
+				}
+			}
+			if (spectators.isEmpty()) {
+				matches.remove(); // nobody is watching it any more
+			}
+		}
+	}
+
+	// One spectator's connection, only ever used on the hub thread
+	final class Spectator {
+
+		final SocketChannel channel;
+		final Broadcast broadcast;
+		final Broadcast.Cursor cursor;
+		SelectionKey key;
+		// Buffers first to count - 1 still have to be written
+		final ByteBuffer[] pending = new ByteBuffer[BATCH];
+		int first = 0;
+		int count = 0;
+		// When the socket last took something, by System.nanoTime()
+		long lastProgress = System.nanoTime();
+		boolean closed = false;
+
+		Spectator(SocketChannel channel, Broadcast broadcast) {
+			this.channel = channel;
+			this.broadcast = broadcast;
+			cursor = broadcast.join();
+		}
+
+		// Writes until it is up to date or the socket is full
+		void pump() {
+			try {
+				while (!closed) {
+					if (first == count) {
+						first = 0;
+						count = broadcast.poll(cursor, pending);
+						if (count == 0) {
+							if (broadcast.isClosed()) {
+								close();
+							} else {
+								key.interestOps(SelectionKey.OP_READ);
+							}
+							return;
+						}
+					}
+					if (channel.write(pending, first, count - first) > 0) {
+						lastProgress = System.nanoTime();
+					}
+					while (first < count && !pending[first].hasRemaining()) {
+						pending[first++] = null;
+					}
+					if (first < count) {
+						key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+						return;
+					}
+				}
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		// Spectators have nothing to say, so this only notices the end of the stream
+		void read() {
+			try {
+				ignored.clear();
+				if (channel.read(ignored) == -1) {
+					close();
+				}
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (key != null) {
+				key.cancel();
+			}
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			broadcast.leave();
+			Set<Spectator> spectators = watching.get(broadcast);
+			if (spectators != null) {
+				spectators.remove(this); // and the set goes at the next check, if it is empty
+			}
+		}
+	}
+}
@@ -0,0 +1,324 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+
+/*
+ * Description
+ * -----------
+ * This class is the other server mode. It keeps
+ * the simple blocking style of Battleship (one
+ * DataInputStream per player, read in a loop)
+ * but runs each connection on its own virtual
+ * thread, so many idle players thinking about
+ * their next shot cost almost nothing. On a JDK
+ * without virtual threads it falls back to a
+ * cached pool of platform threads. Players are
+ * paired by rating through the same lock-free
+ * Matchmaker, and share the same Match and
+ * MatchRegistry as
+ * the selector based GameServer. Timeouts are
+ * checked by one sweep over all connections on
+ * the shared timer, which closes dead ones and
+ * hands heartbeats to the connection threads,
+ * so a stuck socket never holds up the timer.
+ * A spectator's connection thread keeps reading
+ * (and ignoring) what it sends, while another
+ * thread writes it the match's Broadcast,
+ * blocking only itself when the spectator is
+ * slow; one whose write has not finished in
+ * Timeouts.IDLE_MILLIS is closed.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class ThreadedGameServer implements Runnable {
+
+	final MatchRegistry registry;
+	final int port;
+	final ExecutorService executor = newConnectionExecutor();
+	private ServerSocket server;
+
+	// Pairs players by rating. Matches start on a connection thread, never on the
+	// timer thread that widens the bands.
+	final Matchmaker<Connection> matchmaker = new Matchmaker<>(
+			(first, second) -> executor.execute(() -> pair(first, second)));
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+	private ScheduledFuture<?> sweep;
+
+	public ThreadedGameServer(int port) {
+		this(port, false);
+	}
+
+	public ThreadedGameServer(int port, boolean authoritative) {
+		this(port, authoritative, Rules.configured());
+	}
+
+	public ThreadedGameServer(int port, boolean authoritative, Rules rules) {
+		this.port = port;
+		registry = new MatchRegistry(authoritative, rules);
+	}
+
+	// Uses Executors.newVirtualThreadPerTaskExecutor() when this JDK has it
+	static ExecutorService newConnectionExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	// Binds the port, call before run()
+	public void open() throws IOException {
+		server = new ServerSocket(port, 1024);
+		sweep = Timeouts.every(this::checkConnections, Timeouts.SWEEP_MILLIS);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!server.isClosed()) {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				executor.execute(new Connection(socket));
+			}
+		} catch (IOException e) {
+			if (!server.isClosed()) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public void stop() throws IOException {
+		sweep.cancel(false);
+		registry.close();
+		matchmaker.close();
+		server.close();
+		executor.shutdownNow();
+	}
+
+	// Closes dead connections and keeps quiet ones alive, on the timer thread
+	private void checkConnections() {
+		long now = System.nanoTime();
+		for (Connection connection : connections) {
+			boolean joined = connection.name != null || connection.match != null;
+			long writing = connection.writeStarted;
+			if (connection.spectating) {
+				if (writing != 0 && Timeouts.expired(writing, now, Timeouts.IDLE_MILLIS)) {
+					connection.close(); // has stopped reading
+				} else if (Timeouts.expired(connection.lastWrite, now, Timeouts.HEARTBEAT_MILLIS)) {
+					connection.lastWrite = now;
+					executor.execute(connection::heartbeat);
+				}
+			} else if (Timeouts.expired(connection.lastRead, now,
+					joined ? Timeouts.IDLE_MILLIS : Timeouts.HANDSHAKE_MILLIS)) {
+				connection.close();
+			} else if (Timeouts.expired(connection.lastWrite, now, Timeouts.HEARTBEAT_MILLIS)) {
+				connection.lastWrite = now; // once per interval, even if the write is slow
+				executor.execute(connection::heartbeat);
+			}
+		}
+	}
+
+	// Starts a match for two players the matchmaker paired, unless one of them left
+	// in the meantime (then the other goes back in the queue)
+	private void pair(Connection first, Connection second) {
+		if (first.socket.isClosed() || second.socket.isClosed()) {
+			if (!first.socket.isClosed()) {
+				first.ticket = matchmaker.join(first, first.rating);
+			}
+			if (!second.socket.isClosed()) {
+				second.ticket = matchmaker.join(second, second.rating);
+			}
+			return;
+		}
+		first.seat = 0;
+		second.seat = 1;
+		Match match = registry.create(first, first.name, second, second.name);
+		first.match = match;
+		second.match = match;
+		match.start();
+		// A player who left just now may have missed their match in disconnect()
+		if (first.socket.isClosed()) {
+			match.seatClosed(first);
+		}
+		if (second.socket.isClosed()) {
+			match.seatClosed(second);
+		}
+	}
+
+	// One connection, read by its own thread
+	final class Connection implements Seat, Runnable {
+
+		final Socket socket;
+		volatile String name;
+		volatile int rating;
+		volatile Matchmaker<Connection>.Ticket ticket;
+		volatile Match match;
+		volatile int seat;
+		// When a frame was last read or written, by System.nanoTime()
+		volatile long lastRead = System.nanoTime();
+		volatile long lastWrite = lastRead;
+		// A spectator, and when the write to it now under way started (0 if none is)
+		volatile boolean spectating = false;
+		volatile long writeStarted = 0;
+		private DataOutputStream dout;
+		private WritableByteChannel out;
+		private final ByteBuffer heartbeat = ByteBuffer.allocate(Protocol.HEADER);
+
+		Connection(Socket socket) {
+			this.socket = socket;
+		}
+
+		@Override
+		public void run() {
+			ByteBuffer frame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+			connections.add(this);
+			Protocol.heartbeat(heartbeat);
+			heartbeat.flip();
+			try {
+				DataInputStream din = new DataInputStream(socket.getInputStream());
+				dout = new DataOutputStream(socket.getOutputStream());
+				out = Channels.newChannel(dout);
+				int type;
+				while ((type = Protocol.receive(din, frame)) == Protocol.HEARTBEAT) {
+					lastRead = System.nanoTime();
+				}
+				lastRead = System.nanoTime();
+				if (type == Protocol.RESUME) {
+					Match resumed = registry.session(Protocol.token(frame));
+					seat = resumed == null ? -1 : resumed.resume(Protocol.token(frame), this);
+					if (seat == -1) {
+						throw new ProtocolException("Unknown session");
+					}
+					match = resumed;
+				} else if (type == Protocol.WATCH) {
+					Match watched = registry.watched(Protocol.watchMatch(frame));
+					Broadcast broadcast = watched == null ? null : watched.watch();
+					if (broadcast == null) {
+						throw new ProtocolException("No match to watch");
+					}
+					spectating = true;
+					socket.setSendBufferSize(SpectatorHub.SEND_BUFFER);
+					executor.execute(() -> watch(broadcast));
+				} else if (type != Protocol.HELLO) {
+					throw new ProtocolException("Expected HELLO, got " + Protocol.type(frame));
+				} else if ((Protocol.helloFlags(frame) & Protocol.HELLO_BOT) != 0) {
+					name = Protocol.helloName(frame);
+					seat = 0;
+					match = registry.createWithBot(this, name);
+					match.start();
+				} else {
+					name = Protocol.helloName(frame);
+					// A rating this server has worked out beats the one the player claims
+					rating = PlayerStats.shared().rating(name, Protocol.helloRating(frame));
+					ticket = matchmaker.join(this, rating);
+				}
+				while (true) {
+					type = Protocol.receive(din, frame);
+					lastRead = System.nanoTime();
+					Match current = match;
+					if (current != null && type != Protocol.HEARTBEAT) {
+						current.frameReceived(seat, frame);
+					}
+				}
+			} catch (IOException e) {
+				// disconnected, or sent something that was not a frame
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // a bug, but it only costs this connection
+			}
+			Matchmaker<Connection>.Ticket waitingTicket = ticket;
+			if (waitingTicket != null) {
+				waitingTicket.leave();
+			}
+			connections.remove(this);
+			disconnect();
+		}
+
+		@Override
+		public synchronized void send(ByteBuffer frame) {
+			if (socket.isClosed()) {
+				return;
+			}
+			int length = Protocol.LENGTH_BYTES + (frame.getShort(frame.position()) & 0xFFFF);
+			try {
+				dout.write(frame.array(), frame.arrayOffset() + frame.position(), length);
+				dout.flush();
+				lastWrite = System.nanoTime();
+			} catch (IOException e) {
+				close();
+			}
+		}
+
+		void heartbeat() {
+			send(heartbeat);
+		}
+
+		// Writes a match's moves to this spectator until the match or the connection
+		// ends, on a thread of its own
+		void watch(Broadcast broadcast) {
+			Broadcast.Cursor cursor = broadcast.join();
+			ByteBuffer[] batch = new ByteBuffer[SpectatorHub.BATCH];
+			try {
+				while (!socket.isClosed()) {
+					int count = broadcast.await(cursor, batch, Timeouts.HEARTBEAT_MILLIS);
+					if (count == 0 && broadcast.isClosed()) {
+						break;
+					}
+					write(batch, count);
+				}
+			} catch (IOException | InterruptedException e) {
+				// gone, or the server is stopping
+			}
+			broadcast.leave();
+			close();
+		}
+
+		// Writes shared buffers of whole frames, without changing what they hold
+		private synchronized void write(ByteBuffer[] buffers, int count) throws IOException {
+			writeStarted = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				while (buffers[i].hasRemaining()) {
+					out.write(buffers[i]);
+				}
+				buffers[i] = null;
+			}
+			writeStarted = 0;
+			lastWrite = System.nanoTime();
+		}
+
+		// Sends are synchronous, so everything queued has already been written
+		@Override
+		public void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		private void disconnect() {
+			close();
+			Match current = match;
+			if (current != null) {
+				current.seatClosed(this);
+			}
+		}
+	}
+}
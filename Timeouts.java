@@ -0,0 +1,69 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Description
+ * -----------
+ * This class holds the connection timeouts and
+ * the one timer thread that enforces them for
+ * every connection and match in this program.
+ * Nothing sleeps per connection: servers sweep
+ * all of their connections from a repeating
+ * task, and each PeerConnection has one small
+ * repeating task of its own.
+ *
+ *   heartbeat  how often an otherwise quiet
+ *              connection sends a HEARTBEAT
+ *   idle       how long a connection may go
+ *              without receiving any frame
+ *              before its peer counts as dead
+ *   handshake  how long a server waits for a
+ *              new connection's HELLO (and a
+ *              host for its opponent's)
+ *   turn       how long a server waits for the
+ *              player whose turn it is to fire
+ *              before ending the match
+ *
+ * Each can be set in milliseconds with a system
+ * property, e.g. -Dbattleship.idleMillis=5000.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public final class Timeouts {
+
+	static final long HEARTBEAT_MILLIS = Long.getLong("battleship.heartbeatMillis", 2000);
+	static final long IDLE_MILLIS = Long.getLong("battleship.idleMillis", 10_000);
+	static final long HANDSHAKE_MILLIS = Long.getLong("battleship.handshakeMillis", 5000);
+	static final long TURN_MILLIS = Long.getLong("battleship.turnMillis", 120_000);
+
+	// How often servers check their connections and matches
+	static final long SWEEP_MILLIS = Math.max(1, Math.min(1000, HEARTBEAT_MILLIS / 2));
+
+	static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "Battleship timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Timeouts() {
+	}
+
+	// True once more than millis have passed since the System.nanoTime() since
+	public static boolean expired(long since, long now, long millis) {
+		return now - since > TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	// Runs task every millis milliseconds on the timer thread until cancelled
+	public static ScheduledFuture<?> every(Runnable task, long millis) {
+		return TIMER.scheduleAtFixedRate(task, millis, millis, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,264 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/*
+ * Description
+ * -----------
+ * This class measures the hot game routines:
+ * fleet validation, shot resolution with sunk
+ * detection and automatic misses, computer
+ * moves, random fleets, and the board message
+ * of the READY handshake. Each
+ * one runs against the BoardFixtures, both in
+ * its current form and in the original form
+ * kept in LegacyRules, so every optimization
+ * has a baseline. For each benchmark it prints
+ * operations per second and bytes allocated
+ * per operation (what JMH's gc profiler calls
+ * gc.alloc.rate.norm).
+ *
+ * Usage (from the project folder):
+ *   javac -d out *.java bench/*.java
+ *   java -cp out Benchmarks [name filter]
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class Benchmarks {
+
+	static final int WARMUP_ROUNDS = 5;
+	static final int MEASURED_ROUNDS = 5;
+	static final long ROUND_NANOS = 500_000_000L;
+
+	// One benchmark runs its operation ops times and returns something derived
+	// from the results, so the JIT cannot drop the work
+	interface Benchmark {
+		long run(int ops);
+	}
+
+	static volatile long sink;
+	static String filter = "";
+	// Time a benchmark spent getting ready between the ops it counts, which bench()
+	// leaves out of its throughput
+	static long setupNanos;
+
+	public static void main(String[] args) {
+		if (args.length > 0) {
+			filter = args[0];
+		}
+		BoardFixtures.check();
+		System.out.printf("%-32s %16s %14s%n", "Benchmark", "ops/sec", "bytes/op");
+
+		int[][] validArrays = new int[BoardFixtures.VALID.length][];
+		Bitboard[] validBoards = new Bitboard[BoardFixtures.VALID.length];
+		long[][] validShips = new long[BoardFixtures.VALID.length][];
+		for (int i = 0; i < validArrays.length; i++) {
+			validArrays[i] = BoardFixtures.toArray(BoardFixtures.VALID[i]);
+			validBoards[i] = BoardFixtures.toBitboard(BoardFixtures.VALID[i]);
+			validShips[i] = BoardFixtures.toShips(validBoards[i]);
+		}
+		int[][] touchingArrays = new int[BoardFixtures.TOUCHING.length][];
+		Bitboard[] touchingBoards = new Bitboard[BoardFixtures.TOUCHING.length];
+		for (int i = 0; i < touchingArrays.length; i++) {
+			touchingArrays[i] = BoardFixtures.toArray(BoardFixtures.TOUCHING[i]);
+			touchingBoards[i] = BoardFixtures.toBitboard(BoardFixtures.TOUCHING[i]);
+		}
+		int[] shots = BoardFixtures.shotOrder(42);
+		LegacyRules legacy = new LegacyRules();
+
+		// Fleet validation
+		bench("validate.valid", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += validBoards[i & 3].validate();
+			}
+			return sum;
+		});
+		bench("validate.touching", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += touchingBoards[i & 1].validate();
+			}
+			return sum;
+		});
+		bench("legacy.shipsValid.valid", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += legacy.shipsValid(validArrays[i & 3]) ? 1 : 0;
+			}
+			return sum;
+		});
+		bench("legacy.shipsValid.touching", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += legacy.shipsValid(touchingArrays[i & 1]) ? 1 : 0;
+			}
+			return sum;
+		});
+		bench("legacy.checkSurrounding", ops -> {
+			legacy.shipsCopy = new int[10][10];
+			for (int cell : BoardFixtures.VALID[0]) {
+				legacy.shipsCopy[cell / 10][cell % 10] = 1;
+			}
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += legacy.checkSurrounding(4, 2, 0, (i & 1) == 0 ? "horizontal" : "vertical") ? 1 : 0;
+			}
+			return sum;
+		});
+
+		// Shot resolution: one op is a shot at a board partway through a game
+		Bitboard playing = new Bitboard(Rules.CLASSIC);
+		bench("fire.partiallyHit", ops -> {
+			long sum = 0;
+			int shot = BoardFixtures.SHOTS_TAKEN;
+			for (int i = 0; i < ops; i++) {
+				if (shot == BoardFixtures.SHOTS_TAKEN) {
+					// Replay the first shots of a fresh game, outside of the counted shots
+					long setupStart = System.nanoTime();
+					long[] fleet = validShips[i & 3];
+					playing.clear();
+					playing.placeShips(fleet, fleet.length);
+					for (int s = 0; s < BoardFixtures.SHOTS_TAKEN; s++) {
+						playing.fire(shots[s]);
+					}
+					setupNanos += System.nanoTime() - setupStart;
+				}
+				sum += playing.fire(shots[shot]);
+				shot = shot == BoardFixtures.CELLS - 1 ? BoardFixtures.SHOTS_TAKEN : shot + 1;
+			}
+			return sum;
+		});
+		int[] legacyMarks = new int[BoardFixtures.CELLS];
+		// Each fleet partially hit by the first SHOTS_TAKEN shots, the same every op
+		boolean[][] legacyHits = new boolean[validArrays.length][BoardFixtures.CELLS];
+		for (int i = 0; i < legacyHits.length; i++) {
+			for (int s = 0; s < BoardFixtures.SHOTS_TAKEN; s++) {
+				legacyHits[i][shots[s]] = validArrays[i][shots[s]] == 1;
+			}
+		}
+		bench("legacy.checkSunkenShips", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += legacy.checkSunkenShips(validArrays[i & 3], legacyHits[i & 3], legacyMarks);
+			}
+			return sum;
+		});
+		bench("legacy.addMisses", ops -> {
+			for (int i = 0; i < ops; i++) {
+				legacy.addMisses(i & 7, 2, legacy.HORIZ, 3, legacyMarks);
+			}
+			return legacyMarks[0];
+		});
+
+		// A computer move: pick a shot and take in its result, over whole games
+		ProbabilityBot bot = new ProbabilityBot(Rules.CLASSIC, 7);
+		Bitboard target = new Bitboard(Rules.CLASSIC);
+		bench("bot.move", ops -> {
+			long sum = 0;
+			int game = 0;
+			for (int i = 0; i < ops; i++) {
+				if (target.fleetRemaining == 0) {
+					long[] fleet = validShips[game++ & 3];
+					target.clear();
+					target.placeShips(fleet, fleet.length);
+					bot.reset();
+				}
+				int cell = bot.nextShot();
+				int result = target.fire(cell);
+				bot.shotResult(cell, result, target.sunk);
+				sum += cell;
+			}
+			return sum;
+		});
+
+		// A random valid fleet, as used by Auto-place, bots and the simulator
+		FleetGenerator fleets = new FleetGenerator(11);
+		Bitboard generated = new Bitboard(Rules.CLASSIC);
+		bench("fleet.generate", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				fleets.place(generated);
+				sum += generated.ships[0];
+			}
+			return sum;
+		});
+
+		// The board message of the READY handshake
+		ByteBuffer frame = ByteBuffer.allocate(Protocol.MAX_FRAME);
+		Bitboard decoded = new Bitboard(Rules.CLASSIC);
+		bench("protocol.board.roundTrip", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				frame.clear();
+				Protocol.board(frame, validBoards[i & 3]);
+				frame.flip();
+				decoded.clear();
+				Protocol.boardShips(frame, decoded);
+				sum += decoded.ships[0] ^ decoded.ships[1];
+			}
+			return sum;
+		});
+		int[] parsed = new int[BoardFixtures.CELLS];
+		bench("legacy.board.roundTrip", ops -> {
+			long sum = 0;
+			for (int i = 0; i < ops; i++) {
+				legacy.parse(legacy.serialize(validArrays[i & 3]), parsed);
+				sum += parsed[i % BoardFixtures.CELLS];
+			}
+			return sum;
+		});
+	}
+
+	// Runs a benchmark for the warmup and measured rounds, and prints the average
+	// throughput and allocation of the measured ones
+	static void bench(String name, Benchmark benchmark) {
+		if (!name.contains(filter)) {
+			return;
+		}
+		// Find a batch size that takes about a millisecond
+		int batch = 1;
+		while (true) {
+			long start = System.nanoTime();
+			sink += benchmark.run(batch);
+			if (System.nanoTime() - start > 1_000_000 || batch >= 1 << 24) {
+				break;
+			}
+			batch *= 2;
+		}
+		long totalOps = 0;
+		long totalNanos = 0;
+		long totalBytes = 0;
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+			long ops = 0;
+			long bytesBefore = allocatedBytes();
+			setupNanos = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do {
+				sink += benchmark.run(batch);
+				ops += batch;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed - setupNanos < ROUND_NANOS);
+			long bytes = allocatedBytes() - bytesBefore;
+			if (round >= WARMUP_ROUNDS) {
+				totalOps += ops;
+				totalNanos += elapsed - setupNanos;
+				totalBytes += bytes;
+			}
+		}
+		System.out.printf("%-32s %16.0f %14.1f%n", name, totalOps * 1e9 / totalNanos, (double) totalBytes / totalOps);
+	}
+
+	// Bytes allocated so far by this thread
+	static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,99 @@
+import java.util.SplittableRandom;
+
+/*
+ * Description
+ * -----------
+ * This class holds the boards the benchmarks
+ * run against: valid fleets, fleets rejected
+ * because two ships touch, and valid fleets
+ * that are partway through a game, all on the
+ * classic board. Each one is available as a
+ * Bitboard, as the packed ship list the current
+ * code passes around, and as the int[100] array
+ * the original code used.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class BoardFixtures {
+
+	// Ship cells of four valid 5/4/3/3/2 fleets
+	static final int[][] VALID = {
+			{ 0, 1, 2, 3, 4, 20, 21, 22, 23, 40, 41, 42, 9, 19, 29, 98, 99 },
+			{ 0, 10, 20, 30, 40, 3, 4, 5, 6, 65, 66, 67, 39, 49, 59, 90, 91 },
+			{ 52, 53, 54, 55, 56, 9, 19, 29, 39, 0, 1, 2, 70, 80, 90, 85, 95 },
+			{ 27, 37, 47, 57, 67, 92, 93, 94, 95, 4, 5, 6, 12, 22, 32, 60, 61 } };
+
+	// The first two valid fleets with their 2-ship moved against another ship
+	static final int[][] TOUCHING = {
+			{ 0, 1, 2, 3, 4, 20, 21, 22, 23, 40, 41, 42, 9, 19, 29, 30, 31 },
+			{ 0, 10, 20, 30, 40, 3, 4, 5, 6, 65, 66, 67, 39, 49, 59, 57, 58 } };
+
+	// How many shots into a game the partially hit boards are
+	static final int SHOTS_TAKEN = 40;
+
+	static final int CELLS = Rules.CLASSIC.cells;
+
+	// Turns a list of ship cells into the original int[100] layout
+	static int[] toArray(int[] cells) {
+		int[] ships = new int[CELLS];
+		for (int cell : cells) {
+			ships[cell] = 1;
+		}
+		return ships;
+	}
+
+	static Bitboard toBitboard(int[] cells) {
+		Bitboard board = new Bitboard(Rules.CLASSIC);
+		for (int cell : cells) {
+			board.setShip(cell, true);
+		}
+		board.labelShips();
+		return board;
+	}
+
+	// A labelled board's ships, packed, for Bitboard.placeShips()
+	static long[] toShips(Bitboard board) {
+		long[] ships = new long[board.numShips];
+		for (int id = 0; id < ships.length; id++) {
+			ships[id] = board.ship(id);
+		}
+		return ships;
+	}
+
+	// The same shot order every run: a fixed permutation of all 100 cells
+	static int[] shotOrder(long seed) {
+		int[] order = new int[CELLS];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = order.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		return order;
+	}
+
+	// Fails fast if a fixture does not mean what its name says
+	static void check() {
+		for (int[] fleet : VALID) {
+			if (toBitboard(fleet).validate() != Bitboard.VALID || !new LegacyRules().shipsValid(toArray(fleet))) {
+				throw new IllegalStateException("Fixture is not a valid fleet");
+			}
+		}
+		for (int[] fleet : TOUCHING) {
+			if (toBitboard(fleet).validate() == Bitboard.VALID || new LegacyRules().shipsValid(toArray(fleet))) {
+				throw new IllegalStateException("Fixture is not rejected");
+			}
+		}
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Description
+ * -----------
+ * This class keeps the original Battleship
+ * rules from before the Bitboard engine, with
+ * the button colors replaced by plain arrays,
+ * so the benchmarks can compare every later
+ * optimization against the code it replaced.
+ * Nothing in the game uses it.
+ *
+ * Authors
+ * -------
+ * Ally Delgado and Andy Fleischer
+ *
+ * Date
+ * ----
+ * Last updated: October 18, 2026
+ */
+
+public class LegacyRules {
+
+	final int EMPTY_SQUARE = 0;
+	final int SHIP_SQUARE = 1;
+	final int HORIZ = 0;
+	final int VERT = 1;
+	final int MISS_SQUARE = 4;
+
+	int[][] shipsCopy = new int[10][10];
+	int[] validShipLengths = { 5, 4, 3, 3, 2 };
+
+	// shipsValid() as it was, reading ships[] instead of the button backgrounds
+	public boolean shipsValid(int[] ships) {
+		shipsCopy = new int[10][10];
+		for (int i = 0; i < shipsCopy.length; i++) {
+			for (int j = 0; j < shipsCopy[0].length; j++) {
+				if (ships[10 * i + j] == 1) {
+					shipsCopy[i][j] = 1;
+				}
+			}
+		}
+		validShipLengths[0] = 5;
+		validShipLengths[1] = 4;
+		validShipLengths[2] = 3;
+		validShipLengths[3] = 3;
+		validShipLengths[4] = 2;
+
+		int shipLength = 0;
+		// loop through entire board horizontally
+		for (int i = 0; i < shipsCopy.length; i++) {
+			for (int j = 0; j < shipsCopy[0].length; j++) {
+				if (shipsCopy[i][j] == 1) {
+					shipLength = horizontal(i, j, shipsCopy);
+					if (shipLength > 1) {
+						if (checkSurrounding(shipLength, i, j, "horizontal")) {
+							if (!saveShipLength(shipLength)) {
+								return false;
+							}
+						} else {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		// loop through entire board vertically
+		for (int j = 0; j < shipsCopy[0].length; j++) {
+			for (int i = 0; i < shipsCopy.length; i++) {
+				if (shipsCopy[i][j] == 1) {
+					shipLength = vertical(i, j, shipsCopy);
+					if (shipLength > 1) {
+						if (checkSurrounding(shipLength, i, j, "vertical")) {
+							if (!saveShipLength(shipLength)) {
+								return false;
+							}
+						} else {
+							return false;
+						}
+					} else {
+						return false;
+					}
+				}
+			}
+		}
+		// check if all the lengths are met
+		for (int j = 0; j < validShipLengths.length; j++) {
+			if (validShipLengths[j] != 20) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int horizontal(int row, int col, int[][] TempBoard) {
+		int shipLength = 0;
+		while (TempBoard[row][col] == SHIP_SQUARE) {
+			shipLength++;
+			TempBoard[row][col] = EMPTY_SQUARE;
+			col++;
+			if (col == 10) {
+				break;
+			}
+		}
+		if (shipLength == 1) {
+			TempBoard[row][col - 1] = SHIP_SQUARE;
+		}
+		return shipLength;
+	}
+
+	public int vertical(int row, int col, int[][] TempBoard) {
+		int shipLength = 0;
+		while (TempBoard[row][col] == SHIP_SQUARE) {
+			shipLength++;
+			TempBoard[row][col] = EMPTY_SQUARE;
+			row++;
+			if (row == 10) {
+				break;
+			}
+		}
+		return shipLength;
+	}
+
+	public boolean saveShipLength(int shipLength) {
+		for (int i = 0; i < validShipLengths.length; i++) {
+			if (validShipLengths[i] == shipLength) {
+				validShipLengths[i] = 20;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean checkSurrounding(int shipLength, int row, int col, String direction) {
+		if (direction.equals("vertical")) {
+			if ((row > 0) && ((col > 0 && shipsCopy[row - 1][col - 1] == 1)
+					|| (col < 9 && shipsCopy[row - 1][col + 1] == 1))) {
+				return false;
+			}
+			for (int i = 0; i < shipLength; i++) {
+				if ((col > 0 && shipsCopy[row + i][col - 1] == 1) || (col < 9 && shipsCopy[row + i][col + 1] == 1)) {
+					return false;
+				}
+			}
+			if ((row + shipLength < 10) && ((col > 0 && shipsCopy[row + shipLength][col - 1] == 1)
+					|| (col < 9 && shipsCopy[row + shipLength][col + 1] == 1))) {
+				return false;
+			}
+		} else {
+			if ((col > 0) && ((row > 0 && shipsCopy[row - 1][col - 1] == 1)
+					|| (row < 9 && shipsCopy[row + 1][col - 1] == 1))) {
+				return false;
+			}
+			for (int i = 0; i < shipLength; i++) {
+				if ((row > 0 && shipsCopy[row - 1][col + i] == 1) || (row < 9 && shipsCopy[row + 1][col + i] == 1)) {
+					return false;
+				}
+			}
+			if ((col + shipLength < 10) && ((row > 0 && shipsCopy[row - 1][col + shipLength] == 1)
+					|| (row < 9 && shipsCopy[row + 1][col + shipLength] == 1))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// checkSunkenShips() as it was, with hits[] in place of red buttons and
+	// board[] (MISS_SQUARE) in place of white ones
+	public int checkSunkenShips(int[] oppShips, boolean[] hits, int[] board) {
+		int vertLength = 0;
+		int horizLength = 0;
+		int tempShips[][] = new int[10][10];
+		int numHits = 0;
+		int numSunk = 0;
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				tempShips[i][j] = oppShips[(10 * i) + j];
+			}
+		}
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				numHits = 0;
+				if (oppShips[(10 * i) + j] == SHIP_SQUARE) {
+					horizLength = horizontal(i, j, tempShips);
+					vertLength = vertical(i, j, tempShips);
+					if (horizLength > vertLength) {
+						for (int k = j; k < horizLength + j; k++) {
+							if (hits[(10 * i) + k]) {
+								numHits++;
+							}
+						}
+						if (numHits == horizLength && numHits > 0) {
+							numSunk++;
+							addMisses(i, j, HORIZ, horizLength, board);
+						}
+					} else if (vertLength > horizLength) {
+						for (int k = i; k < vertLength + i; k++) {
+							if (hits[(10 * k) + j]) {
+								numHits++;
+							}
+						}
+						if (numHits == vertLength && numHits > 0) {
+							numSunk++;
+							addMisses(i, j, VERT, vertLength, board);
+						}
+					}
+				}
+			}
+		}
+		return numSunk;
+	}
+
+	// addMisses() as it was, marking board[] instead of setting backgrounds
+	public void addMisses(int i, int j, int direction, int length, int[] board) {
+		if (direction == VERT) {
+			if (i > 0) {
+				if (j > 0) {
+					board[10 * (i - 1) + (j - 1)] = MISS_SQUARE;
+				}
+				board[10 * (i - 1) + j] = MISS_SQUARE;
+				if (j < 9) {
+					board[10 * (i - 1) + (j + 1)] = MISS_SQUARE;
+				}
+			}
+			for (int k = 0; k < length; k++) {
+				if (j > 0) {
+					board[10 * (i + k) + (j - 1)] = MISS_SQUARE;
+				}
+				if (j < 9) {
+					board[10 * (i + k) + (j + 1)] = MISS_SQUARE;
+				}
+			}
+			if (i + length < 10) {
+				if (j > 0) {
+					board[10 * (i + length) + (j - 1)] = MISS_SQUARE;
+				}
+				board[10 * (i + length) + j] = MISS_SQUARE;
+				if (j < 9) {
+					board[10 * (i + length) + (j + 1)] = MISS_SQUARE;
+				}
+			}
+		} else {
+			if (j > 0) {
+				if (i > 0) {
+					board[10 * (i - 1) + (j - 1)] = MISS_SQUARE;
+				}
+				board[10 * i + (j - 1)] = MISS_SQUARE;
+				if (i < 9) {
+					board[10 * (i + 1) + (j - 1)] = MISS_SQUARE;
+				}
+			}
+			for (int k = 0; k < length; k++) {
+				if (i > 0) {
+					board[10 * (i - 1) + (j + k)] = MISS_SQUARE;
+				}
+				if (i < 9) {
+					board[10 * (i + 1) + (j + k)] = MISS_SQUARE;
+				}
+			}
+			if (j + length < 10) {
+				if (i > 0) {
+					board[10 * (i - 1) + (j + length)] = MISS_SQUARE;
+				}
+				board[10 * i + (j + length)] = MISS_SQUARE;
+				if (i < 9) {
+					board[10 * (i + 1) + (j + length)] = MISS_SQUARE;
+				}
+			}
+		}
+	}
+
+	// The READY handshake's board message as it was sent with writeUTF
+	public String serialize(int[] ships) {
+		String msgout = "";
+		for (int i = 0; i < ships.length; i++) {
+			msgout += Integer.toString(ships[i]);
+		}
+		return msgout;
+	}
+
+	// ...and as it was parsed on the other side
+	public void parse(String msg, int[] ships) {
+		String[] msgin = msg.split("");
+		for (int i = 0; i < msgin.length; i++) {
+			ships[i] = Integer.parseInt(msgin[i]);
+		}
+	}
+}